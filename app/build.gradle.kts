@@ -33,6 +33,14 @@ android {
             proguardFiles(getDefaultProguardFile("proguard-android-optimize.txt"), "proguard-rules.pro")
         }
     }
+    androidResources {
+        // procedures.snap is memory-mapped straight out of the APK (see ProcedureSnapshot)
+        noCompress += "snap"
+    }
+    testOptions {
+        // ResilientCall and AppExecutors touch SystemClock/Log/Handler; let the JVM tests run them
+        unitTests.isReturnDefaultValues = true
+    }
     compileOptions {
         sourceCompatibility = JavaVersion.VERSION_1_8
         targetCompatibility = JavaVersion.VERSION_1_8
@@ -45,6 +53,10 @@ dependencies {
     implementation(libs.activity)
     implementation(libs.constraintlayout)
     testImplementation(libs.junit)
+    // local SSE / fault-injecting server for the network tests
+    testImplementation("com.squareup.okhttp3:mockwebserver:4.9.3")
+    // android.jar's org.json is a stub in JVM unit tests
+    testImplementation("org.json:json:20231013")
     androidTestImplementation(libs.ext.junit)
     androidTestImplementation(libs.espresso.core)
     implementation("com.google.android.material:material:1.12.0")
@@ -52,6 +64,7 @@ dependencies {
     implementation("com.google.android.gms:play-services-location:21.2.0")
     implementation("com.squareup.okhttp3:okhttp:4.9.3")
     implementation("androidx.viewpager2:viewpager2:1.1.0")
+    implementation("androidx.recyclerview:recyclerview:1.3.2")
     implementation("com.github.bumptech.glide:glide:4.15.1")
     annotationProcessor("com.github.bumptech.glide:compiler:4.15.1")
-}
\ No newline at end of file
+}
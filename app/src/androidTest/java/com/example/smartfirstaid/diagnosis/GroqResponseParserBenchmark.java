@@ -0,0 +1,125 @@
+package com.example.smartfirstaid.diagnosis;
+
+import android.os.Debug;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.example.smartfirstaid.data.model.Diagnosis;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.StringReader;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares the old JSONObject + indexOf/lastIndexOf extraction with GroqResponseParser
+ * over recorded responses. Reports time and bytes allocated per parse in Logcat
+ * (tag "ParserBenchmark"); timings vary per device, so only agreement with the old
+ * extraction is asserted. Edge cases of the object scan are in GroqResponseParserTest.
+ */
+@RunWith(AndroidJUnit4.class)
+public class GroqResponseParserBenchmark {
+    private static final String TAG = "ParserBenchmark";
+    private static final int WARMUP = 200;
+    private static final int ITERATIONS = 2_000;
+
+    // recorded Responses API reply, model text wrapped in prose
+    private static final String RESPONSES_API = "{\"id\":\"resp_01\",\"object\":\"response\",\"status\":\"completed\","
+            + "\"model\":\"llama-3.1-8b-instant\",\"output\":[{\"type\":\"message\",\"id\":\"msg_01\",\"role\":\"assistant\","
+            + "\"content\":[{\"type\":\"output_text\",\"annotations\":[],\"text\":\"Here is the assessment:\\n"
+            + "{\\n  \\\"disease\\\": \\\"Heat exhaustion\\\",\\n  \\\"criticality\\\": \\\"moderate\\\",\\n"
+            + "  \\\"immediate_actions\\\": [\\\"Move to a cool place\\\", \\\"Sip water {slowly}\\\", \\\"Loosen clothing\\\"],\\n"
+            + "  \\\"worsen_actions\\\": [\\\"Call emergency services\\\", \\\"Keep cooling\\\"]\\n}\\nStay safe.\"}]}],"
+            + "\"usage\":{\"input_tokens\":142,\"output_tokens\":88,\"total_tokens\":230}}";
+
+    // recorded chat-completions style reply
+    private static final String CHAT_COMPLETIONS = "{\"id\":\"chatcmpl-1\",\"object\":\"chat.completion\",\"created\":1,"
+            + "\"choices\":[{\"index\":0,\"message\":{\"role\":\"assistant\",\"content\":"
+            + "\"{\\\"disease\\\":\\\"Possible stroke\\\",\\\"criticality\\\":\\\"high\\\","
+            + "\\\"immediate_actions\\\":[\\\"Call emergency services\\\",\\\"Note the time\\\"],"
+            + "\\\"worsen_actions\\\":[\\\"Recovery position if unresponsive\\\"]}\"},\"finish_reason\":\"stop\"}],"
+            + "\"usage\":{\"prompt_tokens\":140,\"completion_tokens\":60}}";
+
+    @Test
+    public void parsersAgree() throws Exception {
+        for (String raw : new String[]{RESPONSES_API, CHAT_COMPLETIONS}) {
+            JSONObject legacy = legacyParse(raw);
+            Diagnosis d = GroqResponseParser.parse(new StringReader(raw)).diagnosis;
+            assertNotNull(legacy);
+            assertNotNull(d);
+            assertEquals(legacy.getString("disease"), d.disease);
+            assertEquals(legacy.getString("criticality"), d.criticality);
+            assertEquals(legacy.getJSONArray("immediate_actions").length(), d.immediateActions.size());
+            assertEquals(legacy.getJSONArray("worsen_actions").length(), d.worsenActions.size());
+        }
+    }
+
+    @Test
+    public void benchmark() throws Exception {
+        for (String raw : new String[]{RESPONSES_API, CHAT_COMPLETIONS}) {
+            Measurement legacy = measure(() -> legacyParse(raw));
+            Measurement streaming = measure(() -> GroqResponseParser.parse(new StringReader(raw)));
+            Log.i(TAG, String.format(java.util.Locale.US,
+                    "%d-byte response: legacy %.1f us / %d B, streaming %.1f us / %d B per parse",
+                    raw.length(), legacy.microsPerOp, legacy.bytesPerOp,
+                    streaming.microsPerOp, streaming.bytesPerOp));
+        }
+    }
+
+    private interface Op {
+        Object run() throws Exception;
+    }
+
+    private static final class Measurement {
+        double microsPerOp;
+        long bytesPerOp;
+    }
+
+    @SuppressWarnings("deprecation")
+    private static Measurement measure(Op op) throws Exception {
+        for (int i = 0; i < WARMUP; i++) op.run();
+        Debug.resetThreadAllocSize();
+        Debug.startAllocCounting();
+        long start = SystemClock.elapsedRealtimeNanos();
+        Object sink = null;
+        for (int i = 0; i < ITERATIONS; i++) sink = op.run();
+        long elapsed = SystemClock.elapsedRealtimeNanos() - start;
+        Debug.stopAllocCounting();
+        assertNotNull(sink);
+
+        Measurement m = new Measurement();
+        m.microsPerOp = elapsed / 1_000.0 / ITERATIONS;
+        m.bytesPerOp = Debug.getThreadAllocSize() / ITERATIONS;
+        return m;
+    }
+
+    /** The extraction DiagnoseActivity used before GroqResponseParser (condensed). */
+    private static JSONObject legacyParse(String raw) throws Exception {
+        JSONObject root = new JSONObject(raw);
+        String text = null;
+        if (root.has("output")) {
+            JSONArray outputs = root.getJSONArray("output");
+            for (int i = 0; i < outputs.length() && text == null; i++) {
+                JSONObject out = outputs.getJSONObject(i);
+                JSONArray content = out.optJSONArray("content");
+                if (content != null && content.length() > 0) {
+                    text = content.getJSONObject(0).optString("text", null);
+                }
+            }
+        } else if (root.has("choices")) {
+            text = root.getJSONArray("choices").getJSONObject(0)
+                    .getJSONObject("message").getString("content");
+        }
+        if (text == null) return null;
+        int start = text.indexOf("{");
+        int end = text.lastIndexOf("}");
+        if (start < 0 || end <= start) return null;
+        return new JSONObject(text.substring(start, end + 1));
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.smartfirstaid; // change to your package
 
 import android.os.Bundle;
+import android.os.SystemClock;
 import android.util.Log;
 import android.view.View;
 import android.widget.Button;
@@ -12,7 +13,22 @@ import android.widget.Toast;
 import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
 
-import org.json.JSONArray;
+import com.example.smartfirstaid.data.model.Diagnosis;
+import com.example.smartfirstaid.diagnosis.DiagnosisCache;
+import com.example.smartfirstaid.diagnosis.DiagnosisStreamParser;
+import com.example.smartfirstaid.diagnosis.GroqResponseParser;
+import com.example.smartfirstaid.diagnosis.GroqStreamEvents;
+import com.example.smartfirstaid.diagnosis.SseReader;
+import com.example.smartfirstaid.diagnosis.TriageEngine;
+import com.example.smartfirstaid.net.CallPolicy;
+import com.example.smartfirstaid.net.CircuitBreaker;
+import com.example.smartfirstaid.net.HttpClientProvider;
+import com.example.smartfirstaid.net.InFlightCalls;
+import com.example.smartfirstaid.net.LatencyTracker;
+import com.example.smartfirstaid.net.ResilientCall;
+import com.example.smartfirstaid.net.RetryPolicy;
+import com.example.smartfirstaid.util.TaskRunner;
+
 import org.json.JSONObject;
 
 import java.io.IOException;
@@ -25,15 +41,40 @@ import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.Response;
+import okhttp3.ResponseBody;
 
 public class DiagnoseActivity extends AppCompatActivity {
     private static final String TAG = "DiagnoseActivity";
 
     // injected via buildConfigField from local.properties
     private static final String GROQ_API_KEY = BuildConfig.GROQ_API_KEY;
-    private static final String GROQ_URL = "https://api.groq.com/openai/v1/responses";
-
-    private final OkHttpClient client = new OkHttpClient();
+    static final String GROQ_URL = "https://api.groq.com/openai/v1/responses";
+    private static final String MODEL = "llama-3.1-8b-instant";
+    // bump whenever buildPrompt changes so cached answers from the old prompt are not reused
+    private static final int PROMPT_VERSION = 1;
+    // debug builds only: point at a local mock (e.g. an SSE test server)
+    public static final String EXTRA_ENDPOINT = "endpoint";
+    // stream tokens (SSE) and render fields as they complete
+    private static final boolean STREAMING = true;
+
+    // process-wide: 3 attempts, 0.5-4 s jittered backoff, breaker opens for 30 s after
+    // 3 straight failures, hedge once a request is slower than the recent p95
+    private static final CallPolicy GROQ_POLICY = new CallPolicy(
+            new RetryPolicy(3, 500, 4_000, 10_000),
+            new CircuitBreaker(3, 30_000),
+            new LatencyTracker(50),
+            95);
+
+    private String endpoint = GROQ_URL;
+    private DiagnosisCache diagnosisCache;
+    private String cacheKey;
+    private ArrayList<String> symptoms;
+    // offline triage shown while the remote answer is pending; replaced when it arrives
+    private volatile Diagnosis localResult;
+    private volatile boolean remoteRendered;
+
+    // shared pool / TLS sessions across screens
+    private final OkHttpClient client = HttpClientProvider.get();
 
     private TextView tvDiseaseName, tvCriticality, tvActions, tvWorsen, tvDisclaimer;
     private LinearLayout containerImmediate, containerWorsen;
@@ -57,20 +98,102 @@ public class DiagnoseActivity extends AppCompatActivity {
 
         tvDisclaimer.setText("Disclaimer: AI suggestions are informational only. In emergencies call local services.");
 
-        ArrayList<String> symptoms = getIntent().getStringArrayListExtra("symptoms");
+        symptoms = getIntent().getStringArrayListExtra("symptoms");
         if (symptoms == null || symptoms.isEmpty()) {
             Toast.makeText(this, "No symptoms provided.", Toast.LENGTH_SHORT).show();
             finish();
             return;
         }
 
+        String override = getIntent().getStringExtra(EXTRA_ENDPOINT);
+        if (BuildConfig.DEBUG && override != null) endpoint = override;
+
         final String prompt = buildPrompt(symptoms);
+        diagnosisCache = DiagnosisCache.get(this);
+        cacheKey = DiagnosisCache.keyFor(symptoms, MODEL, PROMPT_VERSION);
 
         // initial call
-        callGroqResponses(prompt);
+        loadDiagnosis(prompt);
 
         // retry
-        btnRetry.setOnClickListener(v -> callGroqResponses(prompt));
+        btnRetry.setOnClickListener(v -> loadDiagnosis(prompt));
+    }
+
+    /** Serve an identical earlier diagnosis from the cache; only call Groq on a miss. */
+    private void loadDiagnosis(String prompt) {
+        String cached = diagnosisCache.getFromMemory(cacheKey);
+        if (cached != null) {
+            showCached(cached, prompt);
+            return;
+        }
+        progressBar.setVisibility(View.VISIBLE);
+        TaskRunner.io(this, () -> diagnosisCache.get(cacheKey), new TaskRunner.Callback<String>() {
+            @Override
+            public void onSuccess(String json) {
+                if (json != null) {
+                    showCached(json, prompt);
+                } else {
+                    runLocalTriage();
+                    callGroq(prompt);
+                }
+            }
+
+            @Override
+            public void onError(Exception e) {
+                Log.w(TAG, "Diagnosis cache read failed", e);
+                runLocalTriage();
+                callGroq(prompt);
+            }
+        });
+    }
+
+    /** Instant on-device estimate; the remote answer overwrites it when (if) it arrives. */
+    private void runLocalTriage() {
+        if (localResult != null) {
+            if (!remoteRendered) populateUi(localResult);
+            return;
+        }
+        final long start = SystemClock.elapsedRealtime();
+        TaskRunner.cpu(this, () -> TriageEngine.get(this).triage(symptoms),
+                new TaskRunner.Callback<Diagnosis>() {
+                    @Override
+                    public void onSuccess(Diagnosis result) {
+                        Log.d(TAG, "Local triage took " + (SystemClock.elapsedRealtime() - start) + " ms");
+                        if (result == null) return;
+                        localResult = result;
+                        if (!remoteRendered) populateUi(result);
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        Log.w(TAG, "Local triage failed", e);
+                    }
+                });
+    }
+
+    private void showCached(String json, String prompt) {
+        Log.d(TAG, "Diagnosis cache hit (" + diagnosisCache + ")");
+        try {
+            progressBar.setVisibility(View.GONE);
+            populateUi(Diagnosis.fromJson(new JSONObject(json)));
+        } catch (Exception e) {
+            Log.w(TAG, "Corrupt cached diagnosis, refetching", e);
+            callGroq(prompt);
+        }
+    }
+
+    /** Called on the OkHttp thread once a complete diagnosis was parsed. */
+    private void cacheDiagnosis(Diagnosis d) {
+        try {
+            diagnosisCache.put(cacheKey, d.toJson().toString());
+        } catch (Exception e) {
+            Log.w(TAG, "Diagnosis cache write failed", e);
+        }
+    }
+
+    private void callGroq(String prompt) {
+        if (STREAMING) callGroqStreaming(prompt);
+        else callGroqResponses(prompt);
     }
 
     private String buildPrompt(ArrayList<String> symptoms) {
@@ -91,15 +214,15 @@ public class DiagnoseActivity extends AppCompatActivity {
         return sb.toString();
     }
 
-    private void callGroqResponses(String prompt) {
-        progressBar.setVisibility(View.VISIBLE);
-
+    @Nullable
+    private Request buildRequest(String prompt, boolean stream) {
         MediaType JSON = MediaType.get("application/json; charset=utf-8");
 
         JSONObject req = new JSONObject();
         try {
-            req.put("model", "llama-3.1-8b-instant");
+            req.put("model", MODEL);
             req.put("input", prompt);
+            if (stream) req.put("stream", true);
 
             // optional parameters
             JSONObject params = new JSONObject();
@@ -111,44 +234,171 @@ public class DiagnoseActivity extends AppCompatActivity {
             e.printStackTrace();
             progressBar.setVisibility(View.GONE);
             Toast.makeText(this, "Failed to build request", Toast.LENGTH_SHORT).show();
-            return;
+            return null;
         }
 
         RequestBody body = RequestBody.create(req.toString(), JSON);
 
-        Request request = new Request.Builder()
-                .url(GROQ_URL)
+        Request.Builder b = new Request.Builder()
+                .url(endpoint)
                 .addHeader("Authorization", "Bearer " + GROQ_API_KEY)
                 .addHeader("Content-Type", "application/json")
-                .post(body)
-                .build();
+                .post(body);
+        if (stream) b.addHeader("Accept", "text/event-stream");
+        return b.build();
+    }
+
+    private void callGroqStreaming(String prompt) {
+        progressBar.setVisibility(View.VISIBLE);
+
+        Request request = buildRequest(prompt, true);
+        if (request == null) return;
+        final long startedAt = SystemClock.elapsedRealtime();
 
-        client.newCall(request).enqueue(new Callback() {
+        boolean started = InFlightCalls.enqueue(this, cacheKey,
+                new ResilientCall(client, request, GROQ_POLICY), new Callback() {
             @Override public void onFailure(Call call, IOException e) {
-                runOnUiThread(() -> {
-                    progressBar.setVisibility(View.GONE);
-                    Toast.makeText(DiagnoseActivity.this, "Network error: " + e.getMessage(), Toast.LENGTH_LONG).show();
-                });
+                showFallback(e);
             }
 
             @Override public void onResponse(Call call, Response response) throws IOException {
-                final String raw = response.body() != null ? response.body().string() : "";
-                Log.d(TAG, "HTTP " + response.code() + " RAW: " + raw);
+                Log.d(TAG, "HTTP " + response.protocol() + " " + HttpClientProvider.stats());
+                if (!response.isSuccessful()) {
+                    showFallback(errorFrom(response));
+                    return;
+                }
+
+                final StringBuilder fullText = new StringBuilder();
+                final StreamRenderer renderer = new StreamRenderer(startedAt);
+                final DiagnosisStreamParser parser = new DiagnosisStreamParser(renderer);
+                try (ResponseBody body = response.body()) {
+                    if (body != null) {
+                        SseReader.read(body.source(), (event, data) -> {
+                            String delta = GroqStreamEvents.deltaText(event, data);
+                            if (delta != null) {
+                                fullText.append(delta);
+                                parser.feed(delta);
+                            }
+                            return !parser.isDone() && !GroqStreamEvents.isTerminal(event, data);
+                        });
+                    }
+                } catch (IOException e) {
+                    Log.w(TAG, "Stream interrupted after " + fullText.length() + " chars", e);
+                    if (!renderer.renderedAny) {
+                        runOnUiThread(() -> {
+                            progressBar.setVisibility(View.GONE);
+                            Toast.makeText(DiagnoseActivity.this, "Network error: " + e.getMessage(), Toast.LENGTH_LONG).show();
+                        });
+                        return;
+                    }
+                }
+
+                runOnUiThread(() -> progressBar.setVisibility(View.GONE));
+                Log.d(TAG, "Stream finished in " + (SystemClock.elapsedRealtime() - startedAt) + " ms");
+
+                Diagnosis diagnosis = GroqResponseParser.parseDiagnosisText(fullText.toString());
+                // an interrupted stream may still contain a parseable prefix; only cache complete answers
+                if (diagnosis != null && (parser.isDone() || !renderer.renderedAny)) cacheDiagnosis(diagnosis);
+
+                if (!renderer.renderedAny) {
+                    // nothing recognisable streamed; try the whole text in one go
+                    if (diagnosis != null) {
+                        remoteRendered = true;
+                        populateUi(diagnosis);
+                    } else {
+                        runOnUiThread(() -> Toast.makeText(DiagnoseActivity.this,
+                                "Model did not return JSON. See Logcat (preview).", Toast.LENGTH_LONG).show());
+                    }
+                }
+            }
+        });
+        if (!started) Log.d(TAG, "Identical diagnosis already in flight; ignoring duplicate request");
+    }
 
+    /** Renders diagnosis fields into the screen as the stream parser completes them. */
+    private class StreamRenderer implements DiagnosisStreamParser.Listener {
+        private final long startedAt;
+        volatile boolean renderedAny;
+        private int immediateCount, worsenCount;
+        private boolean firstActionLogged;
+
+        StreamRenderer(long startedAt) {
+            this.startedAt = startedAt;
+        }
+
+        @Override
+        public void onField(String key, String value) {
+            renderedAny = true;
+            remoteRendered = true;
+            runOnUiThread(() -> {
+                if ("disease".equals(key)) {
+                    tvDiseaseName.setText(value);
+                    if (localResult != null) tvActions.setText("Updated with AI diagnosis");
+                }
+                else if ("criticality".equals(key)) tvCriticality.setText(value);
+                else if ("possibility".equals(key) && !value.isEmpty()) tvActions.setText(value);
+            });
+        }
+
+        @Override
+        public void onArrayItem(String key, int index, String value) {
+            renderedAny = true;
+            remoteRendered = true;
+            if ("immediate_actions".equals(key) && !firstActionLogged) {
+                firstActionLogged = true;
+                Log.i(TAG, "First immediate action after " + (SystemClock.elapsedRealtime() - startedAt) + " ms");
+            }
+            runOnUiThread(() -> {
+                if ("immediate_actions".equals(key)) {
+                    if (immediateCount++ == 0) containerImmediate.removeAllViews();
+                    addBullet(containerImmediate, value);
+                } else if ("worsen_actions".equals(key)) {
+                    if (worsenCount++ == 0) containerWorsen.removeAllViews();
+                    addBullet(containerWorsen, value);
+                }
+            });
+        }
+
+        @Override
+        public void onObjectEnd() {
+            runOnUiThread(() -> {
+                if (immediateCount == 0) {
+                    containerImmediate.removeAllViews();
+                    addBullet(containerImmediate, "—");
+                }
+                if (worsenCount == 0) {
+                    containerWorsen.removeAllViews();
+                    addBullet(containerWorsen, "—");
+                }
+            });
+        }
+    }
+
+    private void callGroqResponses(String prompt) {
+        progressBar.setVisibility(View.VISIBLE);
+
+        Request request = buildRequest(prompt, false);
+        if (request == null) return;
+
+        boolean started = InFlightCalls.enqueue(this, cacheKey,
+                new ResilientCall(client, request, GROQ_POLICY), new Callback() {
+            @Override public void onFailure(Call call, IOException e) {
+                showFallback(e);
+            }
+
+            @Override public void onResponse(Call call, Response response) throws IOException {
                 runOnUiThread(() -> progressBar.setVisibility(View.GONE));
 
                 if (!response.isSuccessful()) {
-                    String serverMsg = extractServerMessage(raw);
-                    runOnUiThread(() -> Toast.makeText(DiagnoseActivity.this,
-                            "API Error: HTTP " + response.code() + ". " + serverMsg, Toast.LENGTH_LONG).show());
+                    showFallback(errorFrom(response));
                     return;
                 }
 
-                try {
-                    JSONObject root = new JSONObject(raw);
-
-                    // Groq Responses typically have "output" array. We'll extract text defensively.
-                    String text = extractTextFromGroqResponse(root);
+                try (ResponseBody body = response.body()) {
+                    // one pass over the envelope straight into a Diagnosis
+                    GroqResponseParser.Result result = body == null ? null
+                            : GroqResponseParser.parse(body.charStream());
+                    String text = result == null ? null : result.text;
 
                     if (text == null || text.trim().isEmpty()) {
                         runOnUiThread(() -> Toast.makeText(DiagnoseActivity.this,
@@ -156,9 +406,8 @@ public class DiagnoseActivity extends AppCompatActivity {
                         return;
                     }
 
-                    // Find JSON block in text
-                    JSONObject outJson = extractJsonBlock(text);
-                    if (outJson == null) {
+                    Diagnosis diagnosis = result.diagnosis;
+                    if (diagnosis == null) {
                         final String preview = text.length() > 500 ? text.substring(0,500) + "..." : text;
                         Log.e(TAG, "No JSON found inside model output. Preview: " + preview);
                         runOnUiThread(() -> Toast.makeText(DiagnoseActivity.this,
@@ -166,7 +415,9 @@ public class DiagnoseActivity extends AppCompatActivity {
                         return;
                     }
 
-                    populateUi(outJson);
+                    cacheDiagnosis(diagnosis);
+                    remoteRendered = true;
+                    populateUi(diagnosis);
 
                 } catch (Exception e) {
                     Log.e(TAG, "Parse error", e);
@@ -175,8 +426,59 @@ public class DiagnoseActivity extends AppCompatActivity {
                 }
             }
         });
+        if (!started) Log.d(TAG, "Identical diagnosis already in flight; ignoring duplicate request");
+    }
+
+    /**
+     * A final non-2xx (ResilientCall hands over the last error once retries run out)
+     * as the failure showFallback reports.
+     */
+    private IOException errorFrom(Response response) throws IOException {
+        String raw;
+        try (ResponseBody body = response.body()) {
+            raw = body != null ? body.string() : "";
+        }
+        Log.d(TAG, "HTTP " + response.code() + " RAW: " + raw);
+        return new IOException("HTTP " + response.code() + ". " + extractServerMessage(raw));
     }
 
+    /**
+     * Retries are exhausted, the circuit is open or the API answered with an error: keep the
+     * offline triage result, or show generic local first-aid guidance if triage found nothing.
+     */
+    private void showFallback(IOException e) {
+        Log.w(TAG, "Diagnosis unavailable, showing local guidance", e);
+        runOnUiThread(() -> {
+            progressBar.setVisibility(View.GONE);
+            if (localResult != null) {
+                populateUi(localResult);
+                Toast.makeText(DiagnoseActivity.this,
+                        "Offline estimate shown. Network error: " + e.getMessage(), Toast.LENGTH_LONG).show();
+                return;
+            }
+            tvDiseaseName.setText("Diagnosis service unreachable");
+            tvCriticality.setText("unknown");
+            containerImmediate.removeAllViews();
+            for (String step : FALLBACK_IMMEDIATE) addBullet(containerImmediate, step);
+            containerWorsen.removeAllViews();
+            for (String step : FALLBACK_WORSEN) addBullet(containerWorsen, step);
+            Toast.makeText(DiagnoseActivity.this, "Network error: " + e.getMessage(), Toast.LENGTH_LONG).show();
+        });
+    }
+
+    private static final String[] FALLBACK_IMMEDIATE = {
+            "Keep the person calm, still and in a comfortable position",
+            "Check breathing and responsiveness; start CPR if there is no normal breathing",
+            "Control any bleeding with firm, direct pressure",
+            "Do not give food, drink or medicines unless advised by a professional"
+    };
+
+    private static final String[] FALLBACK_WORSEN = {
+            "Call local emergency services immediately",
+            "Place an unresponsive but breathing person in the recovery position",
+            "Note when symptoms started and any changes for the responders"
+    };
+
     // Try to extract a human-readable server message from error body
     private String extractServerMessage(String raw) {
         if (raw == null || raw.isEmpty()) return "empty response";
@@ -191,105 +493,28 @@ public class DiagnoseActivity extends AppCompatActivity {
         return raw.length() > 300 ? raw.substring(0,300) + "..." : raw;
     }
 
-    // Defensive extraction of textual content from Groq's response shape
-    private String extractTextFromGroqResponse(JSONObject root) {
-        try {
-            // 1) new responses API uses "output" array
-            if (root.has("output")) {
-                JSONArray outputs = root.getJSONArray("output");
-                if (outputs.length() > 0) {
-                    // search for content blocks inside outputs
-                    for (int i = 0; i < outputs.length(); i++) {
-                        JSONObject out = outputs.getJSONObject(i);
-                        if (out.has("content")) {
-                            JSONArray content = out.getJSONArray("content");
-                            for (int j = 0; j < content.length(); j++) {
-                                Object c = content.get(j);
-                                if (c instanceof JSONObject) {
-                                    JSONObject cobj = (JSONObject) c;
-                                    // common key is "text"
-                                    if (cobj.has("text")) return cobj.optString("text", null);
-                                    // sometimes content items have "type" and "text"
-                                    if (cobj.has("type") && cobj.has("text")) return cobj.optString("text", null);
-                                } else if (c instanceof String) {
-                                    return (String) c;
-                                }
-                            }
-                        }
-                        // sometimes the output item itself may contain "text"
-                        if (out.has("text")) return out.optString("text", null);
-                    }
-                }
-            }
-
-            // 2) fallback to "choices" like classic OpenAI responses
-            if (root.has("choices")) {
-                JSONArray choices = root.getJSONArray("choices");
-                if (choices.length() > 0) {
-                    JSONObject first = choices.getJSONObject(0);
-                    if (first.has("message")) {
-                        JSONObject message = first.getJSONObject("message");
-                        if (message.has("content")) {
-                            Object content = message.get("content");
-                            if (content instanceof String) return (String) content;
-                            if (content instanceof JSONObject) {
-                                JSONObject cobj = (JSONObject) content;
-                                if (cobj.has("text")) return cobj.optString("text", null);
-                            }
-                        }
-                    }
-                    if (first.has("text")) return first.optString("text", null);
-                }
-            }
-
-            // 3) fallback: entire raw string
-            return root.toString();
-
-        } catch (Exception e) {
-            Log.w(TAG, "extractTextFromGroqResponse warning", e);
-            return root.toString();
-        }
-    }
-
-    // Find first {...} JSON block in text
-    private JSONObject extractJsonBlock(String text) {
-        if (text == null) return null;
-        int start = text.indexOf("{");
-        int end = text.lastIndexOf("}");
-        if (start < 0 || end <= start) return null;
-        String candidate = text.substring(start, end + 1);
-        try {
-            return new JSONObject(candidate);
-        } catch (Exception e) {
-            Log.w(TAG, "JSON parse failed for candidate block", e);
-            return null;
-        }
-    }
-
-    private void populateUi(JSONObject o) {
+    private void populateUi(Diagnosis d) {
         runOnUiThread(() -> {
             try {
-                tvDiseaseName.setText(o.optString("disease", "—"));
-                tvCriticality.setText(o.optString("criticality", "—"));
+                tvDiseaseName.setText(d.disease);
+                tvCriticality.setText(d.criticality);
 
                 // Show possibility text in tvActions if present
-                String possibility = o.optString("possibility", null);
-                if (possibility != null && !possibility.isEmpty()) tvActions.setText(possibility);
+                if (d.possibility != null && !d.possibility.isEmpty()) tvActions.setText(d.possibility);
+                else tvActions.setText("—");
 
                 // immediate_actions
                 containerImmediate.removeAllViews();
-                JSONArray imm = o.optJSONArray("immediate_actions");
-                if (imm != null && imm.length() > 0) {
-                    for (int i = 0; i < imm.length(); i++) addBullet(containerImmediate, imm.optString(i, ""));
+                if (!d.immediateActions.isEmpty()) {
+                    for (String step : d.immediateActions) addBullet(containerImmediate, step);
                 } else {
                     addBullet(containerImmediate, "—");
                 }
 
                 // worsen_actions
                 containerWorsen.removeAllViews();
-                JSONArray wors = o.optJSONArray("worsen_actions");
-                if (wors != null && wors.length() > 0) {
-                    for (int i = 0; i < wors.length(); i++) addBullet(containerWorsen, wors.optString(i, ""));
+                if (!d.worsenActions.isEmpty()) {
+                    for (String step : d.worsenActions) addBullet(containerWorsen, step);
                 } else {
                     addBullet(containerWorsen, "—");
                 }
@@ -301,6 +526,13 @@ public class DiagnoseActivity extends AppCompatActivity {
         });
     }
 
+    @Override
+    protected void onDestroy() {
+        // the callbacks render into this Activity; don't leave them running against a dead screen
+        InFlightCalls.cancelAll(this);
+        super.onDestroy();
+    }
+
     private void addBullet(LinearLayout parent, String text) {
         TextView tv = new TextView(this);
         tv.setText("• " + text);
@@ -1,6 +1,11 @@
 package com.example.smartfirstaid;
 
 import android.os.Bundle;
+import android.os.SystemClock;
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.util.Log;
+import android.view.View;
 
 import androidx.activity.EdgeToEdge;
 import androidx.appcompat.app.AppCompatActivity;
@@ -8,16 +13,38 @@ import androidx.core.graphics.Insets;
 import androidx.core.view.ViewCompat;
 import androidx.core.view.WindowInsetsCompat;
 import android.content.SharedPreferences;
+import android.widget.EditText;
 import android.widget.TextView;
-import android.widget.LinearLayout;
 import android.widget.Button;
 import android.content.Intent;
 
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.smartfirstaid.catalog.CatalogIndex;
+import com.example.smartfirstaid.catalog.EmergencyCatalogAdapter;
+import com.example.smartfirstaid.data.model.Procedure;
+import com.example.smartfirstaid.data.repository.ProcedureRepository;
+import com.example.smartfirstaid.util.TaskRunner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 public class EmergencyActivity extends AppCompatActivity {
+    private static final String TAG = "EmergencyCatalog";
+
+    private static final CatalogIndex.Fields<Procedure> FIELDS = new CatalogIndex.Fields<Procedure>() {
+        @Override public String title(Procedure p) { return p.title; }
+        @Override public List<String> keywords(Procedure p) { return p.keywords; }
+    };
 
     private static final String usr_SHARED_PREFS = "SmartFirstAidPrefs";
     private TextView user_details;
-    private LinearLayout snakebtn, burnbtn;
+    private EditText searchbox;
+    private TextView noMatches;
+    private EmergencyCatalogAdapter adapter;
+    private CatalogIndex<Procedure> index;
+    private TaskRunner.Task loadTask;
     private Button ShareLocationbtn;
     private static final String KEY_NAME = "user_name";
     private static final String KEY_AGE = "age";
@@ -36,21 +63,67 @@ public class EmergencyActivity extends AppCompatActivity {
         String userinfo = name + "\n" + "Age: " + age + "\n" + "Phone: +91" + phone_number;
         user_details.setText(userinfo);
 
-        snakebtn = (LinearLayout) findViewById(R.id.btnSnakeBite);
-        burnbtn = (LinearLayout) findViewById(R.id.btnBurns);
+        adapter = new EmergencyCatalogAdapter(this, p -> openDetail(p.key, p.title));
+        RecyclerView list = findViewById(R.id.rvEmergencies);
+        list.setHasFixedSize(true);
+        list.setAdapter(adapter);
+        noMatches = findViewById(R.id.tvNoMatches);
 
-        snakebtn.setOnClickListener(v->{
-            openDetail("snake_bite", "Snake Bite");
-        });
-        burnbtn.setOnClickListener(v->{
-            openDetail("burns", "Burns");
+        searchbox = findViewById(R.id.etSearch);
+        searchbox.addTextChangedListener(new TextWatcher() {
+            @Override public void beforeTextChanged(CharSequence s, int start, int count, int after) { }
+            @Override public void onTextChanged(CharSequence s, int start, int before, int count) { }
+            @Override public void afterTextChanged(Editable s) { filter(); }
         });
+
+        reloadCatalog();
+        // refresh the offline procedure store while the user picks an emergency;
+        // the list is rebuilt only if the sync changed something
+        ProcedureRepository.get(this).syncInBackground(this::reloadCatalog);
+
         ShareLocationbtn = (Button) findViewById(R.id.btnShareLocation);
         ShareLocationbtn.setOnClickListener(v -> {
             Intent intent = new Intent(EmergencyActivity.this, ShareLocationActivity.class);
             startActivity(intent);
         });
     }
+
+    /** Read the cached catalog and build its search index off the main thread. */
+    private void reloadCatalog() {
+        if (loadTask != null) loadTask.cancel();
+        final ProcedureRepository repo = ProcedureRepository.get(this);
+        loadTask = TaskRunner.io(this, () -> {
+            // warm-up may not have run yet on a cold start straight to this screen
+            repo.loadAllLocal();
+            List<Procedure> all = new ArrayList<>(repo.allLocal());
+            Collections.sort(all, (a, b) -> a.title.compareToIgnoreCase(b.title));
+            return CatalogIndex.build(all, FIELDS);
+        }, new TaskRunner.Callback<CatalogIndex<Procedure>>() {
+            @Override
+            public void onSuccess(CatalogIndex<Procedure> result) {
+                index = result;
+                filter();
+            }
+
+            @Override
+            public void onError(Exception e) {
+                Log.w(TAG, "Could not load the procedure catalog", e);
+            }
+        });
+    }
+
+    private void filter() {
+        if (index == null) return;
+        long start = SystemClock.elapsedRealtimeNanos();
+        List<Procedure> shown = index.search(searchbox.getText().toString());
+        if (BuildConfig.DEBUG) {
+            Log.d(TAG, "filtered " + index.size() + " to " + shown.size() + " in "
+                    + (SystemClock.elapsedRealtimeNanos() - start) / 1000 + " us");
+        }
+        adapter.submitList(shown);
+        noMatches.setVisibility(shown.isEmpty() && index.size() > 0 ? View.VISIBLE : View.GONE);
+    }
+
     private void openDetail(String key, String title){
         Intent i = new Intent(this,EmergencyDetailActivity.class);
         i.putExtra("key", key);
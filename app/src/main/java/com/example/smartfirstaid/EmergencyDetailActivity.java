@@ -1,57 +1,57 @@
 package com.example.smartfirstaid;
 
-import android.os.AsyncTask;
 import android.os.Bundle;
-import android.speech.tts.TextToSpeech;
-import android.speech.tts.UtteranceProgressListener;
+import android.os.SystemClock;
 import android.view.View;
-import android.view.ViewGroup;
 import android.widget.Button;
-import android.widget.ImageView;
 import android.widget.ProgressBar;
 import android.widget.TextView;
 import android.widget.Toast;
 
-import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
-import androidx.recyclerview.widget.RecyclerView;
 import androidx.viewpager2.widget.ViewPager2;
 
-import com.bumptech.glide.Glide;
-import com.bumptech.glide.request.RequestOptions;
-import com.example.smartfirstaid.data.db.MongoHelper;
-import com.mongodb.client.MongoCollection;
-
-import org.bson.Document;
+import com.example.smartfirstaid.data.model.Procedure;
+import com.example.smartfirstaid.data.repository.ProcedureRepository;
+import com.example.smartfirstaid.images.EmergencyImageCache;
+import com.example.smartfirstaid.images.LoopingImagePagerAdapter;
+import com.example.smartfirstaid.util.FrameTimeMonitor;
+import com.example.smartfirstaid.util.StartupMetrics;
+import com.example.smartfirstaid.util.TaskRunner;
+import com.example.smartfirstaid.voice.TtsEngine;
+import com.example.smartfirstaid.voice.VoiceCache;
+import com.example.smartfirstaid.voice.VoicePlayer;
+import com.example.smartfirstaid.voice.VoiceSynthesizer;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Locale;
 
 public class EmergencyDetailActivity extends AppCompatActivity {
 
     private String key;
     private String title;
+    private long openedAtMs;
 
     private TextView tvTitle, tvDo, tvDont;
     private ProgressBar progress;
-    private Button btnVoice;
+    private Button btnVoice, btnRepeat;
 
     private List<String> doList = new ArrayList<>();
     private List<String> dontList = new ArrayList<>();
-    private List<String> voiceScript = new ArrayList<>();
     private List<String> imageUrls = new ArrayList<>();
 
-    private TextToSpeech tts;
-    private boolean ttsReady = false;
+    private TtsEngine.Handle tts;
     private boolean dataLoaded = false;
+    private List<String> voiceLines = new ArrayList<>();
+    private VoicePlayer voicePlayer;
 
     private ViewPager2 vpImages;
-    private ImagePagerAdapter imageAdapter;
+    private LoopingImagePagerAdapter imageAdapter;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        openedAtMs = SystemClock.elapsedRealtime();
         setContentView(R.layout.activity_emergency_detail);
 
         // extras
@@ -64,118 +64,144 @@ public class EmergencyDetailActivity extends AppCompatActivity {
         tvDont  = findViewById(R.id.tvDontList);
         progress= findViewById(R.id.progress);
         btnVoice= findViewById(R.id.btnVoiceGuide);
+        btnRepeat= findViewById(R.id.btnRepeatStep);
         vpImages= findViewById(R.id.vpImages);
 
         tvTitle.setText(title != null ? title : "Emergency");
 
         // set up viewpager and adapter
-        imageAdapter = new ImagePagerAdapter(new ArrayList<>());
-        vpImages.setAdapter(imageAdapter);
-        vpImages.setOffscreenPageLimit(1);
+        imageAdapter = new LoopingImagePagerAdapter(EmergencyImageCache.get(this));
+        imageAdapter.attach(vpImages, new FrameTimeMonitor("carousel swipe",
+                getWindowManager().getDefaultDisplay().getRefreshRate()));
 
         btnVoice.setEnabled(false);
 
-        // init TTS
-        tts = new TextToSpeech(this, status -> {
-            if (status == TextToSpeech.SUCCESS) {
-                int res = tts.setLanguage(Locale.US);
-                tts.setSpeechRate(0.95f);
-                if (res == TextToSpeech.LANG_MISSING_DATA || res == TextToSpeech.LANG_NOT_SUPPORTED) {
-                    tts.setLanguage(Locale.getDefault());
-                }
-                ttsReady = true;
-                setupUtteranceListener();
-                updateButtonState();
-            } else {
+        // voice guidance plays pre-synthesized lines; this engine only covers lines not rendered yet
+        voicePlayer = new VoicePlayer(VoiceCache.get(this), new VoicePlayer.LiveSpeaker() {
+            @Override
+            public boolean speak(String text, String utteranceId) {
+                if (!tts.isReady()) return false;
+                tts.speak(text, utteranceId, true);
+                return true;
+            }
+
+            @Override
+            public void stop() {
+                tts.stop();
+            }
+        }, new VoicePlayer.Listener() {
+            @Override
+            public void onStepStarted(int step, int total) {
+                btnVoice.setText("Pause (step " + (step + 1) + " of " + total + ")");
+                btnRepeat.setVisibility(View.VISIBLE);
+            }
+
+            @Override
+            public void onFinished() {
+                resetVoiceButtons();
                 Toast.makeText(EmergencyDetailActivity.this,
-                        "TTS initialization failed", Toast.LENGTH_SHORT).show();
+                        "Voice guidance finished", Toast.LENGTH_SHORT).show();
             }
         });
 
-        btnVoice.setOnClickListener(v -> speakDoList());
-
-        // fetch data
-        new LoadProcedureTask().execute(key);
-    }
+        // shared engine: usually already bound by warm-up or a previous screen; released on destroy
+        tts = TtsEngine.get(this).acquire(this, new TtsEngine.Callback() {
+            @Override public void onReady() {
+                voicePlayer.onEngineReady();
+            }
 
-    /** AsyncTask to load one procedure document by key */
-    private class LoadProcedureTask extends AsyncTask<String, Void, Document> {
-        private String error;
+            @Override public void onUnavailable() {
+                Toast.makeText(EmergencyDetailActivity.this,
+                        "TTS initialization failed", Toast.LENGTH_SHORT).show();
+            }
 
-        @Override
-        protected void onPreExecute() {
-            progress.setVisibility(View.VISIBLE);
-            btnVoice.setEnabled(false);
-        }
+            @Override public void onDone(String utteranceId) {
+                voicePlayer.onLiveDone(utteranceId);
+            }
 
-        @Override
-        protected Document doInBackground(String... keys) {
-            try {
-                MongoCollection<Document> col = MongoHelper.procedures();
-                return col.find(new Document("key", keys[0]))
-                        .projection(new Document("_id", 0))
-                        .first();
-            } catch (Exception e) {
-                error = e.getMessage();
-                return null;
+            @Override public void onError(String utteranceId) {
+                Toast.makeText(EmergencyDetailActivity.this,
+                        "Error while speaking", Toast.LENGTH_SHORT).show();
+                voicePlayer.onLiveDone(utteranceId);
             }
+        });
+
+        btnVoice.setOnClickListener(v -> onVoiceClicked());
+        btnRepeat.setOnClickListener(v -> voicePlayer.repeat());
+
+        // fetch data: memory hit renders immediately, otherwise SQLite / Mongo off the main thread
+        Procedure cached = ProcedureRepository.get(this).peek(key);
+        if (cached != null) {
+            showProcedure(cached);
+            StartupMetrics.instructionShown(key, openedAtMs, "memory");
+        } else {
+            loadProcedure(key);
         }
+    }
 
-        @Override
-        protected void onPostExecute(Document d) {
-            progress.setVisibility(View.GONE);
+    /** Load one procedure by key off the main thread (local store first, Mongo only on a miss) */
+    private void loadProcedure(String key) {
+        progress.setVisibility(View.VISIBLE);
+        btnVoice.setEnabled(false);
 
-            if (d == null) {
-                Toast.makeText(EmergencyDetailActivity.this,
-                        "Failed to load instructions: " + (error == null ? "Unknown error" : error),
-                        Toast.LENGTH_LONG).show();
-                // hide carousel if nothing
-                vpImages.setVisibility(View.GONE);
-                return;
+        final ProcedureRepository repo = ProcedureRepository.get(this);
+        TaskRunner.io(this, () -> repo.load(key), new TaskRunner.Callback<Procedure>() {
+            @Override
+            public void onSuccess(Procedure p) {
+                progress.setVisibility(View.GONE);
+                if (p == null) {
+                    showLoadError("Unknown error");
+                    return;
+                }
+                showProcedure(p);
+                StartupMetrics.instructionShown(key, openedAtMs, "store");
             }
 
-            // lists
-            doList       = castStringList(d.get("do"));
-            dontList     = castStringList(d.get("dont"));
-            voiceScript  = castStringList(d.get("voiceScript"));
-            imageUrls    = castStringList(d.get("images")); // <--- images array from Mongo
-
-            tvDo.setText(toBullets(doList));
-            tvDont.setText(toBullets(dontList));
-
-            // update images
-            if (imageUrls != null && !imageUrls.isEmpty()) {
-                imageAdapter.setItems(imageUrls);
-
-                if (imageUrls.size() > 1) {
-                    // center the adapter position so user can scroll left and right
-                    int middle = Integer.MAX_VALUE / 2;
-                    int startPos = middle - (middle % imageUrls.size());
-                    vpImages.setCurrentItem(startPos, false);
-                } else {
-                    // single image -> set to first and disable infinite trick
-                    vpImages.setCurrentItem(0, false);
-                }
-                vpImages.setVisibility(View.VISIBLE);
-            } else {
-                vpImages.setVisibility(View.GONE);
+            @Override
+            public void onError(Exception e) {
+                progress.setVisibility(View.GONE);
+                showLoadError(e.getMessage());
             }
+        });
+    }
 
-            dataLoaded = true;
-            updateButtonState();
-        }
+    private void showLoadError(String error) {
+        Toast.makeText(EmergencyDetailActivity.this,
+                "Failed to load instructions: " + (error == null ? "Unknown error" : error),
+                Toast.LENGTH_LONG).show();
+        // hide carousel if nothing
+        vpImages.setVisibility(View.GONE);
     }
 
-    /** Defensive cast helper */
-    @SuppressWarnings("unchecked")
-    private List<String> castStringList(Object o) {
-        if (o instanceof List<?>) {
-            List<?> raw = (List<?>) o;
-            List<String> out = new ArrayList<>();
-            for (Object item : raw) if (item != null) out.add(item.toString());
-            return out;
+    private void showProcedure(Procedure p) {
+        // lists
+        doList       = new ArrayList<>(p.doList);
+        dontList     = new ArrayList<>(p.dontList);
+        imageUrls    = new ArrayList<>(p.images); // <--- images array from Mongo
+
+        tvDo.setText(toBullets(doList));
+        tvDont.setText(toBullets(dontList));
+
+        // update images
+        if (!imageUrls.isEmpty()) {
+            EmergencyImageCache images = EmergencyImageCache.get(this);
+            // decode every page into the memory cache now, and store missing ones for next time
+            for (String url : imageUrls) {
+                LoopingImagePagerAdapter.request(this, images, url).preload(images.width(), images.height());
+            }
+            images.prefetchAsync(imageUrls);
+            vpImages.setCurrentItem(imageAdapter.setItems(imageUrls), false);
+            vpImages.setVisibility(View.VISIBLE);
+        } else {
+            vpImages.setVisibility(View.GONE);
         }
-        return new ArrayList<>();
+
+        // render this procedure's lines first so the next tap plays from files
+        voiceLines = VoiceCache.linesFor(p);
+        VoiceSynthesizer.get(this).enqueue(voiceLines, true);
+
+        dataLoaded = true;
+        updateButtonState();
     }
 
     /** Render bullet list */
@@ -186,122 +212,39 @@ public class EmergencyDetailActivity extends AppCompatActivity {
         return sb.toString().trim();
     }
 
+    /** Only the procedure is needed: cached lines play without the engine, the rest wait for it. */
     private void updateButtonState() {
-        boolean hasDo = doList != null && !doList.isEmpty();
-        runOnUiThread(() -> btnVoice.setEnabled(ttsReady && dataLoaded && hasDo));
+        runOnUiThread(() -> btnVoice.setEnabled(dataLoaded && !voiceLines.isEmpty()));
     }
 
-    private void setupUtteranceListener() {
-        if (tts == null) return;
-        tts.setOnUtteranceProgressListener(new UtteranceProgressListener() {
-            @Override public void onStart(String utteranceId) { }
-            @Override public void onDone(String utteranceId) {
-                runOnUiThread(() -> Toast.makeText(EmergencyDetailActivity.this,
-                        "Voice guidance finished", Toast.LENGTH_SHORT).show());
+    /** Start, pause or resume step-by-step guidance. */
+    private void onVoiceClicked() {
+        if (!voicePlayer.isActive()) {
+            if (voiceLines.isEmpty()) {
+                Toast.makeText(this, "Nothing to speak", Toast.LENGTH_SHORT).show();
+                return;
             }
-            @Override public void onError(String utteranceId) {
-                runOnUiThread(() -> Toast.makeText(EmergencyDetailActivity.this,
-                        "Error while speaking", Toast.LENGTH_SHORT).show());
+            if (!tts.isReady() && VoiceCache.get(this).localFile(voiceLines.get(0)) == null) {
+                Toast.makeText(this, "Preparing voice…", Toast.LENGTH_SHORT).show();
             }
-        });
-    }
-
-    private void speakDoList() {
-        if (!ttsReady) {
-            Toast.makeText(this, "Voice not ready", Toast.LENGTH_SHORT).show();
-            return;
+            voicePlayer.start(voiceLines);
+        } else if (voicePlayer.isPaused()) {
+            voicePlayer.resume();
+            btnVoice.setText("Pause");
+        } else {
+            voicePlayer.pause();
+            btnVoice.setText("Resume");
         }
+    }
 
-        List<String> toSpeakList = (doList != null && !doList.isEmpty()) ? doList : voiceScript;
-        if (toSpeakList == null || toSpeakList.isEmpty()) {
-            Toast.makeText(this, "Nothing to speak", Toast.LENGTH_SHORT).show();
-            return;
-        }
-
-        final String UTTERANCE_BASE = "SFA_UTTER_";
-        tts.stop();
-
-        int i = 0;
-        for (String line : toSpeakList) {
-            if (line == null) continue;
-            String sanitized = line.trim();
-            if (sanitized.isEmpty()) continue;
-            if (!sanitized.endsWith(".") && !sanitized.endsWith("!") && !sanitized.endsWith("?")) {
-                sanitized = sanitized + ".";
-            }
-            String utteranceId = UTTERANCE_BASE + (++i);
-            tts.speak(sanitized, TextToSpeech.QUEUE_ADD, null, utteranceId);
-        }
+    private void resetVoiceButtons() {
+        btnVoice.setText("Start Voice Guidance");
+        btnRepeat.setVisibility(View.GONE);
     }
 
     @Override
     protected void onDestroy() {
-        if (tts != null) {
-            tts.stop();
-            tts.shutdown();
-            tts = null;
-        }
+        voicePlayer.stop();
         super.onDestroy();
     }
-
-    // ----------------------------
-    // Adapter for ViewPager2 (infinite loop trick)
-    // ----------------------------
-    private static class ImagePagerAdapter extends RecyclerView.Adapter<ImagePagerAdapter.VH> {
-
-        private final List<String> items;
-        private static final int INFINITE = Integer.MAX_VALUE;
-
-        ImagePagerAdapter(List<String> urls) {
-            this.items = new ArrayList<>(urls);
-        }
-
-        void setItems(List<String> urls) {
-            items.clear();
-            if (urls != null) items.addAll(urls);
-            notifyDataSetChanged();
-        }
-
-        @NonNull
-        @Override
-        public VH onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
-            ImageView iv = new ImageView(parent.getContext());
-            RecyclerView.LayoutParams lp = new RecyclerView.LayoutParams(
-                    ViewGroup.LayoutParams.MATCH_PARENT,
-                    ViewGroup.LayoutParams.MATCH_PARENT
-            );
-            iv.setLayoutParams(lp);
-            iv.setScaleType(ImageView.ScaleType.CENTER_CROP);
-            int pad = (int) (parent.getContext().getResources().getDisplayMetrics().density * 6);
-            iv.setPadding(pad, pad, pad, pad);
-            return new VH(iv);
-        }
-
-        @Override
-        public void onBindViewHolder(@NonNull VH holder, int position) {
-            if (items.isEmpty()) return;
-            int realPos = (items.size() == 0) ? 0 : (position % items.size());
-            String url = items.get(realPos);
-
-            // load with Glide
-            Glide.with(holder.imageView.getContext())
-                    .load(url)
-                    .apply(new RequestOptions().centerCrop())
-                    .into(holder.imageView);
-        }
-
-        @Override
-        public int getItemCount() {
-            if (items.size() <= 1) return items.size();
-            return INFINITE;
-        }
-
-        static class VH extends RecyclerView.ViewHolder {
-            final ImageView imageView;
-            VH(@NonNull View itemView) {
-                super(itemView);
-                imageView = (ImageView) itemView;
-            }
-        }
-    }
-}
\ No newline at end of file
+}
@@ -1,8 +1,8 @@
 package com.example.smartfirstaid;
 
+import android.content.Context;
 import android.content.Intent;
 import android.content.SharedPreferences;
-import android.os.AsyncTask;
 import android.os.Bundle;
 import android.view.Gravity;
 import android.widget.Button;
@@ -15,12 +15,24 @@ import androidx.activity.EdgeToEdge;
 import androidx.appcompat.app.AppCompatActivity;
 
 import com.example.smartfirstaid.data.db.MongoHelper;       // <-- make sure package matches your helper
-import com.example.smartfirstaid.util.PasswordUtils;        // <-- PBKDF2 utils
+import com.example.smartfirstaid.data.db.MongoSchema;
+import com.example.smartfirstaid.data.repository.CredentialCache;
+import com.example.smartfirstaid.data.repository.WriteJournal;
+import com.example.smartfirstaid.util.PasswordHasher;       // <-- PBKDF2 hashing service
+import com.example.smartfirstaid.util.PasswordUtils;
+import com.example.smartfirstaid.util.TaskRunner;
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoSocketException;
+import com.mongodb.MongoTimeoutException;
+import com.mongodb.MongoWriteException;
 import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.result.UpdateResult;
 
 import org.bson.Document;
 
 import java.util.Date;
+import java.util.UUID;
 
 public class RegisterActivity extends AppCompatActivity {
 
@@ -94,69 +106,88 @@ public class RegisterActivity extends AppCompatActivity {
         }
 
         // All good → proceed to DB insert off main thread
-        new RegisterTask(fn, ln, ageVal, genderStr, phone, pwd).execute();
+        register.setEnabled(false);
+        final PasswordHasher hasher = PasswordHasher.get(this);
+        final Context app = getApplicationContext();
+        TaskRunner.io(this, () -> registerUser(app, hasher, fn, ln, ageVal, genderStr, phone, pwd),
+                new TaskRunner.Callback<String>() {
+                    @Override
+                    public void onSuccess(String res) {
+                        register.setEnabled(true);
+                        onRegisterResult(res, fn, ln, ageVal, phone);
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        register.setEnabled(true);
+                        onRegisterResult("Error: " + e.getMessage(), fn, ln, ageVal, phone);
+                    }
+                });
     }
 
-    private class RegisterTask extends AsyncTask<Void, Void, String> {
-        final String fn, ln, genderStr, phone, pwd;
-        final int ageVal;
-
-        RegisterTask(String fn, String ln, int ageVal, String genderStr, String phone, String pwd) {
-            this.fn = fn; this.ln = ln; this.ageVal = ageVal;
-            this.genderStr = genderStr; this.phone = phone; this.pwd = pwd;
-        }
-
-        @Override
-        protected String doInBackground(Void... voids) {
-            try {
-                MongoCollection<Document> col = MongoHelper.userDetails(); // <-- your helper method
-
-                // unique by phone check
-                Document existing = col.find(new Document("phone", phone))
-                        .projection(new Document("_id", 1))
-                        .first();
-                if (existing != null) return "User already exists with this phone number";
-
-                // hash password
-                byte[] salt = PasswordUtils.generateSalt(16);
-                byte[] hash = PasswordUtils.pbkdf2(pwd.toCharArray(), salt, 150_000, 32);
-
-                Document userDoc = new Document("firstName", fn)
-                        .append("lastName", ln)
-                        .append("age", ageVal)
-                        .append("gender", genderStr)
-                        .append("phone", phone)
-                        .append("passwordHash", PasswordUtils.toBase64(hash))
-                        .append("passwordSalt", PasswordUtils.toBase64(salt))
-                        .append("createdAt", new Date())
-                        .append("status", "active");
-
-                col.insertOne(userDoc);
-                return "OK";
-            } catch (Exception e) {
-                return "Error: " + e.getMessage();
+    /**
+     * Runs on an I/O thread; the PBKDF2 step is handed to the CPU pool.
+     * The phone check and insert are one atomic upsert. If the server cannot be reached the
+     * same upsert is journaled and the account is usable locally until it is confirmed.
+     */
+    private static String registerUser(Context app, PasswordHasher hasher, String fn, String ln, int ageVal,
+                                       String genderStr, String phone, String pwd) throws Exception {
+        // hash password
+        PasswordHasher.Hashed hashed = hasher.hash(pwd);
+
+        String opKey = "register:" + UUID.randomUUID();
+        Document userDoc = new Document("firstName", fn)
+                .append("lastName", ln)
+                .append("age", ageVal)
+                .append("gender", genderStr)
+                .append("phone", phone)
+                .append("passwordHash", PasswordUtils.toBase64(hashed.hash))
+                .append("passwordSalt", PasswordUtils.toBase64(hashed.salt))
+                .append("passwordAlgo", hashed.algorithm)
+                .append("passwordIterations", hashed.iterations)
+                .append("createdAt", new Date())
+                .append("status", "active")
+                .append(WriteJournal.OP_ID_FIELD, opKey);
+        Document filter = MongoSchema.userByPhone(phone);
+        Document update = new Document("$setOnInsert", userDoc);
+
+        MongoCollection<Document> col = MongoHelper.userDetails(); // <-- your helper method
+        try {
+            // unique by phone: only inserts when no document matches
+            UpdateResult r = col.updateOne(filter, update, new UpdateOptions().upsert(true));
+            if (r.getUpsertedId() == null) return "User already exists with this phone number";
+        } catch (MongoWriteException e) {
+            // concurrent registration lost the race on the unique phone index
+            if (e.getError().getCategory() == ErrorCategory.DUPLICATE_KEY) {
+                return "User already exists with this phone number";
             }
+            throw e;
+        } catch (MongoSocketException | MongoTimeoutException e) {
+            WriteJournal.get(app).append(MongoHelper.USER_DETAILS, opKey, WriteJournal.UPSERT, filter, update);
         }
 
-        @Override
-        protected void onPostExecute(String res) {
-            if ("OK".equals(res)) {
-                // Save shared prefs and move to Home
-                String username = fn + " " + ln;
-                SharedPreferences prefs = getSharedPreferences(usr_SHARED_PREFS, MODE_PRIVATE);
-                prefs.edit()
-                        .putBoolean("isLoggedIn", true)
-                        .putString(KEY_NAME, username)
-                        .putInt(KEY_AGE, ageVal)
-                        .putString(KEY_PHONE_NUMBER, phone)
-                        .apply();
-
-                toastBottom("Registration successful");
-                startActivity(new Intent(RegisterActivity.this, HomeActivity.class));
-                finish();
-            } else {
-                toastBottom(res);
-            }
+        // first sign-in on this device can then be verified locally
+        CredentialCache.get(app).save(phone, new CredentialCache.Entry(hashed, fn + " " + ln, ageVal));
+        return "OK";
+    }
+
+    private void onRegisterResult(String res, String fn, String ln, int ageVal, String phone) {
+        if ("OK".equals(res)) {
+            // Save shared prefs and move to Home
+            String username = fn + " " + ln;
+            SharedPreferences prefs = getSharedPreferences(usr_SHARED_PREFS, MODE_PRIVATE);
+            prefs.edit()
+                    .putBoolean("isLoggedIn", true)
+                    .putString(KEY_NAME, username)
+                    .putInt(KEY_AGE, ageVal)
+                    .putString(KEY_PHONE_NUMBER, phone)
+                    .apply();
+
+            toastBottom("Registration successful");
+            startActivity(new Intent(RegisterActivity.this, HomeActivity.class));
+            finish();
+        } else {
+            toastBottom(res);
         }
     }
 
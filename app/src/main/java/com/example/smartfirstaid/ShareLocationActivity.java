@@ -2,10 +2,10 @@ package com.example.smartfirstaid;
 
 import android.Manifest;
 import android.annotation.SuppressLint;
+import android.content.SharedPreferences;
 import android.content.pm.PackageManager;
-import android.location.Address;
-import android.location.Geocoder;
 import android.location.Location;
+import android.os.Build;
 import android.os.Bundle;
 import android.widget.TextView;
 import android.widget.Toast;
@@ -14,22 +14,37 @@ import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.app.ActivityCompat;
 
+import com.example.smartfirstaid.location.GeocodeCache;
+import com.example.smartfirstaid.location.LocationFixer;
+import com.example.smartfirstaid.location.TrackingService;
+import com.example.smartfirstaid.share.EmergencyPayload;
+import com.example.smartfirstaid.share.EmergencySender;
+import com.example.smartfirstaid.util.TaskRunner;
 import com.google.android.material.button.MaterialButton;
-import com.google.android.gms.location.FusedLocationProviderClient;
-import com.google.android.gms.location.LocationServices;
-import com.google.android.gms.tasks.OnSuccessListener;
-
-import java.io.IOException;
-import java.util.List;
-import java.util.Locale;
 
 public class ShareLocationActivity extends AppCompatActivity {
 
     private static final int LOCATION_PERMISSION_REQUEST = 100;
+    private static final int TRACKING_PERMISSION_REQUEST = 101;
+    private static final int NOTIFICATION_PERMISSION_REQUEST = 102;
+    // refinements closer than this to the geocoded point keep the address already shown;
+    // also how close a cached address must be to be shown as exact
+    private static final float REGEOCODE_DISTANCE_M = 30f;
+
+    // profile written at sign-in, same keys as EmergencyActivity
+    private static final String usr_SHARED_PREFS = "SmartFirstAidPrefs";
+    private static final String KEY_NAME = "user_name";
+    private static final String KEY_AGE = "age";
+    private static final String KEY_PHONE_NUMBER = "phone_number";
 
-    private FusedLocationProviderClient fusedLocationClient;
-    private TextView tvLatitude, tvLongitude, tvAddress;
-    private MaterialButton btnGetLocation;
+    private LocationFixer fixer;
+    private TextView tvLatitude, tvLongitude, tvAccuracy, tvAddress;
+    private MaterialButton btnGetLocation, btnSendSos, btnTrack;
+
+    private GeocodeCache geocodes;
+    private Location shown;
+    private Location geocodedAt;
+    private TaskRunner.Task geocodeTask;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -38,12 +53,44 @@ public class ShareLocationActivity extends AppCompatActivity {
 
         tvLatitude = findViewById(R.id.tvLatitude);
         tvLongitude = findViewById(R.id.tvLongitude);
+        tvAccuracy = findViewById(R.id.tvAccuracy);
         tvAddress = findViewById(R.id.tvAddress);
         btnGetLocation = findViewById(R.id.btnGetLocation);
+        btnSendSos = findViewById(R.id.btnSendSos);
+        btnTrack = findViewById(R.id.btnTrack);
+
+        geocodes = GeocodeCache.get(this);
 
-        fusedLocationClient = LocationServices.getFusedLocationProviderClient(this);
+        fixer = new LocationFixer(this, new LocationFixer.Listener() {
+            @Override
+            public void onFix(Location location, String source) {
+                showFix(location);
+            }
+
+            @Override
+            public void onFinished(boolean gotFix) {
+                btnGetLocation.setEnabled(true);
+                if (!gotFix) {
+                    tvAccuracy.setText("Accuracy: -");
+                    Toast.makeText(ShareLocationActivity.this,
+                            "Unable to retrieve location. Please turn on GPS.",
+                            Toast.LENGTH_LONG).show();
+                } else {
+                    showAccuracy(shown, false);
+                }
+            }
+        });
 
         btnGetLocation.setOnClickListener(v -> checkLocationPermissionAndFetch());
+        btnSendSos.setOnClickListener(v -> sendSos());
+        btnTrack.setOnClickListener(v -> toggleTracking());
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        // the service can be stopped from its notification while we are away
+        showTracking(TrackingService.isRunning());
     }
 
     private void checkLocationPermissionAndFetch() {
@@ -58,43 +105,144 @@ public class ShareLocationActivity extends AppCompatActivity {
         }
     }
 
+    /** Cached fix first, then fresher and more accurate ones as they arrive; see {@link LocationFixer}. */
     @SuppressLint("MissingPermission")
     private void getCurrentLocation() {
-        fusedLocationClient.getLastLocation()
-                .addOnSuccessListener(this, new OnSuccessListener<Location>() {
+        btnGetLocation.setEnabled(false);
+        tvAccuracy.setText("Accuracy: locating…");
+        fixer.start();
+    }
+
+    private void showFix(Location location) {
+        shown = location;
+        btnSendSos.setEnabled(true);
+        tvLatitude.setText("Latitude: " + location.getLatitude());
+        tvLongitude.setText("Longitude: " + location.getLongitude());
+        showAccuracy(location, true);
+
+        if (geocodedAt == null || geocodedAt.distanceTo(location) > REGEOCODE_DISTANCE_M) {
+            geocode(location);
+        }
+    }
+
+    private void showAccuracy(Location location, boolean refining) {
+        String acc = location.hasAccuracy()
+                ? "±" + Math.round(location.getAccuracy()) + " m" : "unknown";
+        tvAccuracy.setText("Accuracy: " + acc + (refining ? " (refining…)" : ""));
+    }
+
+    /**
+     * Cached address first (memory, then the on-disk spatial cache), then the Geocoder
+     * when the cached one is missing, approximate or old. Offline, the cached one stays.
+     */
+    private void geocode(Location location) {
+        if (geocodeTask != null) geocodeTask.cancel();
+        geocodedAt = location;
+        final double lat = location.getLatitude();
+        final double lon = location.getLongitude();
+        GeocodeCache.Hit remembered = geocodes.peek(lat, lon);
+        if (remembered != null) showAddress(remembered, false);
+        geocodeTask = TaskRunner.io(this, () -> geocodes.nearest(lat, lon, GeocodeCache.DEFAULT_RADIUS_M),
+                new TaskRunner.Callback<GeocodeCache.Hit>() {
+                    @Override
+                    public void onSuccess(GeocodeCache.Hit hit) {
+                        if (hit != null) showAddress(hit, false);
+                        if (hit == null || !hit.isExact(REGEOCODE_DISTANCE_M)) fetchAddress(lat, lon, hit);
+                    }
+
                     @Override
-                    public void onSuccess(Location location) {
-                        if (location != null) {
-                            double lat = location.getLatitude();
-                            double lon = location.getLongitude();
-
-                            tvLatitude.setText("Latitude: " + lat);
-                            tvLongitude.setText("Longitude: " + lon);
-
-                            // Convert lat/lon to address
-                            Geocoder geocoder = new Geocoder(ShareLocationActivity.this, Locale.getDefault());
-                            try {
-                                List<Address> addresses = geocoder.getFromLocation(lat, lon, 1);
-                                if (addresses != null && !addresses.isEmpty()) {
-                                    Address addr = addresses.get(0);
-                                    String fullAddress = addr.getAddressLine(0);
-                                    tvAddress.setText("Address: " + fullAddress);
-                                } else {
-                                    tvAddress.setText("Address: Not found");
-                                }
-                            } catch (IOException e) {
-                                e.printStackTrace();
-                                tvAddress.setText("Address: Unable to fetch");
-                            }
-                        } else {
-                            Toast.makeText(ShareLocationActivity.this,
-                                    "Unable to retrieve location. Please turn on GPS.",
-                                    Toast.LENGTH_LONG).show();
-                        }
+                    public void onError(Exception e) {
+                        fetchAddress(lat, lon, null);
                     }
                 });
     }
 
+    /** Geocoder lookups can hit the network: io() only; results for superseded fixes are dropped. */
+    private void fetchAddress(double lat, double lon, GeocodeCache.Hit cached) {
+        geocodeTask = TaskRunner.io(this, () -> geocodes.fetch(lat, lon),
+                new TaskRunner.Callback<GeocodeCache.Hit>() {
+                    @Override
+                    public void onSuccess(GeocodeCache.Hit hit) {
+                        if (hit != null) showAddress(hit, false);
+                        else if (cached == null) tvAddress.setText("Address: Not found");
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        // let the next refinement try again
+                        geocodedAt = null;
+                        if (cached != null) showAddress(cached, true);
+                        else tvAddress.setText("Address: Unavailable offline");
+                    }
+                });
+    }
+
+    private void showAddress(GeocodeCache.Hit hit, boolean offline) {
+        String text = hit.isExact(REGEOCODE_DISTANCE_M)
+                ? hit.address
+                : "near " + hit.address + " (~" + Math.round(hit.distanceM) + " m)";
+        tvAddress.setText("Address: " + text + (offline ? " (offline)" : ""));
+    }
+
+    /** Profile plus the best fix so far as one SMS-sized text; see {@link EmergencyPayload}. */
+    private void sendSos() {
+        if (shown == null) return;
+        SharedPreferences prefs = getSharedPreferences(usr_SHARED_PREFS, MODE_PRIVATE);
+        String phone = prefs.getString(KEY_PHONE_NUMBER, "");
+        EmergencyPayload payload = new EmergencyPayload(
+                prefs.getString(KEY_NAME, ""),
+                prefs.getInt(KEY_AGE, 0),
+                phone.isEmpty() ? "" : "+91" + phone,
+                shown.getLatitude(), shown.getLongitude(),
+                shown.hasAccuracy() ? Math.round(shown.getAccuracy()) : -1,
+                shown.getTime());
+        if (EmergencySender.send(this, payload.toSms()) == EmergencySender.Channel.CLIPBOARD) {
+            Toast.makeText(this, "No messaging app found. SOS copied, paste it into any app.",
+                    Toast.LENGTH_LONG).show();
+        }
+    }
+
+    /** Continuous positions for an ongoing emergency, kept running by a foreground service. */
+    private void toggleTracking() {
+        if (TrackingService.isRunning()) {
+            TrackingService.stop(this);
+            showTracking(false);
+        } else if (ActivityCompat.checkSelfPermission(this, Manifest.permission.ACCESS_FINE_LOCATION)
+                != PackageManager.PERMISSION_GRANTED) {
+            ActivityCompat.requestPermissions(this,
+                    new String[]{Manifest.permission.ACCESS_FINE_LOCATION},
+                    TRACKING_PERMISSION_REQUEST);
+        } else {
+            startTracking();
+        }
+    }
+
+    private void startTracking() {
+        if (Build.VERSION.SDK_INT >= 33 && ActivityCompat.checkSelfPermission(this,
+                Manifest.permission.POST_NOTIFICATIONS) != PackageManager.PERMISSION_GRANTED) {
+            // tracking works without it; only the ongoing notification stays hidden
+            ActivityCompat.requestPermissions(this,
+                    new String[]{Manifest.permission.POST_NOTIFICATIONS}, NOTIFICATION_PERMISSION_REQUEST);
+        }
+        TrackingService.start(this);
+        showTracking(true);
+    }
+
+    private void showTracking(boolean on) {
+        btnTrack.setText(on ? "Stop live tracking" : "Start live tracking");
+    }
+
+    @Override
+    protected void onStop() {
+        // fixes are only useful while the screen is visible; the button starts a new session
+        if (fixer.isRunning()) {
+            fixer.stop();
+            btnGetLocation.setEnabled(true);
+            if (shown != null) showAccuracy(shown, false);
+        }
+        super.onStop();
+    }
+
     // Handle permission response
     @Override
     public void onRequestPermissionsResult(int requestCode, @NonNull String[] permissions,
@@ -106,6 +254,12 @@ public class ShareLocationActivity extends AppCompatActivity {
             } else {
                 Toast.makeText(this, "Location permission denied", Toast.LENGTH_SHORT).show();
             }
+        } else if (requestCode == TRACKING_PERMISSION_REQUEST) {
+            if (grantResults.length > 0 && grantResults[0] == PackageManager.PERMISSION_GRANTED) {
+                startTracking();
+            } else {
+                Toast.makeText(this, "Location permission denied", Toast.LENGTH_SHORT).show();
+            }
         }
     }
 }
@@ -1,8 +1,8 @@
 package com.example.smartfirstaid;
 
+import android.content.Context;
 import android.content.Intent;
 import android.content.SharedPreferences;
-import android.os.AsyncTask;
 import android.os.Bundle;
 import android.view.Gravity;
 import android.widget.Button;
@@ -13,11 +13,15 @@ import androidx.activity.EdgeToEdge;
 import androidx.appcompat.app.AppCompatActivity;
 
 import com.example.smartfirstaid.data.db.MongoHelper;    // <-- your helper
-import com.example.smartfirstaid.util.PasswordUtils;     // <-- PBKDF2 utils
+import com.example.smartfirstaid.data.db.MongoSchema;
+import com.example.smartfirstaid.data.repository.CredentialCache;
+import com.example.smartfirstaid.data.repository.WriteJournal;
+import com.example.smartfirstaid.util.PasswordHasher;    // <-- PBKDF2 hashing service
+import com.example.smartfirstaid.util.PasswordUtils;
+import com.example.smartfirstaid.util.TaskRunner;
 
 import org.bson.Document;
 
-import java.util.Arrays;
 import java.util.Date;
 
 public class SigninActivity extends AppCompatActivity {
@@ -51,84 +55,139 @@ public class SigninActivity extends AppCompatActivity {
             toastBottom("Enter phone and password");
             return;
         }
-        new SignInTask(phone, pass).execute();
+        signin.setEnabled(false);
+        final PasswordHasher hasher = PasswordHasher.get(this);
+        final Context app = getApplicationContext();
+        TaskRunner.io(this, () -> signIn(app, hasher, phone, pass), new TaskRunner.Callback<SignInResult>() {
+            @Override
+            public void onSuccess(SignInResult result) {
+                signin.setEnabled(true);
+                onSignInResult(phone, result);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                signin.setEnabled(true);
+                onSignInResult(phone, new SignInResult("Error: " + e.getMessage()));
+            }
+        });
     }
 
-    private class SignInTask extends AsyncTask<Void, Void, String> {
-        private final String phone, pass;
-        private String username; // to pass to HomeActivity
-        private int age;
+    private static final class SignInResult {
+        final String status;
+        String username; // to pass to HomeActivity
+        int age;
 
-        SignInTask(String phone, String pass) {
-            this.phone = phone;
-            this.pass  = pass;
+        SignInResult(String status) {
+            this.status = status;
         }
+    }
 
-        @Override
-        protected String doInBackground(Void... voids) {
-            try {
-                // Fetch minimal fields needed for auth + display name
-                Document user = MongoHelper.userDetails()
-                        .find(new Document("phone", phone))
-                        .projection(new Document("_id", 0)
-                                .append("firstName", 1)
-                                .append("lastName", 1)
-                                .append("passwordHash", 1)
-                                .append("passwordSalt", 1)
-                                .append("age",1)
-                        )
-                        .first();
-
-                if (user == null) return "User not found";
-
-                username = (user.getString("firstName") != null ? user.getString("firstName") : "")
-                        + ((user.getString("lastName") != null && !user.getString("lastName").isEmpty())
-                        ? " " + user.getString("lastName") : "");
-                age = user.getInteger("age");
+    /**
+     * Runs on an I/O thread; the PBKDF2 step is handed to the CPU pool.
+     * A cached verifier answers repeat sign-ins without a round trip (and offline);
+     * the server is only consulted on a cache miss, a mismatch or a pending hash upgrade.
+     */
+    private static SignInResult signIn(Context app, PasswordHasher hasher, String phone, String pass) throws Exception {
+        CredentialCache cache = CredentialCache.get(app);
+        CredentialCache.Entry local = cache.load(phone);
+        boolean localOk = local != null && hasher.verify(pass, local.verifier);
+        if (localOk && !hasher.needsRehash(local.verifier)) {
+            queueLastLogin(app, phone);
+            return ok(local.username, local.age);
+        }
 
-                byte[] salt        = PasswordUtils.fromBase64(user.getString("passwordSalt"));
-                byte[] storedHash  = PasswordUtils.fromBase64(user.getString("passwordHash"));
-                byte[] givenHash   = PasswordUtils.pbkdf2(pass.toCharArray(), salt, 150_000, storedHash.length);
+        // Fetch minimal fields needed for auth + display name
+        Document user;
+        try {
+            user = MongoHelper.userDetails()
+                    .find(MongoSchema.userByPhone(phone))
+                    .projection(MongoSchema.signInProjection())
+                    .first();
+        } catch (Exception e) {
+            if (!localOk) throw e;
+            // offline, but the password matched the cached verifier; upgrade the hash next time
+            queueLastLogin(app, phone);
+            return ok(local.username, local.age);
+        }
 
-                if (!Arrays.equals(storedHash, givenHash)) return "Invalid password";
+        if (user == null) {
+            cache.remove(phone);
+            return new SignInResult("User not found");
+        }
 
-                // Optional: update lastLoginAt
-                MongoHelper.userDetails().updateOne(
-                        new Document("phone", phone),
-                        new Document("$set", new Document("lastLoginAt", new Date()))
-                );
+        PasswordHasher.Hashed stored = PasswordHasher.fromStored(
+                user.getString("passwordAlgo"),
+                user.getInteger("passwordIterations"),
+                user.getString("passwordSalt"),
+                user.getString("passwordHash"));
 
-                return "OK";
-            } catch (Exception e) {
-                return "Error: " + e.getMessage();
-            }
+        if (!hasher.verify(pass, stored)) {
+            cache.remove(phone);
+            return new SignInResult("Invalid password");
         }
 
-        @Override
-        protected void onPostExecute(String res) {
-            if ("OK".equals(res)) {
-                SharedPreferences prefs = getSharedPreferences(PREFS, MODE_PRIVATE);
-                prefs.edit()
-                        .putBoolean("isLoggedIn", true)
-                        .putString(KEY_NAME,username)
-                        .putInt(KEY_AGE, age)
-                        .putString(KEY_PHONE_NUMBER, phone)
-                        .apply();
-
-                Intent intent = new Intent(SigninActivity.this, HomeActivity.class);
-                if (username != null && !username.trim().isEmpty()) {
-                    intent.putExtra("username", username.trim());
-                }
-                startActivity(intent);
-                finish();
-            } else {
-                toastBottom(res.equals("User not found") || res.equals("Invalid password")
-                        ? "Invalid credentials. Please try again."
-                        : res);
-                mobno.setText("");
-                password.setText("");
-                mobno.requestFocus();
+        SignInResult ok = ok(
+                (user.getString("firstName") != null ? user.getString("firstName") : "")
+                        + ((user.getString("lastName") != null && !user.getString("lastName").isEmpty())
+                        ? " " + user.getString("lastName") : ""),
+                user.getInteger("age"));
+
+        // lastLoginAt and any hash upgrade go through the journal; sign-in does not wait on them
+        queueLastLogin(app, phone);
+        if (hasher.needsRehash(stored)) {
+            stored = hasher.hash(pass);
+            WriteJournal.get(app).append(MongoHelper.USER_DETAILS, "rehash:" + phone, WriteJournal.UPDATE,
+                    MongoSchema.userByPhone(phone),
+                    new Document("$set", new Document("passwordHash", PasswordUtils.toBase64(stored.hash))
+                            .append("passwordSalt", PasswordUtils.toBase64(stored.salt))
+                            .append("passwordAlgo", stored.algorithm)
+                            .append("passwordIterations", stored.iterations)));
+        }
+        cache.save(phone, new CredentialCache.Entry(stored, ok.username, ok.age));
+
+        return ok;
+    }
+
+    /** One pending write per phone; $max keeps the newest value whatever order replays arrive in. */
+    private static void queueLastLogin(Context app, String phone) {
+        WriteJournal.get(app).append(MongoHelper.USER_DETAILS, "lastLogin:" + phone, WriteJournal.UPDATE,
+                MongoSchema.userByPhone(phone),
+                new Document("$max", new Document("lastLoginAt", new Date())));
+    }
+
+    private static SignInResult ok(String username, int age) {
+        SignInResult ok = new SignInResult("OK");
+        ok.username = username;
+        ok.age = age;
+        return ok;
+    }
+
+    private void onSignInResult(String phone, SignInResult result) {
+        String res = result.status;
+        String username = result.username;
+        if ("OK".equals(res)) {
+            SharedPreferences prefs = getSharedPreferences(PREFS, MODE_PRIVATE);
+            prefs.edit()
+                    .putBoolean("isLoggedIn", true)
+                    .putString(KEY_NAME,username)
+                    .putInt(KEY_AGE, result.age)
+                    .putString(KEY_PHONE_NUMBER, phone)
+                    .apply();
+
+            Intent intent = new Intent(SigninActivity.this, HomeActivity.class);
+            if (username != null && !username.trim().isEmpty()) {
+                intent.putExtra("username", username.trim());
             }
+            startActivity(intent);
+            finish();
+        } else {
+            toastBottom(res.equals("User not found") || res.equals("Invalid password")
+                    ? "Invalid credentials. Please try again."
+                    : res);
+            mobno.setText("");
+            password.setText("");
+            mobno.requestFocus();
         }
     }
 
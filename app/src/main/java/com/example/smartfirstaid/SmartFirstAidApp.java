@@ -0,0 +1,17 @@
+package com.example.smartfirstaid;
+
+import android.app.Application;
+
+import com.example.smartfirstaid.startup.WarmupRunner;
+import com.example.smartfirstaid.util.StartupMetrics;
+
+public class SmartFirstAidApp extends Application {
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        StartupMetrics.markAppStart();
+        // warm Mongo + procedure cache in the background so emergency screens open instantly
+        WarmupRunner.start(this);
+    }
+}
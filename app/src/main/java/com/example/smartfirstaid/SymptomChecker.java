@@ -15,6 +15,7 @@ import android.widget.Toast;
 import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.fragment.app.FragmentManager;
+import com.example.smartfirstaid.net.HttpClientProvider;
 import com.example.smartfirstaid.util.NumSymptomsDialogFragment;
 import java.util.ArrayList;
 import android.content.Intent;
@@ -35,6 +36,9 @@ public class SymptomChecker extends AppCompatActivity
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_symptom_checker);
 
+        // open the TLS connection to Groq while the user is still typing symptoms
+        HttpClientProvider.preconnect(DiagnoseActivity.GROQ_URL);
+
         symptomContainer = findViewById(R.id.symptom_container);
         btnAddSymptom = findViewById(R.id.button_add_symptom);
         btnDiagnose = findViewById(R.id.button_diagnose);
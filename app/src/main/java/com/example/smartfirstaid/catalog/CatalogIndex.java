@@ -0,0 +1,166 @@
+package com.example.smartfirstaid.catalog;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * In-memory prefix index over item titles and keywords. Every word is inserted into a
+ * trie whose nodes hold the sorted ids of items having a word with that prefix, so a
+ * query costs one walk per query word plus a merge of short id lists, independent of
+ * catalog size. Built once off the main thread; {@link #search} is cheap enough to run
+ * on every keystroke.
+ *
+ * Matching is case- and accent-insensitive; every query word must prefix some word of
+ * the item. Items whose title starts with the query come first, then items matched on
+ * title words alone, then keyword matches, each group in the original order.
+ */
+public final class CatalogIndex<T> {
+
+    public interface Fields<T> {
+        String title(T item);
+
+        List<String> keywords(T item);
+    }
+
+    private static final class Node {
+        final Map<Character, Node> children = new HashMap<>();
+        final IntList ids = new IntList();      // items with any word under this prefix
+        final IntList titleIds = new IntList(); // items with a title word under this prefix
+    }
+
+    private final List<T> items;
+    private final String[] normalizedTitles;
+    private final Node root = new Node();
+
+    private CatalogIndex(List<T> items, Fields<T> fields) {
+        this.items = Collections.unmodifiableList(new ArrayList<>(items));
+        this.normalizedTitles = new String[items.size()];
+        for (int id = 0; id < items.size(); id++) {
+            T item = items.get(id);
+            String title = fields.title(item);
+            normalizedTitles[id] = normalize(title == null ? "" : title);
+            for (String w : words(normalizedTitles[id])) insert(w, id, true);
+            List<String> keywords = fields.keywords(item);
+            if (keywords == null) continue;
+            for (String k : keywords) {
+                if (k == null) continue;
+                for (String w : words(normalize(k))) insert(w, id, false);
+            }
+        }
+    }
+
+    /** Index items in the order results should be listed in. */
+    public static <T> CatalogIndex<T> build(List<T> items, Fields<T> fields) {
+        return new CatalogIndex<>(items, fields);
+    }
+
+    public int size() {
+        return items.size();
+    }
+
+    public List<T> search(String query) {
+        String q = normalize(query == null ? "" : query).trim();
+        List<String> tokens = words(q);
+        if (tokens.isEmpty()) return items;
+
+        IntList all = null, title = null;
+        for (String t : tokens) {
+            Node n = find(t);
+            if (n == null) return Collections.emptyList();
+            all = all == null ? n.ids : all.intersect(n.ids);
+            title = title == null ? n.titleIds : title.intersect(n.titleIds);
+            if (all.size == 0) return Collections.emptyList();
+        }
+
+        List<T> starts = new ArrayList<>(), titled = new ArrayList<>(), rest = new ArrayList<>();
+        for (int i = 0; i < all.size; i++) {
+            int id = all.values[i];
+            if (normalizedTitles[id].startsWith(q)) starts.add(items.get(id));
+            else if (title.contains(id)) titled.add(items.get(id));
+            else rest.add(items.get(id));
+        }
+        starts.addAll(titled);
+        starts.addAll(rest);
+        return starts;
+    }
+
+    private void insert(String word, int id, boolean inTitle) {
+        Node n = root;
+        for (int i = 0; i < word.length(); i++) {
+            Node next = n.children.get(word.charAt(i));
+            if (next == null) {
+                next = new Node();
+                n.children.put(word.charAt(i), next);
+            }
+            n = next;
+            // ids arrive in increasing order, so appending keeps the lists sorted
+            n.ids.addIfLast(id);
+            if (inTitle) n.titleIds.addIfLast(id);
+        }
+    }
+
+    private Node find(String prefix) {
+        Node n = root;
+        for (int i = 0; i < prefix.length() && n != null; i++) n = n.children.get(prefix.charAt(i));
+        return n;
+    }
+
+    static String normalize(String s) {
+        return Normalizer.normalize(s, Normalizer.Form.NFD)
+                .replaceAll("\\p{M}+", "")
+                .toLowerCase(Locale.ROOT);
+    }
+
+    static List<String> words(String normalized) {
+        List<String> out = new ArrayList<>();
+        for (String w : normalized.split("[^\\p{L}\\p{N}]+")) if (!w.isEmpty()) out.add(w);
+        return out;
+    }
+
+    /** Growable sorted int array; cheaper than boxed lists for the id sets. */
+    private static final class IntList {
+        int[] values = new int[2];
+        int size;
+
+        void addIfLast(int v) {
+            if (size > 0 && values[size - 1] == v) return;
+            if (size == values.length) {
+                int[] grown = new int[size * 2];
+                System.arraycopy(values, 0, grown, 0, size);
+                values = grown;
+            }
+            values[size++] = v;
+        }
+
+        boolean contains(int v) {
+            int lo = 0, hi = size - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                if (values[mid] < v) lo = mid + 1;
+                else if (values[mid] > v) hi = mid - 1;
+                else return true;
+            }
+            return false;
+        }
+
+        IntList intersect(IntList other) {
+            IntList out = new IntList();
+            int i = 0, j = 0;
+            while (i < size && j < other.size) {
+                if (values[i] < other.values[j]) i++;
+                else if (values[i] > other.values[j]) j++;
+                else {
+                    out.addIfLast(values[i]);
+                    i++;
+                    j++;
+                }
+            }
+            return out;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.smartfirstaid.catalog;
+
+import android.content.Context;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.load.engine.DiskCacheStrategy;
+import com.example.smartfirstaid.R;
+import com.example.smartfirstaid.data.model.Procedure;
+import com.google.android.material.card.MaterialCardView;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Emergency list rows, one card per procedure. Lists are diffed on a background thread
+ * (ListAdapter), ids are stable per key so filtering animates moves instead of rebinding,
+ * and icons are resolved once: bundled drawable names through a lookup cache, URLs through
+ * Glide at the row's icon size.
+ */
+public final class EmergencyCatalogAdapter extends ListAdapter<Procedure, EmergencyCatalogAdapter.VH> {
+
+    public interface OnOpen {
+        void open(Procedure procedure);
+    }
+
+    // the two original cards' colours, picked per key so a row keeps its colour when filtered
+    private static final int[] CARD_COLORS = {0xFFC5ECC6, 0xFFECDCC5};
+    private static final int[] TEXT_COLORS = {0xFF03320D, 0xFF423702};
+
+    // icons for procedures whose document has none, matching the screen before the catalog
+    private static final Map<String, Integer> DEFAULT_ICONS = new HashMap<>();
+    static {
+        DEFAULT_ICONS.put("snake_bite", R.drawable.snake_logo);
+        DEFAULT_ICONS.put("burns", R.drawable.burn_hand);
+    }
+
+    private static final DiffUtil.ItemCallback<Procedure> DIFF = new DiffUtil.ItemCallback<Procedure>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Procedure a, @NonNull Procedure b) {
+            return a.key.equals(b.key);
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Procedure a, @NonNull Procedure b) {
+            return a.title.equals(b.title) && (a.icon == null ? b.icon == null : a.icon.equals(b.icon));
+        }
+    };
+
+    private final OnOpen onOpen;
+    private final Map<String, Long> ids = new HashMap<>();
+    private final Map<String, Integer> drawableIds = new HashMap<>();
+    private final int iconPx;
+
+    public EmergencyCatalogAdapter(Context context, OnOpen onOpen) {
+        super(DIFF);
+        this.onOpen = onOpen;
+        this.iconPx = Math.round(48 * context.getResources().getDisplayMetrics().density);
+        setHasStableIds(true);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        String key = getItem(position).key;
+        Long id = ids.get(key);
+        if (id == null) {
+            id = (long) ids.size();
+            ids.put(key, id);
+        }
+        return id;
+    }
+
+    @NonNull
+    @Override
+    public VH onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View v = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_emergency, parent, false);
+        return new VH(v);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull VH holder, int position) {
+        Procedure p = getItem(position);
+        int shade = (p.key.hashCode() & 0x7fffffff) % CARD_COLORS.length;
+        holder.card.setCardBackgroundColor(CARD_COLORS[shade]);
+        holder.title.setTextColor(TEXT_COLORS[shade]);
+        holder.title.setText(p.title);
+        bindIcon(holder.icon, p);
+        holder.itemView.setOnClickListener(v -> {
+            int pos = holder.getBindingAdapterPosition();
+            if (pos != RecyclerView.NO_POSITION) onOpen.open(getItem(pos));
+        });
+    }
+
+    private void bindIcon(ImageView view, Procedure p) {
+        if (p.icon != null && (p.icon.startsWith("http://") || p.icon.startsWith("https://"))) {
+            Glide.with(view)
+                    .load(p.icon)
+                    .override(iconPx)
+                    .fitCenter()
+                    .diskCacheStrategy(DiskCacheStrategy.RESOURCE)
+                    .placeholder(R.drawable.smart_first_aid_logo)
+                    .into(view);
+            return;
+        }
+        Glide.with(view).clear(view);
+        view.setImageResource(drawableFor(view.getContext(), p));
+    }
+
+    // getIdentifier is a reflective lookup; do it once per name
+    private int drawableFor(Context context, Procedure p) {
+        String name = p.icon != null ? p.icon : "";
+        Integer id = drawableIds.get(name + "|" + p.key);
+        if (id != null) return id;
+        int res = name.isEmpty() ? 0 : context.getResources().getIdentifier(name, "drawable", context.getPackageName());
+        if (res == 0) {
+            Integer fallback = DEFAULT_ICONS.get(p.key);
+            res = fallback != null ? fallback : R.drawable.smart_first_aid_logo;
+        }
+        drawableIds.put(name + "|" + p.key, res);
+        return res;
+    }
+
+    @Override
+    public void onViewRecycled(@NonNull VH holder) {
+        Glide.with(holder.icon).clear(holder.icon);
+    }
+
+    static final class VH extends RecyclerView.ViewHolder {
+        final MaterialCardView card;
+        final ImageView icon;
+        final TextView title;
+
+        VH(@NonNull View itemView) {
+            super(itemView);
+            card = (MaterialCardView) itemView;
+            icon = itemView.findViewById(R.id.ivIcon);
+            title = itemView.findViewById(R.id.tvEmergencyTitle);
+        }
+    }
+}
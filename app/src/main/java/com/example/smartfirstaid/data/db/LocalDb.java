@@ -0,0 +1,209 @@
+package com.example.smartfirstaid.data.db;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+
+/**
+ * On-device SQLite database. Holds the offline copy of Mongo data so the
+ * emergency screens keep working without the server at 10.0.2.2.
+ */
+public final class LocalDb extends SQLiteOpenHelper {
+
+    private static final String DB_NAME = "smart_first_aid.db";
+    private static final int DB_VERSION = 9;
+
+    // procedures table; list columns hold JSON arrays
+    public static final String T_PROCEDURES = "procedures";
+    public static final String C_KEY = "key";
+    public static final String C_DO = "do_list";
+    public static final String C_DONT = "dont_list";
+    public static final String C_VOICE = "voice_script";
+    public static final String C_IMAGES = "images";
+    public static final String C_SYNCED_AT = "synced_at";
+    // server-side updatedAt (ms) and version of the stored copy; 0 when unknown
+    public static final String C_UPDATED_AT = "updated_at";
+    public static final String C_VERSION = "version";
+    // 1 = deleted on the server; kept so the bundled snapshot copy stays hidden
+    public static final String C_DELETED = "deleted";
+    // catalog metadata; keywords is a JSON array, icon a URL or drawable name
+    public static final String C_TITLE = "title";
+    public static final String C_KEYWORDS = "keywords";
+    public static final String C_ICON = "icon";
+
+    // model diagnoses keyed by canonical symptom set (see DiagnosisCache)
+    public static final String T_DIAGNOSES = "diagnoses";
+    public static final String C_CACHE_KEY = "cache_key";
+    public static final String C_JSON = "json";
+    public static final String C_CREATED_AT = "created_at";
+
+    // encrypted sign-in verifiers keyed by a hash of the phone number (see CredentialCache)
+    public static final String T_CREDENTIALS = "credentials";
+    public static final String C_PHONE_KEY = "phone_key";
+    public static final String C_BLOB = "blob";
+
+    // pending Mongo writes, flushed in batches (see WriteJournal); op_key is the idempotency key
+    public static final String T_JOURNAL = "write_journal";
+    public static final String C_ID = "id";
+    public static final String C_OP_KEY = "op_key";
+    public static final String C_COLLECTION = "collection";
+    public static final String C_KIND = "kind";
+    public static final String C_FILTER = "filter";
+    public static final String C_UPDATE = "update_doc";
+    public static final String C_ATTEMPTS = "attempts";
+    public static final String C_NEXT_ATTEMPT_AT = "next_attempt_at";
+
+    // delta-sync high-water marks, one row per synced collection (see ProcedureSync)
+    public static final String T_SYNC_STATE = "sync_state";
+    public static final String C_NAME = "name";
+    public static final String C_HWM_TS = "hwm_ts";
+    public static final String C_HWM_KEY = "hwm_key";
+    /** Mark timestamp meaning "nothing pulled yet": the next sync starts with undated documents. */
+    public static final long HWM_UNDATED = -1;
+
+    // reverse-geocoded addresses keyed by geohash; the primary key doubles as the spatial index
+    // (see GeocodeCache)
+    public static final String T_GEOCODES = "geocodes";
+    public static final String C_GEOHASH = "geohash";
+    public static final String C_LAT = "lat";
+    public static final String C_LON = "lon";
+    public static final String C_ADDRESS = "address";
+    public static final String C_SOURCE = "source";
+    public static final String C_FETCHED_AT = "fetched_at";
+
+    // recent tracked positions, a fixed-size ring: slot = seq % capacity (see TrackLog)
+    public static final String T_TRACK = "track_points";
+    public static final String C_SLOT = "slot";
+    public static final String C_SEQ = "seq";
+    public static final String C_ACCURACY = "accuracy";
+    public static final String C_TIME = "time";
+
+    private static volatile LocalDb instance;
+
+    public static LocalDb get(Context context) {
+        if (instance == null) {
+            synchronized (LocalDb.class) {
+                if (instance == null) instance = new LocalDb(context.getApplicationContext());
+            }
+        }
+        return instance;
+    }
+
+    private LocalDb(Context context) {
+        super(context, DB_NAME, null, DB_VERSION);
+    }
+
+    @Override
+    public void onConfigure(SQLiteDatabase db) {
+        super.onConfigure(db);
+        db.enableWriteAheadLogging();
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + T_PROCEDURES + " ("
+                + C_KEY + " TEXT PRIMARY KEY, "
+                + C_DO + " TEXT, "
+                + C_DONT + " TEXT, "
+                + C_VOICE + " TEXT, "
+                + C_IMAGES + " TEXT, "
+                + C_SYNCED_AT + " INTEGER, "
+                + C_UPDATED_AT + " INTEGER NOT NULL DEFAULT 0, "
+                + C_VERSION + " INTEGER NOT NULL DEFAULT 0, "
+                + C_DELETED + " INTEGER NOT NULL DEFAULT 0, "
+                + C_TITLE + " TEXT, "
+                + C_KEYWORDS + " TEXT, "
+                + C_ICON + " TEXT)");
+        createDiagnoses(db);
+        createCredentials(db);
+        createJournal(db);
+        createSyncState(db);
+        createGeocodes(db);
+        createTrack(db);
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        if (oldVersion < 2) createDiagnoses(db);
+        if (oldVersion < 3) createCredentials(db);
+        if (oldVersion < 4) createJournal(db);
+        if (oldVersion < 5) {
+            db.execSQL("ALTER TABLE " + T_PROCEDURES + " ADD COLUMN " + C_UPDATED_AT + " INTEGER NOT NULL DEFAULT 0");
+            db.execSQL("ALTER TABLE " + T_PROCEDURES + " ADD COLUMN " + C_VERSION + " INTEGER NOT NULL DEFAULT 0");
+            createSyncState(db);
+        }
+        if (oldVersion < 6) {
+            db.execSQL("ALTER TABLE " + T_PROCEDURES + " ADD COLUMN " + C_DELETED + " INTEGER NOT NULL DEFAULT 0");
+        }
+        if (oldVersion < 7) createGeocodes(db);
+        if (oldVersion < 8) createTrack(db);
+        if (oldVersion < 9) {
+            db.execSQL("ALTER TABLE " + T_PROCEDURES + " ADD COLUMN " + C_TITLE + " TEXT");
+            db.execSQL("ALTER TABLE " + T_PROCEDURES + " ADD COLUMN " + C_KEYWORDS + " TEXT");
+            db.execSQL("ALTER TABLE " + T_PROCEDURES + " ADD COLUMN " + C_ICON + " TEXT");
+            // rows synced before these columns existed lack metadata: pull everything again.
+            // An explicit "from the start" mark, not a missing one: a missing mark means
+            // "start from the bundled snapshot's mark", which would skip the older rows.
+            ContentValues mark = new ContentValues();
+            mark.put(C_NAME, MongoHelper.PROCEDURES);
+            mark.put(C_HWM_TS, HWM_UNDATED);
+            mark.put(C_HWM_KEY, "");
+            db.insertWithOnConflict(T_SYNC_STATE, null, mark, SQLiteDatabase.CONFLICT_REPLACE);
+        }
+    }
+
+    private static void createDiagnoses(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + T_DIAGNOSES + " ("
+                + C_CACHE_KEY + " TEXT PRIMARY KEY, "
+                + C_JSON + " TEXT NOT NULL, "
+                + C_CREATED_AT + " INTEGER NOT NULL)");
+    }
+
+    private static void createCredentials(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + T_CREDENTIALS + " ("
+                + C_PHONE_KEY + " TEXT PRIMARY KEY, "
+                + C_BLOB + " TEXT NOT NULL, "
+                + C_CREATED_AT + " INTEGER NOT NULL)");
+    }
+
+    private static void createJournal(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + T_JOURNAL + " ("
+                + C_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, "
+                + C_OP_KEY + " TEXT NOT NULL UNIQUE, "
+                + C_COLLECTION + " TEXT NOT NULL, "
+                + C_KIND + " TEXT NOT NULL, "
+                + C_FILTER + " TEXT NOT NULL, "
+                + C_UPDATE + " TEXT NOT NULL, "
+                + C_ATTEMPTS + " INTEGER NOT NULL DEFAULT 0, "
+                + C_NEXT_ATTEMPT_AT + " INTEGER NOT NULL DEFAULT 0, "
+                + C_CREATED_AT + " INTEGER NOT NULL)");
+    }
+
+    private static void createSyncState(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + T_SYNC_STATE + " ("
+                + C_NAME + " TEXT PRIMARY KEY, "
+                + C_HWM_TS + " INTEGER NOT NULL, "
+                + C_HWM_KEY + " TEXT NOT NULL)");
+    }
+
+    private static void createGeocodes(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + T_GEOCODES + " ("
+                + C_GEOHASH + " TEXT PRIMARY KEY, "
+                + C_LAT + " REAL NOT NULL, "
+                + C_LON + " REAL NOT NULL, "
+                + C_ADDRESS + " TEXT NOT NULL, "
+                + C_SOURCE + " TEXT NOT NULL, "
+                + C_FETCHED_AT + " INTEGER NOT NULL)");
+    }
+
+    private static void createTrack(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + T_TRACK + " ("
+                + C_SLOT + " INTEGER PRIMARY KEY, "
+                + C_SEQ + " INTEGER NOT NULL, "
+                + C_LAT + " REAL NOT NULL, "
+                + C_LON + " REAL NOT NULL, "
+                + C_ACCURACY + " REAL NOT NULL, "
+                + C_TIME + " INTEGER NOT NULL)");
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.smartfirstaid.data.db;
+
+/**
+ * Connection tuning for MongoHelper. Pass to {@link MongoHelper#configure(MongoConfig)}
+ * before the first collection is requested; later changes only apply after {@link MongoHelper#close()}.
+ */
+public final class MongoConfig {
+
+    // Emulator -> 10.0.2.2 | Real device -> Your Laptop IPv4 (e.g., 192.168.1.23)
+    public final String host;
+    public final int port;
+    public final String database;
+
+    public final int maxPoolSize;
+    public final int minPoolSize;
+    public final long maxWaitTimeMs;
+    public final long maxIdleTimeMs;
+    public final long connectTimeoutMs;
+    public final long socketTimeoutMs;
+    public final long serverSelectionTimeoutMs;
+
+    private MongoConfig(Builder b) {
+        host = b.host;
+        port = b.port;
+        database = b.database;
+        maxPoolSize = b.maxPoolSize;
+        minPoolSize = b.minPoolSize;
+        maxWaitTimeMs = b.maxWaitTimeMs;
+        maxIdleTimeMs = b.maxIdleTimeMs;
+        connectTimeoutMs = b.connectTimeoutMs;
+        socketTimeoutMs = b.socketTimeoutMs;
+        serverSelectionTimeoutMs = b.serverSelectionTimeoutMs;
+    }
+
+    public static MongoConfig defaults() {
+        return new Builder().build();
+    }
+
+    public Builder toBuilder() {
+        return new Builder()
+                .host(host).port(port).database(database)
+                .maxPoolSize(maxPoolSize).minPoolSize(minPoolSize)
+                .maxWaitTimeMs(maxWaitTimeMs).maxIdleTimeMs(maxIdleTimeMs)
+                .connectTimeoutMs(connectTimeoutMs).socketTimeoutMs(socketTimeoutMs)
+                .serverSelectionTimeoutMs(serverSelectionTimeoutMs);
+    }
+
+    public static final class Builder {
+        private String host = "10.0.2.2";
+        private int port = 27017;
+        private String database = "Smart_First_Aid";
+        // a phone never needs the driver default of 100 sockets
+        private int maxPoolSize = 4;
+        private int minPoolSize = 0;
+        private long maxWaitTimeMs = 5_000;
+        private long maxIdleTimeMs = 60_000;
+        private long connectTimeoutMs = 3_000;
+        private long socketTimeoutMs = 10_000;
+        // driver default is 30 s, which is what users see as a frozen screen when the host is down
+        private long serverSelectionTimeoutMs = 3_000;
+
+        public Builder host(String v) { host = v; return this; }
+        public Builder port(int v) { port = v; return this; }
+        public Builder database(String v) { database = v; return this; }
+        public Builder maxPoolSize(int v) { maxPoolSize = v; return this; }
+        public Builder minPoolSize(int v) { minPoolSize = v; return this; }
+        public Builder maxWaitTimeMs(long v) { maxWaitTimeMs = v; return this; }
+        public Builder maxIdleTimeMs(long v) { maxIdleTimeMs = v; return this; }
+        public Builder connectTimeoutMs(long v) { connectTimeoutMs = v; return this; }
+        public Builder socketTimeoutMs(long v) { socketTimeoutMs = v; return this; }
+        public Builder serverSelectionTimeoutMs(long v) { serverSelectionTimeoutMs = v; return this; }
+
+        public MongoConfig build() {
+            if (maxPoolSize < 1) throw new IllegalArgumentException("maxPoolSize must be >= 1");
+            if (minPoolSize < 0 || minPoolSize > maxPoolSize)
+                throw new IllegalArgumentException("minPoolSize must be in [0, maxPoolSize]");
+            return new MongoConfig(this);
+        }
+    }
+}
@@ -1,5 +1,8 @@
 package com.example.smartfirstaid.data.db;
 
+import android.util.Log;
+
+import com.example.smartfirstaid.BuildConfig;
 import com.mongodb.MongoClientSettings;
 import com.mongodb.ServerAddress;
 import com.mongodb.client.MongoClient;
@@ -8,47 +11,137 @@ import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
 
 import org.bson.Document;
+
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Process-wide Mongo connection manager. Exactly one MongoClient (and one pool)
+ * is created even when several background tasks ask for a collection at once.
+ */
 public final class MongoHelper {
+    private static final String TAG = "MongoHelper";
+
+    public static final String PROCEDURES = "procedures";
+    public static final String USER_DETAILS = "UserDetails";
+
+    private static final Object LOCK = new Object();
+
+    private static volatile MongoConfig config = MongoConfig.defaults();
+    private static volatile MongoDatabase db;
     private static MongoClient client;
-    private static MongoDatabase db;
+    private static volatile MongoPoolStats poolStats = new MongoPoolStats();
+    private static final Map<String, MongoCollection<Document>> collections = new ConcurrentHashMap<>();
+    private static volatile boolean schemaReady;
 
     private MongoHelper() {}
 
+    /** Replace the connection settings. Closes the current client so the next call reconnects. */
+    public static void configure(MongoConfig newConfig) {
+        synchronized (LOCK) {
+            close();
+            config = newConfig;
+        }
+    }
+
+    public static MongoConfig config() {
+        return config;
+    }
+
     // We can call this module whenever we need to establish a connection
     public static MongoCollection<Document> procedures() {
-        if (client == null) {
-            client = MongoClients.create(
-                    MongoClientSettings.builder()
-                            .applyToClusterSettings(b ->
-                                    b.hosts(Collections.singletonList(
-                                            // Emulator -> host PC
-                                            new ServerAddress("10.0.2.2", 27017)
-                                    )))
-                            .build());
-            db = client.getDatabase("Smart_First_Aid");
+        return collection(PROCEDURES);
+    }
+
+    public static MongoCollection<Document> userDetails() {
+        return collection(USER_DETAILS);
+    }
+
+    public static MongoCollection<Document> collection(String name) {
+        MongoCollection<Document> c = collections.get(name);
+        if (c != null) return c;
+        // same lock as close(): a handle from a client closed meanwhile never lands in the cache
+        synchronized (LOCK) {
+            c = collections.get(name);
+            if (c == null) {
+                c = database().getCollection(name);
+                collections.put(name, c);
+            }
+            return c;
         }
-        return db.getCollection("procedures");
-    }
-    public static MongoCollection<org.bson.Document> userDetails() {
-        if (client == null) {
-            client = MongoClients.create(
-                    MongoClientSettings.builder()
-                            .applyToClusterSettings(b -> b.hosts(
-                                    java.util.Collections.singletonList(
-                                            // Emulator → 10.0.2.2 | Real device → Your Laptop IPv4 (e.g., 192.168.1.23)
-                                            new ServerAddress("10.0.2.2", 27017)
-                                    )))
-                            .build());
-            db = client.getDatabase("Smart_First_Aid");
+    }
+
+    public static MongoDatabase database() {
+        MongoDatabase d = db;
+        if (d != null) return d;
+        synchronized (LOCK) {
+            if (db == null) {
+                MongoConfig cfg = config;
+                poolStats = new MongoPoolStats();
+                client = MongoClients.create(buildSettings(cfg, poolStats));
+                db = client.getDatabase(cfg.database);
+            }
+            return db;
         }
-        return db.getCollection("UserDetails");
+    }
+
+    /**
+     * Create the indexes in {@link MongoSchema} once per client. Debug builds also explain
+     * the hot queries and warn about any that fall back to a collection scan. Blocking.
+     */
+    public static void ensureSchema() {
+        if (schemaReady) return;
+        MongoDatabase d = database();
+        for (String failure : MongoSchema.ensureIndexes(d)) {
+            Log.w(TAG, "Index not created: " + failure);
+        }
+        if (BuildConfig.DEBUG) {
+            List<MongoSchema.PlanReport> reports = MongoSchema.verify(d);
+            for (MongoSchema.PlanReport r : reports) {
+                if (r.isCollectionScan()) Log.w(TAG, "COLLSCAN: " + r);
+                else Log.d(TAG, (r.isCovered() ? "covered: " : "indexed: ") + r);
+            }
+        }
+        schemaReady = true;
+    }
+
+    /** True once a client exists; does not touch the network. */
+    public static boolean isInitialized() {
+        return db != null;
+    }
+
+    /** Live pool counters for the current client. */
+    public static MongoPoolStats poolStats() {
+        return poolStats;
+    }
+
+    private static MongoClientSettings buildSettings(MongoConfig cfg, MongoPoolStats stats) {
+        return MongoClientSettings.builder()
+                .applyToClusterSettings(b -> b
+                        .hosts(Collections.singletonList(new ServerAddress(cfg.host, cfg.port)))
+                        .serverSelectionTimeout(cfg.serverSelectionTimeoutMs, TimeUnit.MILLISECONDS))
+                .applyToConnectionPoolSettings(b -> b
+                        .maxSize(cfg.maxPoolSize)
+                        .minSize(cfg.minPoolSize)
+                        .maxWaitTime(cfg.maxWaitTimeMs, TimeUnit.MILLISECONDS)
+                        .maxConnectionIdleTime(cfg.maxIdleTimeMs, TimeUnit.MILLISECONDS)
+                        .addConnectionPoolListener(stats))
+                .applyToSocketSettings(b -> b
+                        .connectTimeout((int) cfg.connectTimeoutMs, TimeUnit.MILLISECONDS)
+                        .readTimeout((int) cfg.socketTimeoutMs, TimeUnit.MILLISECONDS))
+                .build();
     }
 
     /** Optional: close when app quits (not strictly required during dev). */
     public static void close() {
-        try { if (client != null) client.close(); } catch (Exception ignore) {}
-        client = null; db = null;
+        synchronized (LOCK) {
+            try { if (client != null) client.close(); } catch (Exception ignore) {}
+            client = null; db = null;
+            schemaReady = false;
+            collections.clear();
+        }
     }
 }
@@ -0,0 +1,94 @@
+package com.example.smartfirstaid.data.db;
+
+import com.mongodb.event.ConnectionCheckOutFailedEvent;
+import com.mongodb.event.ConnectionCheckOutStartedEvent;
+import com.mongodb.event.ConnectionCheckedInEvent;
+import com.mongodb.event.ConnectionCheckedOutEvent;
+import com.mongodb.event.ConnectionClosedEvent;
+import com.mongodb.event.ConnectionCreatedEvent;
+import com.mongodb.event.ConnectionPoolListener;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** Connection pool counters fed by the driver's pool events. */
+public final class MongoPoolStats implements ConnectionPoolListener {
+
+    private final AtomicInteger open = new AtomicInteger();
+    private final AtomicInteger checkedOut = new AtomicInteger();
+    private final AtomicLong checkOuts = new AtomicLong();
+    private final AtomicLong checkOutFailures = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    // the sync driver checks out on the calling thread, so start/end pair up per thread
+    private final ThreadLocal<Long> waitStart = new ThreadLocal<>();
+
+    @Override
+    public void connectionCheckOutStarted(ConnectionCheckOutStartedEvent event) {
+        waitStart.set(System.nanoTime());
+    }
+
+    @Override
+    public void connectionCheckedOut(ConnectionCheckedOutEvent event) {
+        checkedOut.incrementAndGet();
+        checkOuts.incrementAndGet();
+        recordWait();
+    }
+
+    @Override
+    public void connectionCheckOutFailed(ConnectionCheckOutFailedEvent event) {
+        checkOutFailures.incrementAndGet();
+        recordWait();
+    }
+
+    @Override
+    public void connectionCheckedIn(ConnectionCheckedInEvent event) {
+        checkedOut.decrementAndGet();
+    }
+
+    @Override
+    public void connectionCreated(ConnectionCreatedEvent event) {
+        open.incrementAndGet();
+    }
+
+    @Override
+    public void connectionClosed(ConnectionClosedEvent event) {
+        open.decrementAndGet();
+    }
+
+    private void recordWait() {
+        Long start = waitStart.get();
+        if (start == null) return;
+        waitStart.remove();
+        long waited = System.nanoTime() - start;
+        totalWaitNanos.addAndGet(waited);
+        long prev;
+        do {
+            prev = maxWaitNanos.get();
+        } while (waited > prev && !maxWaitNanos.compareAndSet(prev, waited));
+    }
+
+    public int openConnections() { return open.get(); }
+    public int checkedOutConnections() { return checkedOut.get(); }
+    public long checkOutCount() { return checkOuts.get(); }
+    public long checkOutFailureCount() { return checkOutFailures.get(); }
+
+    public double averageWaitMs() {
+        long n = checkOuts.get() + checkOutFailures.get();
+        return n == 0 ? 0 : totalWaitNanos.get() / 1e6 / n;
+    }
+
+    public double maxWaitMs() {
+        return maxWaitNanos.get() / 1e6;
+    }
+
+    @Override
+    public String toString() {
+        return "open=" + openConnections()
+                + " checkedOut=" + checkedOutConnections()
+                + " checkOuts=" + checkOutCount()
+                + " failures=" + checkOutFailureCount()
+                + String.format(java.util.Locale.US, " avgWait=%.2fms maxWait=%.2fms", averageWaitMs(), maxWaitMs());
+    }
+}
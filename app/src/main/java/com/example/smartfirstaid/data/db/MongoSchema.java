@@ -0,0 +1,218 @@
+package com.example.smartfirstaid.data.db;
+
+import com.mongodb.MongoException;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.IndexOptions;
+
+import org.bson.Document;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Indexes the app relies on, and the hot queries that must use them. Plain driver
+ * calls with no Android dependencies, so it can be exercised against a local mongod
+ * from a JVM test (see MongoSchemaTest).
+ */
+public final class MongoSchema {
+
+    public static final class IndexSpec {
+        public final String collection;
+        public final String name;
+        public final Document keys;
+        public final boolean unique;
+
+        IndexSpec(String collection, String name, Document keys, boolean unique) {
+            this.collection = collection;
+            this.name = name;
+            this.keys = keys;
+            this.unique = unique;
+        }
+    }
+
+    /** A query shape the app runs on every screen open / sign-in. */
+    public static final class HotQuery {
+        public final String collection;
+        public final String name;
+        public final Document filter;
+        public final Document projection;
+        public final Document sort;
+
+        HotQuery(String collection, String name, Document filter, Document projection, Document sort) {
+            this.collection = collection;
+            this.name = name;
+            this.filter = filter;
+            this.projection = projection;
+            this.sort = sort;
+        }
+    }
+
+    public static final class PlanReport {
+        public final String query;
+        public final List<String> stages;
+
+        PlanReport(String query, List<String> stages) {
+            this.query = query;
+            this.stages = stages;
+        }
+
+        public boolean isCollectionScan() {
+            return stages.contains("COLLSCAN");
+        }
+
+        /** Ordered by sorting results in memory instead of reading an index in order. */
+        public boolean isInMemorySort() {
+            return stages.contains("SORT");
+        }
+
+        /** Answered from the index alone, without fetching documents. */
+        public boolean isCovered() {
+            return stages.contains("IXSCAN") && !stages.contains("FETCH");
+        }
+
+        @Override
+        public String toString() {
+            return query + " -> " + stages;
+        }
+    }
+
+    public static final List<IndexSpec> INDEXES = Collections.unmodifiableList(Arrays.asList(
+            new IndexSpec(MongoHelper.USER_DETAILS, "phone_unique", new Document("phone", 1), true),
+            new IndexSpec(MongoHelper.PROCEDURES, "key_unique", new Document("key", 1), true),
+            new IndexSpec(MongoHelper.PROCEDURES, "updatedAt_key",
+                    new Document("updatedAt", 1).append("key", 1), false)));
+
+    // ---- query shapes, built here and used by the code that runs them, so HOT_QUERIES
+    // ---- explains exactly what the app sends
+
+    /** User record by phone: sign-in lookup, registration upsert and journaled updates. */
+    public static Document userByPhone(String phone) {
+        return new Document("phone", phone);
+    }
+
+    /** What SigninActivity needs to verify the password and greet the user. */
+    public static Document signInProjection() {
+        return new Document("_id", 0)
+                .append("firstName", 1)
+                .append("lastName", 1)
+                .append("passwordHash", 1)
+                .append("passwordSalt", 1)
+                .append("passwordAlgo", 1)
+                .append("passwordIterations", 1)
+                .append("age", 1);
+    }
+
+    /** One procedure on a local miss (ProcedureRepository.load). */
+    public static Document procedureByKey(String key) {
+        return new Document("key", key);
+    }
+
+    /** Dated delta-sync page: everything after the (updatedAt, key) high-water mark. */
+    public static Document proceduresAfter(Date updatedAt, String key) {
+        return new Document("$or", Arrays.asList(
+                new Document("updatedAt", new Document("$gt", updatedAt)),
+                new Document("updatedAt", updatedAt).append("key", new Document("$gt", key))));
+    }
+
+    /** Documents that predate updatedAt, pulled once by key before the dated phase. */
+    public static Document undatedProceduresAfter(String key) {
+        return new Document("updatedAt", new Document("$exists", false))
+                .append("key", new Document("$gt", key));
+    }
+
+    public static Document proceduresAfterSort() {
+        return new Document("updatedAt", 1).append("key", 1);
+    }
+
+    public static Document undatedProceduresSort() {
+        return new Document("key", 1);
+    }
+
+    /** Fields the delta sync stores, plus its bookkeeping. */
+    public static Document procedureSyncProjection() {
+        return new Document("_id", 0)
+                .append("key", 1)
+                .append("do", 1)
+                .append("dont", 1)
+                .append("voiceScript", 1)
+                .append("images", 1)
+                .append("title", 1)
+                .append("keywords", 1)
+                .append("icon", 1)
+                .append("updatedAt", 1)
+                .append("version", 1)
+                .append("deleted", 1);
+    }
+
+    // the values are placeholders; only the shape matters to the planner
+    public static final List<HotQuery> HOT_QUERIES = Collections.unmodifiableList(Arrays.asList(
+            new HotQuery(MongoHelper.PROCEDURES, "procedure by key",
+                    procedureByKey("burns"), new Document("_id", 0), null),
+            new HotQuery(MongoHelper.PROCEDURES, "delta sync",
+                    proceduresAfter(new Date(0), ""), procedureSyncProjection(), proceduresAfterSort()),
+            new HotQuery(MongoHelper.PROCEDURES, "undated sync",
+                    undatedProceduresAfter(""), procedureSyncProjection(), undatedProceduresSort()),
+            new HotQuery(MongoHelper.USER_DETAILS, "sign-in lookup",
+                    userByPhone("0000000000"), signInProjection(), null),
+            // the registration upsert's match phase plans like this find
+            new HotQuery(MongoHelper.USER_DETAILS, "register upsert",
+                    userByPhone("0000000000"), null, null)));
+
+    private MongoSchema() {}
+
+    /**
+     * Create every declared index (a no-op when it already exists).
+     * Returns one message per index that could not be built, e.g. because of duplicate data.
+     */
+    public static List<String> ensureIndexes(MongoDatabase db) {
+        List<String> failures = new ArrayList<>();
+        for (IndexSpec spec : INDEXES) {
+            try {
+                db.getCollection(spec.collection).createIndex(spec.keys,
+                        new IndexOptions().name(spec.name).unique(spec.unique));
+            } catch (MongoException e) {
+                failures.add(spec.collection + "." + spec.name + ": " + e.getMessage());
+            }
+        }
+        return failures;
+    }
+
+    /** Explain every hot query and report the winning plan's stages. */
+    public static List<PlanReport> verify(MongoDatabase db) {
+        List<PlanReport> reports = new ArrayList<>();
+        for (HotQuery q : HOT_QUERIES) {
+            Document explain = db.getCollection(q.collection).find(q.filter)
+                    .projection(q.projection)
+                    .sort(q.sort)
+                    .limit(1)
+                    .explain();
+            reports.add(new PlanReport(q.collection + " " + q.name, winningStages(explain)));
+        }
+        return reports;
+    }
+
+    /**
+     * Stage names of the winning plan, outermost first. Handles both the classic layout
+     * and the slot-based engine's (winningPlan.queryPlan).
+     */
+    public static List<String> winningStages(Document explain) {
+        List<String> stages = new ArrayList<>();
+        Document planner = explain.get("queryPlanner", Document.class);
+        if (planner != null) collectStages(planner.get("winningPlan"), stages);
+        return stages;
+    }
+
+    private static void collectStages(Object node, List<String> out) {
+        if (node instanceof Document) {
+            Document d = (Document) node;
+            Object stage = d.get("stage");
+            if (stage instanceof String) out.add((String) stage);
+            for (Object child : d.values()) collectStages(child, out);
+        } else if (node instanceof List) {
+            for (Object child : (List<?>) node) collectStages(child, out);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.smartfirstaid.data.model;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/** A diagnosis as shown by DiagnoseActivity, from the model or from offline triage (immutable). */
+public final class Diagnosis {
+
+    public final String disease;
+    public final String criticality;
+    /** Optional free text shown above the actions; may be null. */
+    public final String possibility;
+    public final List<String> immediateActions;
+    public final List<String> worsenActions;
+    /** True when produced on-device rather than by the remote model. */
+    public final boolean offline;
+
+    public Diagnosis(String disease, String criticality, String possibility,
+                     List<String> immediateActions, List<String> worsenActions, boolean offline) {
+        this.disease = disease;
+        this.criticality = criticality;
+        this.possibility = possibility;
+        this.immediateActions = immediateActions == null
+                ? Collections.<String>emptyList() : Collections.unmodifiableList(new ArrayList<>(immediateActions));
+        this.worsenActions = worsenActions == null
+                ? Collections.<String>emptyList() : Collections.unmodifiableList(new ArrayList<>(worsenActions));
+        this.offline = offline;
+    }
+
+    /** Same JSON shape the model is prompted for; used for the on-disk cache. */
+    public JSONObject toJson() {
+        JSONObject o = new JSONObject();
+        try {
+            o.put("disease", disease);
+            o.put("criticality", criticality);
+            if (possibility != null) o.put("possibility", possibility);
+            o.put("immediate_actions", new JSONArray(immediateActions));
+            o.put("worsen_actions", new JSONArray(worsenActions));
+            if (offline) o.put("source", "offline");
+        } catch (Exception ignored) { }
+        return o;
+    }
+
+    public static Diagnosis fromJson(JSONObject o) {
+        return new Diagnosis(
+                o.optString("disease", "—"),
+                o.optString("criticality", "—"),
+                o.has("possibility") ? o.optString("possibility", null) : null,
+                strings(o.optJSONArray("immediate_actions")),
+                strings(o.optJSONArray("worsen_actions")),
+                "offline".equals(o.optString("source", null)));
+    }
+
+    private static List<String> strings(JSONArray arr) {
+        List<String> out = new ArrayList<>();
+        if (arr != null) for (int i = 0; i < arr.length(); i++) out.add(arr.optString(i, ""));
+        return out;
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.smartfirstaid.data.model;
+
+import org.bson.Document;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * One first-aid procedure as shown by EmergencyDetailActivity (immutable). title,
+ * keywords and icon drive the emergency catalog; documents without a title get one
+ * derived from the key ("snake_bite" -> "Snake Bite").
+ */
+public final class Procedure {
+
+    public final String key;
+    public final List<String> doList;
+    public final List<String> dontList;
+    public final List<String> voiceScript;
+    public final List<String> images;
+    public final String title;
+    public final List<String> keywords;
+    public final String icon; // URL or bundled drawable name; null when none
+
+    public Procedure(String key, List<String> doList, List<String> dontList,
+                     List<String> voiceScript, List<String> images) {
+        this(key, doList, dontList, voiceScript, images, null, null, null);
+    }
+
+    public Procedure(String key, List<String> doList, List<String> dontList,
+                     List<String> voiceScript, List<String> images,
+                     String title, List<String> keywords, String icon) {
+        this.key = key;
+        this.doList = unmodifiable(doList);
+        this.dontList = unmodifiable(dontList);
+        this.voiceScript = unmodifiable(voiceScript);
+        this.images = unmodifiable(images);
+        this.title = title == null || title.trim().isEmpty() ? titleFromKey(key) : title.trim();
+        this.keywords = unmodifiable(keywords);
+        this.icon = icon == null || icon.isEmpty() ? null : icon;
+    }
+
+    /** Build from a Mongo `procedures` document; missing arrays become empty lists. */
+    public static Procedure fromDocument(Document d) {
+        return new Procedure(
+                d.getString("key"),
+                castStringList(d.get("do")),
+                castStringList(d.get("dont")),
+                castStringList(d.get("voiceScript")),
+                castStringList(d.get("images")),
+                d.getString("title"),
+                castStringList(d.get("keywords")),
+                d.getString("icon"));
+    }
+
+    static String titleFromKey(String key) {
+        if (key == null) return "";
+        StringBuilder sb = new StringBuilder(key.length());
+        for (String w : key.split("[_\\s]+")) {
+            if (w.isEmpty()) continue;
+            if (sb.length() > 0) sb.append(' ');
+            sb.append(w.substring(0, 1).toUpperCase(Locale.ROOT)).append(w.substring(1));
+        }
+        return sb.toString();
+    }
+
+    /** Defensive cast helper */
+    public static List<String> castStringList(Object o) {
+        List<String> out = new ArrayList<>();
+        if (o instanceof List<?>) {
+            for (Object item : (List<?>) o) if (item != null) out.add(item.toString());
+        }
+        return out;
+    }
+
+    private static List<String> unmodifiable(List<String> in) {
+        if (in == null || in.isEmpty()) return Collections.emptyList();
+        return Collections.unmodifiableList(new ArrayList<>(in));
+    }
+}
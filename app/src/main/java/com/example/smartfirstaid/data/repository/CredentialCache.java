@@ -0,0 +1,172 @@
+package com.example.smartfirstaid.data.repository;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.Build;
+import android.security.keystore.KeyGenParameterSpec;
+import android.security.keystore.KeyProperties;
+import android.util.Log;
+
+import androidx.annotation.RequiresApi;
+
+import com.example.smartfirstaid.data.db.LocalDb;
+import com.example.smartfirstaid.util.PasswordHasher;
+import com.example.smartfirstaid.util.PasswordUtils;
+
+import org.json.JSONObject;
+
+import java.nio.charset.StandardCharsets;
+import java.security.KeyStore;
+import java.security.MessageDigest;
+
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+
+/**
+ * Encrypted, on-device copy of the password verifier (salt, hash, parameters) and
+ * display fields from the last successful sign-in per phone, so repeat sign-ins are
+ * checked locally and work offline. Entries are AES-GCM encrypted with a non-exportable
+ * Android Keystore key and stored under a SHA-256 of the phone number.
+ * Needs API 23 (Keystore AES); on older devices the cache is disabled and sign-in stays online-only.
+ */
+public final class CredentialCache {
+    private static final String TAG = "CredentialCache";
+    private static final String KEY_ALIAS = "sfa_credential_cache";
+    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final int GCM_TAG_BITS = 128;
+    private static final int GCM_IV_BYTES = 12;
+
+    /** What a local sign-in needs. */
+    public static final class Entry {
+        public final PasswordHasher.Hashed verifier;
+        public final String username;
+        public final int age;
+
+        public Entry(PasswordHasher.Hashed verifier, String username, int age) {
+            this.verifier = verifier;
+            this.username = username;
+            this.age = age;
+        }
+    }
+
+    private static volatile CredentialCache instance;
+
+    private final LocalDb localDb;
+
+    public static CredentialCache get(Context context) {
+        if (instance == null) {
+            synchronized (CredentialCache.class) {
+                if (instance == null) instance = new CredentialCache(context);
+            }
+        }
+        return instance;
+    }
+
+    private CredentialCache(Context context) {
+        localDb = LocalDb.get(context);
+    }
+
+    public static boolean isSupported() {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.M;
+    }
+
+    /** Cached entry for phone, or null. Blocking. */
+    public Entry load(String phone) {
+        if (!isSupported()) return null;
+        try (Cursor c = localDb.getReadableDatabase().query(LocalDb.T_CREDENTIALS,
+                new String[]{LocalDb.C_BLOB}, LocalDb.C_PHONE_KEY + " = ?",
+                new String[]{phoneKey(phone)}, null, null, null)) {
+            if (!c.moveToFirst()) return null;
+            JSONObject o = new JSONObject(new String(decrypt(PasswordUtils.fromBase64(c.getString(0))),
+                    StandardCharsets.UTF_8));
+            return new Entry(
+                    PasswordHasher.fromStored(o.getString("algo"), o.getInt("iterations"),
+                            o.getString("salt"), o.getString("hash")),
+                    o.optString("username", ""),
+                    o.optInt("age", 0));
+        } catch (Exception e) {
+            // key invalidated (e.g. lock screen removed) or corrupt row: forget it
+            Log.w(TAG, "Dropping unreadable credential entry: " + e.getMessage());
+            remove(phone);
+            return null;
+        }
+    }
+
+    /** Store or replace the entry for phone. Blocking. */
+    public void save(String phone, Entry entry) {
+        if (!isSupported()) return;
+        try {
+            JSONObject o = new JSONObject();
+            o.put("algo", entry.verifier.algorithm);
+            o.put("iterations", entry.verifier.iterations);
+            o.put("salt", PasswordUtils.toBase64(entry.verifier.salt));
+            o.put("hash", PasswordUtils.toBase64(entry.verifier.hash));
+            o.put("username", entry.username);
+            o.put("age", entry.age);
+            byte[] blob = encrypt(o.toString().getBytes(StandardCharsets.UTF_8));
+
+            ContentValues cv = new ContentValues();
+            cv.put(LocalDb.C_PHONE_KEY, phoneKey(phone));
+            cv.put(LocalDb.C_BLOB, PasswordUtils.toBase64(blob));
+            cv.put(LocalDb.C_CREATED_AT, System.currentTimeMillis());
+            localDb.getWritableDatabase().insertWithOnConflict(
+                    LocalDb.T_CREDENTIALS, null, cv, SQLiteDatabase.CONFLICT_REPLACE);
+        } catch (Exception e) {
+            Log.w(TAG, "Could not cache credentials: " + e.getMessage());
+        }
+    }
+
+    public void remove(String phone) {
+        localDb.getWritableDatabase().delete(LocalDb.T_CREDENTIALS,
+                LocalDb.C_PHONE_KEY + " = ?", new String[]{phoneKey(phone)});
+    }
+
+    private static String phoneKey(String phone) {
+        try {
+            byte[] d = MessageDigest.getInstance("SHA-256").digest(phone.getBytes(StandardCharsets.UTF_8));
+            return PasswordUtils.toBase64(d);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @RequiresApi(Build.VERSION_CODES.M)
+    private static byte[] encrypt(byte[] plain) throws Exception {
+        Cipher c = Cipher.getInstance(TRANSFORMATION);
+        c.init(Cipher.ENCRYPT_MODE, key());
+        byte[] iv = c.getIV();
+        byte[] ct = c.doFinal(plain);
+        byte[] out = new byte[iv.length + ct.length];
+        System.arraycopy(iv, 0, out, 0, iv.length);
+        System.arraycopy(ct, 0, out, iv.length, ct.length);
+        return out;
+    }
+
+    @RequiresApi(Build.VERSION_CODES.M)
+    private static byte[] decrypt(byte[] blob) throws Exception {
+        Cipher c = Cipher.getInstance(TRANSFORMATION);
+        c.init(Cipher.DECRYPT_MODE, key(), new GCMParameterSpec(GCM_TAG_BITS, blob, 0, GCM_IV_BYTES));
+        return c.doFinal(blob, GCM_IV_BYTES, blob.length - GCM_IV_BYTES);
+    }
+
+    @RequiresApi(Build.VERSION_CODES.M)
+    private static synchronized SecretKey key() throws Exception {
+        KeyStore ks = KeyStore.getInstance("AndroidKeyStore");
+        ks.load(null);
+        if (!ks.containsAlias(KEY_ALIAS)) {
+            KeyGenerator kg = KeyGenerator.getInstance(KeyProperties.KEY_ALGORITHM_AES, "AndroidKeyStore");
+            kg.init(new KeyGenParameterSpec.Builder(KEY_ALIAS,
+                    KeyProperties.PURPOSE_ENCRYPT | KeyProperties.PURPOSE_DECRYPT)
+                    .setBlockModes(KeyProperties.BLOCK_MODE_GCM)
+                    .setEncryptionPaddings(KeyProperties.ENCRYPTION_PADDING_NONE)
+                    .setKeySize(256)
+                    .build());
+            return kg.generateKey();
+        }
+        return (SecretKey) ks.getKey(KEY_ALIAS, null);
+    }
+}
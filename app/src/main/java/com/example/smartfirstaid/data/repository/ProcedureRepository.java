@@ -0,0 +1,298 @@
+package com.example.smartfirstaid.data.repository;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+import com.example.smartfirstaid.data.db.LocalDb;
+import com.example.smartfirstaid.data.db.MongoHelper;
+import com.example.smartfirstaid.data.db.MongoSchema;
+import com.example.smartfirstaid.data.model.Procedure;
+import com.example.smartfirstaid.data.snapshot.ProcedureSnapshot;
+import com.example.smartfirstaid.util.AppExecutors;
+
+import org.bson.Document;
+import org.json.JSONArray;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Offline-first access to the `procedures` collection.
+ * Reads go memory -> SQLite -> Mongo; Mongo is only hit on a local miss
+ * and every remote hit is written back locally. Refreshes are deltas (see ProcedureSync).
+ * Below SQLite sits the snapshot bundled in the APK, so a fresh install works offline.
+ */
+public final class ProcedureRepository {
+    private static final String TAG = "ProcedureRepository";
+
+    // readRow() result for a key deleted on the server
+    private static final Procedure DELETED =
+            new Procedure("", Collections.<String>emptyList(), Collections.<String>emptyList(),
+                    Collections.<String>emptyList(), Collections.<String>emptyList());
+
+    private static volatile ProcedureRepository instance;
+
+    private final LocalDb localDb;
+    private final ProcedureSnapshot snapshot;
+    private final ProcedureSync sync;
+    private final Map<String, Procedure> memory = new ConcurrentHashMap<>();
+
+    // the sync in progress and who wants to hear that it changed something; guarded by syncLock
+    private final Object syncLock = new Object();
+    private FutureTask<ProcedureSync.Report> runningSync;
+    private final List<Runnable> syncListeners = new ArrayList<>();
+
+    public static ProcedureRepository get(Context context) {
+        if (instance == null) {
+            synchronized (ProcedureRepository.class) {
+                if (instance == null) instance = new ProcedureRepository(context);
+            }
+        }
+        return instance;
+    }
+
+    private ProcedureRepository(Context context) {
+        localDb = LocalDb.get(context);
+        snapshot = ProcedureSnapshot.open(context.getApplicationContext());
+        sync = new ProcedureSync(localDb, this);
+    }
+
+    /** Memory-only lookup, safe to call on the main thread. */
+    public Procedure peek(String key) {
+        return key == null ? null : memory.get(key);
+    }
+
+    /** Local lookup (memory, SQLite, bundled snapshot). Returns null on a miss; never touches the network. */
+    public Procedure getLocal(String key) {
+        if (key == null) return null;
+        Procedure p = memory.get(key);
+        if (p != null) return p;
+        p = readRow(key);
+        if (p == DELETED) return null;
+        if (p == null && snapshot != null) p = snapshot.get(key);
+        if (p != null) memory.put(key, p);
+        return p;
+    }
+
+    /** Load every locally stored procedure into memory. Blocking; returns the row count. */
+    public int loadAllLocal() {
+        int n = 0;
+        try (Cursor c = localDb.getReadableDatabase().query(LocalDb.T_PROCEDURES,
+                new String[]{LocalDb.C_KEY, LocalDb.C_DO, LocalDb.C_DONT, LocalDb.C_VOICE, LocalDb.C_IMAGES,
+                        LocalDb.C_TITLE, LocalDb.C_KEYWORDS, LocalDb.C_ICON},
+                LocalDb.C_DELETED + " = 0", null, null, null, null)) {
+            while (c.moveToNext()) {
+                Procedure p = new Procedure(c.getString(0),
+                        fromJson(c.getString(1)),
+                        fromJson(c.getString(2)),
+                        fromJson(c.getString(3)),
+                        fromJson(c.getString(4)),
+                        c.getString(5),
+                        fromJson(c.getString(6)),
+                        c.getString(7));
+                memory.put(p.key, p);
+                n++;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Every procedure available offline: what is in memory plus bundled snapshot entries
+     * not replaced or deleted since. Blocking when a snapshot is present.
+     */
+    public List<Procedure> allLocal() {
+        if (snapshot != null) {
+            Set<String> deleted = deletedKeys();
+            for (String key : snapshot.keys()) {
+                if (memory.containsKey(key) || deleted.contains(key)) continue;
+                Procedure p = readRow(key);
+                if (p == null) p = snapshot.get(key);
+                if (p != null && p != DELETED) memory.put(key, p);
+            }
+        }
+        return new ArrayList<>(memory.values());
+    }
+
+    ProcedureSnapshot snapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Local lookup with a Mongo fallback on a miss. Blocking; call off the main thread.
+     * Returns null when the key exists nowhere.
+     */
+    public Procedure load(String key) {
+        Procedure p = getLocal(key);
+        if (p != null) return p;
+
+        Document d = MongoHelper.procedures()
+                .find(MongoSchema.procedureByKey(key))
+                .projection(new Document("_id", 0))
+                .first();
+        if (d == null || Boolean.TRUE.equals(d.getBoolean("deleted"))) return null;
+        p = Procedure.fromDocument(d);
+        // no version: the next delta sync still overwrites this copy
+        writeRow(localDb.getWritableDatabase(), p, 0, 0);
+        remember(p);
+        return p;
+    }
+
+    /**
+     * Pull procedures changed since the last sync into the local store. Blocking.
+     * One sync runs at a time: a caller arriving during one waits for it and gets its report,
+     * so two runs never race each other's mark or rows.
+     */
+    public ProcedureSync.Report sync() {
+        FutureTask<ProcedureSync.Report> task;
+        boolean mine = false;
+        synchronized (syncLock) {
+            task = runningSync;
+            if (task == null) {
+                task = runningSync = new FutureTask<>(sync::run);
+                mine = true;
+            }
+        }
+        if (mine) {
+            task.run();
+            finishSync(task);
+        }
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new ProcedureSync.Report(0, 0, 0, 0, false);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    /** Fire-and-forget sync; joins the running one if there is one. */
+    public void syncInBackground() {
+        syncInBackground(null);
+    }
+
+    /** As {@link #syncInBackground()}; onChanged runs on the main thread if that sync changed anything. */
+    public void syncInBackground(Runnable onChanged) {
+        synchronized (syncLock) {
+            if (onChanged != null) syncListeners.add(onChanged);
+            // the running sync hands its outcome to onChanged when it finishes
+            if (runningSync != null) return;
+        }
+        AppExecutors.io().execute(() -> {
+            try {
+                sync();
+            } catch (RuntimeException e) {
+                Log.w(TAG, "Procedure sync failed: " + e.getMessage());
+            }
+        });
+    }
+
+    private void finishSync(FutureTask<ProcedureSync.Report> task) {
+        List<Runnable> listeners;
+        synchronized (syncLock) {
+            runningSync = null;
+            listeners = new ArrayList<>(syncListeners);
+            syncListeners.clear();
+        }
+        ProcedureSync.Report report;
+        try {
+            report = task.get(); // already done
+        } catch (InterruptedException | ExecutionException e) {
+            return;
+        }
+        Log.d(TAG, "Procedure sync: " + report);
+        if (report.changed + report.deleted == 0) return;
+        for (Runnable r : listeners) AppExecutors.main().execute(r);
+    }
+
+    void remember(Procedure p) {
+        memory.put(p.key, p);
+    }
+
+    void forget(String key) {
+        memory.remove(key);
+    }
+
+    void writeRow(SQLiteDatabase db, Procedure p, long updatedAt, long version) {
+        ContentValues cv = new ContentValues();
+        cv.put(LocalDb.C_KEY, p.key);
+        cv.put(LocalDb.C_DO, toJson(p.doList));
+        cv.put(LocalDb.C_DONT, toJson(p.dontList));
+        cv.put(LocalDb.C_VOICE, toJson(p.voiceScript));
+        cv.put(LocalDb.C_IMAGES, toJson(p.images));
+        cv.put(LocalDb.C_TITLE, p.title);
+        cv.put(LocalDb.C_KEYWORDS, toJson(p.keywords));
+        cv.put(LocalDb.C_ICON, p.icon);
+        cv.put(LocalDb.C_SYNCED_AT, System.currentTimeMillis());
+        cv.put(LocalDb.C_UPDATED_AT, Math.max(updatedAt, 0));
+        cv.put(LocalDb.C_VERSION, version);
+        cv.put(LocalDb.C_DELETED, 0);
+        db.insertWithOnConflict(LocalDb.T_PROCEDURES, null, cv, SQLiteDatabase.CONFLICT_REPLACE);
+    }
+
+    /** Keeps a tombstone row rather than deleting, so the snapshot copy does not resurface. */
+    void deleteRow(SQLiteDatabase db, String key, long updatedAt, long version) {
+        ContentValues cv = new ContentValues();
+        cv.put(LocalDb.C_KEY, key);
+        cv.put(LocalDb.C_SYNCED_AT, System.currentTimeMillis());
+        cv.put(LocalDb.C_UPDATED_AT, Math.max(updatedAt, 0));
+        cv.put(LocalDb.C_VERSION, version);
+        cv.put(LocalDb.C_DELETED, 1);
+        db.insertWithOnConflict(LocalDb.T_PROCEDURES, null, cv, SQLiteDatabase.CONFLICT_REPLACE);
+    }
+
+    private Set<String> deletedKeys() {
+        Set<String> out = new HashSet<>();
+        try (Cursor c = localDb.getReadableDatabase().query(LocalDb.T_PROCEDURES,
+                new String[]{LocalDb.C_KEY}, LocalDb.C_DELETED + " = 1", null, null, null, null)) {
+            while (c.moveToNext()) out.add(c.getString(0));
+        }
+        return out;
+    }
+
+    private Procedure readRow(String key) {
+        SQLiteDatabase db = localDb.getReadableDatabase();
+        try (Cursor c = db.query(LocalDb.T_PROCEDURES,
+                new String[]{LocalDb.C_DO, LocalDb.C_DONT, LocalDb.C_VOICE, LocalDb.C_IMAGES, LocalDb.C_DELETED,
+                        LocalDb.C_TITLE, LocalDb.C_KEYWORDS, LocalDb.C_ICON},
+                LocalDb.C_KEY + " = ?", new String[]{key}, null, null, null)) {
+            if (!c.moveToFirst()) return null;
+            if (c.getInt(4) != 0) return DELETED;
+            return new Procedure(key,
+                    fromJson(c.getString(0)),
+                    fromJson(c.getString(1)),
+                    fromJson(c.getString(2)),
+                    fromJson(c.getString(3)),
+                    c.getString(5),
+                    fromJson(c.getString(6)),
+                    c.getString(7));
+        }
+    }
+
+    private static String toJson(List<String> items) {
+        return new JSONArray(items).toString();
+    }
+
+    private static List<String> fromJson(String json) {
+        List<String> out = new ArrayList<>();
+        if (json == null) return out;
+        try {
+            JSONArray arr = new JSONArray(json);
+            for (int i = 0; i < arr.length(); i++) out.add(arr.optString(i, ""));
+        } catch (Exception e) {
+            Log.w(TAG, "Corrupt cached list: " + e.getMessage());
+        }
+        return out;
+    }
+}
@@ -0,0 +1,260 @@
+package com.example.smartfirstaid.data.repository;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.example.smartfirstaid.data.db.LocalDb;
+import com.example.smartfirstaid.data.db.MongoHelper;
+import com.example.smartfirstaid.data.db.MongoSchema;
+import com.example.smartfirstaid.data.model.Procedure;
+import com.example.smartfirstaid.data.snapshot.ProcedureSnapshot;
+import com.mongodb.client.MongoCursor;
+
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.DocumentCodec;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Incremental pull of the `procedures` collection.
+ *
+ * Protocol: writers stamp every change with `updatedAt` (server time) and bump `version`;
+ * deleting a procedure means leaving a tombstone `{key, deleted: true, updatedAt}`. The
+ * client keeps a high-water mark (updatedAt, key) and asks only for documents after it,
+ * in (updatedAt, key) order, projected to the fields the detail screen shows. Each page
+ * is stored in the same SQLite transaction as the advanced mark, so an interrupted run
+ * resumes where it stopped. Documents that predate `updatedAt` are pulled once, by key,
+ * before the dated phase starts. A fresh install starts from the bundled snapshot's mark.
+ */
+public final class ProcedureSync {
+    private static final String TAG = "ProcedureSync";
+
+    private static final String STATE_NAME = MongoHelper.PROCEDURES;
+    private static final int PAGE = 50;
+    // mark value while pulling documents that have no updatedAt yet
+    private static final long UNDATED = LocalDb.HWM_UNDATED;
+
+    // shapes live in MongoSchema, which explains them against the indexes
+    private static final Document PROJECTION = MongoSchema.procedureSyncProjection();
+    private static final DocumentCodec CODEC = new DocumentCodec();
+
+    /** Outcome of one run; bytes are BSON document bytes received. */
+    public static final class Report {
+        public final int changed;
+        public final int deleted;
+        public final long bytes;
+        public final long millis;
+        public final boolean complete;
+
+        Report(int changed, int deleted, long bytes, long millis, boolean complete) {
+            this.changed = changed;
+            this.deleted = deleted;
+            this.bytes = bytes;
+            this.millis = millis;
+            this.complete = complete;
+        }
+
+        @Override
+        public String toString() {
+            return changed + " changed, " + deleted + " deleted, " + bytes + " bytes in " + millis + " ms"
+                    + (complete ? "" : " (interrupted, will resume)");
+        }
+    }
+
+    static final class Mark {
+        final long ts;
+        final String key;
+
+        Mark(long ts, String key) {
+            this.ts = ts;
+            this.key = key;
+        }
+    }
+
+    static final class Change {
+        final String key;
+        final boolean deleted;
+        final Procedure procedure;
+        final long updatedAt;
+        final long version;
+
+        Change(Document d) {
+            key = d.getString("key");
+            deleted = Boolean.TRUE.equals(d.getBoolean("deleted"));
+            procedure = deleted ? null : Procedure.fromDocument(d);
+            Date ts = d.getDate("updatedAt");
+            updatedAt = ts != null ? ts.getTime() : UNDATED;
+            Object v = d.get("version");
+            version = v instanceof Number ? ((Number) v).longValue() : 0;
+        }
+    }
+
+    /**
+     * Mark and page bookkeeping of a run, apart from where the changes come from. Changes are
+     * offered in mark order; every full page is stored together with the mark after its last
+     * change, and the end of the undated scan moves the mark to the start of the dated phase.
+     */
+    static final class Pager {
+        interface Store {
+            /** Store the page and the mark after it in one transaction. */
+            void commit(List<Change> page, Mark next);
+
+            void writeMark(Mark mark);
+        }
+
+        private final Store store;
+        private final int size;
+        private final List<Change> page;
+        private Mark mark;
+        int changed;
+        int deleted;
+
+        Pager(Store store, int size, Mark start) {
+            this.store = store;
+            this.size = size;
+            this.page = new ArrayList<>(size);
+            this.mark = start;
+        }
+
+        /** Where the next scan starts. */
+        Mark mark() {
+            return mark;
+        }
+
+        void offer(Change c) {
+            page.add(c);
+            if (page.size() == size) flush();
+        }
+
+        /** Call when a scan is exhausted; true when another scan should follow from {@link #mark()}. */
+        boolean endOfScan() {
+            flush();
+            if (mark.ts != UNDATED) return false;
+            // undated documents done; from now on only follow updatedAt
+            mark = new Mark(0, "");
+            store.writeMark(mark);
+            return true;
+        }
+
+        private void flush() {
+            if (page.isEmpty()) return;
+            Change last = page.get(page.size() - 1);
+            Mark next = new Mark(mark.ts == UNDATED ? UNDATED : last.updatedAt, last.key);
+            store.commit(page, next);
+            mark = next;
+            for (Change c : page) if (c.deleted) deleted++; else changed++;
+            page.clear();
+        }
+    }
+
+    private final LocalDb localDb;
+    private final ProcedureRepository repo;
+
+    // SQLite side of a run: rows and mark in one transaction, then publish to memory
+    private final Pager.Store store = new Pager.Store() {
+        @Override
+        public void commit(List<Change> page, Mark next) {
+            SQLiteDatabase db = localDb.getWritableDatabase();
+            db.beginTransaction();
+            try {
+                for (Change c : page) {
+                    if (c.deleted) repo.deleteRow(db, c.key, c.updatedAt, c.version);
+                    else repo.writeRow(db, c.procedure, c.updatedAt, c.version);
+                }
+                ProcedureSync.writeMark(db, next);
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+            for (Change c : page) {
+                if (c.deleted) repo.forget(c.key);
+                else repo.remember(c.procedure);
+            }
+        }
+
+        @Override
+        public void writeMark(Mark mark) {
+            ProcedureSync.writeMark(localDb.getWritableDatabase(), mark);
+        }
+    };
+
+    ProcedureSync(LocalDb localDb, ProcedureRepository repo) {
+        this.localDb = localDb;
+        this.repo = repo;
+    }
+
+    /**
+     * Pull everything after the stored mark. Blocking; never throws, see {@link Report#complete}.
+     * Not reentrant: go through {@link ProcedureRepository#sync()}, which never overlaps two runs.
+     */
+    public Report run() {
+        long start = SystemClock.elapsedRealtime();
+        Pager pager = null;
+        long bytes = 0;
+        try {
+            pager = new Pager(store, PAGE, startMark(storedMark(), repo.snapshot()));
+            do {
+                Mark mark = pager.mark();
+                try (MongoCursor<RawBsonDocument> cursor = MongoHelper.procedures()
+                        .withDocumentClass(RawBsonDocument.class)
+                        .find(filterAfter(mark))
+                        .projection(PROJECTION)
+                        .sort(mark.ts == UNDATED
+                                ? MongoSchema.undatedProceduresSort()
+                                : MongoSchema.proceduresAfterSort())
+                        .batchSize(PAGE)
+                        .iterator()) {
+                    while (cursor.hasNext()) {
+                        RawBsonDocument raw = cursor.next();
+                        bytes += raw.getByteBuffer().remaining();
+                        Change c = new Change(raw.decode(CODEC));
+                        if (c.key != null) pager.offer(c);
+                    }
+                }
+            } while (pager.endOfScan());
+            return new Report(pager.changed, pager.deleted, bytes, SystemClock.elapsedRealtime() - start, true);
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Procedure sync interrupted: " + e.getMessage());
+            return new Report(pager != null ? pager.changed : 0, pager != null ? pager.deleted : 0,
+                    bytes, SystemClock.elapsedRealtime() - start, false);
+        }
+    }
+
+    /** Where a run starts: the stored mark, else the bundled snapshot's, else the undated phase. */
+    static Mark startMark(Mark stored, ProcedureSnapshot snapshot) {
+        if (stored != null) return stored;
+        // first sync: a bundled snapshot already covers everything up to its own mark
+        if (snapshot != null && snapshot.markTs() >= 0) {
+            return new Mark(snapshot.markTs(), snapshot.markKey());
+        }
+        return new Mark(UNDATED, "");
+    }
+
+    private static Document filterAfter(Mark mark) {
+        return mark.ts == UNDATED
+                ? MongoSchema.undatedProceduresAfter(mark.key)
+                : MongoSchema.proceduresAfter(new Date(mark.ts), mark.key);
+    }
+
+    private Mark storedMark() {
+        try (Cursor c = localDb.getReadableDatabase().query(LocalDb.T_SYNC_STATE,
+                new String[]{LocalDb.C_HWM_TS, LocalDb.C_HWM_KEY},
+                LocalDb.C_NAME + " = ?", new String[]{STATE_NAME}, null, null, null)) {
+            return c.moveToFirst() ? new Mark(c.getLong(0), c.getString(1)) : null;
+        }
+    }
+
+    private static void writeMark(SQLiteDatabase db, Mark mark) {
+        ContentValues cv = new ContentValues();
+        cv.put(LocalDb.C_NAME, STATE_NAME);
+        cv.put(LocalDb.C_HWM_TS, mark.ts);
+        cv.put(LocalDb.C_HWM_KEY, mark.key);
+        db.insertWithOnConflict(LocalDb.T_SYNC_STATE, null, cv, SQLiteDatabase.CONFLICT_REPLACE);
+    }
+}
@@ -0,0 +1,255 @@
+package com.example.smartfirstaid.data.repository;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+import com.example.smartfirstaid.data.db.LocalDb;
+import com.example.smartfirstaid.data.db.MongoHelper;
+import com.example.smartfirstaid.net.RetryPolicy;
+import com.example.smartfirstaid.util.AppExecutors;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.bulk.BulkWriteUpsert;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.WriteModel;
+
+import org.bson.Document;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Durable write-behind log for Mongo updates. append() records the write in SQLite and
+ * returns at once; flush() sends due entries per collection as one unordered bulkWrite.
+ *
+ * Every entry has an op key: appending with a key that is still pending replaces it
+ * (so ten sign-ins offline become one lastLoginAt write), and upserts stamp it into the
+ * inserted document as {@link #OP_ID_FIELD} so a replay after a lost acknowledgement is
+ * recognised as our own insert rather than a conflict. Writes themselves must be
+ * idempotent ($set, $max, $setOnInsert) since an entry may be applied more than once.
+ */
+public final class WriteJournal {
+    private static final String TAG = "WriteJournal";
+
+    public static final String UPDATE = "update";
+    public static final String UPSERT = "upsert";
+    public static final String OP_ID_FIELD = "journalOpId";
+
+    private static final int BATCH = 100;
+    private static final int DUPLICATE_KEY = 11000;
+    // network failures retry forever; only the spacing grows
+    private static final RetryPolicy BACKOFF = new RetryPolicy(Integer.MAX_VALUE, 2_000, 10 * 60_000, 0);
+
+    private static volatile WriteJournal instance;
+
+    private final Context app;
+    private final LocalDb localDb;
+    private final AtomicBoolean flushQueued = new AtomicBoolean();
+
+    public static WriteJournal get(Context context) {
+        if (instance == null) {
+            synchronized (WriteJournal.class) {
+                if (instance == null) instance = new WriteJournal(context.getApplicationContext());
+            }
+        }
+        return instance;
+    }
+
+    private WriteJournal(Context app) {
+        this.app = app;
+        this.localDb = LocalDb.get(app);
+    }
+
+    /** Record a single-document update (or upsert) and schedule a flush. Blocking on SQLite only. */
+    public void append(String collection, String opKey, String kind, Document filter, Document update) {
+        if (UPSERT.equals(kind)) {
+            Document onInsert = update.get("$setOnInsert", Document.class);
+            if (onInsert == null) throw new IllegalArgumentException("upsert needs $setOnInsert");
+            onInsert.put(OP_ID_FIELD, opKey);
+        }
+        ContentValues cv = new ContentValues();
+        cv.put(LocalDb.C_OP_KEY, opKey);
+        cv.put(LocalDb.C_COLLECTION, collection);
+        cv.put(LocalDb.C_KIND, kind);
+        cv.put(LocalDb.C_FILTER, filter.toJson());
+        cv.put(LocalDb.C_UPDATE, update.toJson());
+        cv.put(LocalDb.C_CREATED_AT, System.currentTimeMillis());
+        localDb.getWritableDatabase().insertWithOnConflict(
+                LocalDb.T_JOURNAL, null, cv, SQLiteDatabase.CONFLICT_REPLACE);
+        flushAsync();
+    }
+
+    public int pendingCount() {
+        try (Cursor c = localDb.getReadableDatabase().rawQuery(
+                "SELECT COUNT(*) FROM " + LocalDb.T_JOURNAL, null)) {
+            return c.moveToFirst() ? c.getInt(0) : 0;
+        }
+    }
+
+    public void flushAsync() {
+        if (flushQueued.compareAndSet(false, true)) {
+            AppExecutors.io().execute(() -> {
+                flushQueued.set(false);
+                flush();
+            });
+        }
+    }
+
+    /** Push every due entry. Returns how many were applied (or dropped as permanent failures). Blocking. */
+    public synchronized int flush() {
+        int done = 0;
+        while (true) {
+            List<Entry> due = loadDue();
+            if (due.isEmpty()) return done;
+
+            Map<String, List<Entry>> byCollection = new LinkedHashMap<>();
+            for (Entry e : due) {
+                List<Entry> list = byCollection.get(e.collection);
+                if (list == null) byCollection.put(e.collection, list = new ArrayList<>());
+                list.add(e);
+            }
+            for (Map.Entry<String, List<Entry>> group : byCollection.entrySet()) {
+                try {
+                    done += flushBatch(group.getKey(), group.getValue());
+                } catch (RuntimeException e) {
+                    // server unreachable or not configured; keep everything and back off
+                    Log.d(TAG, "Flush deferred (" + pendingCount() + " pending): " + e.getMessage());
+                    backOff(due);
+                    return done;
+                }
+            }
+            if (due.size() < BATCH) return done;
+        }
+    }
+
+    private int flushBatch(String collection, List<Entry> batch) {
+        List<WriteModel<Document>> models = new ArrayList<>(batch.size());
+        for (Entry e : batch) {
+            models.add(new UpdateOneModel<>(e.filter, e.update,
+                    new UpdateOptions().upsert(UPSERT.equals(e.kind))));
+        }
+
+        BulkWriteResult result;
+        Map<Integer, BulkWriteError> errors = new LinkedHashMap<>();
+        try {
+            result = MongoHelper.collection(collection)
+                    .bulkWrite(models, new BulkWriteOptions().ordered(false));
+        } catch (MongoBulkWriteException e) {
+            // unordered: everything without a write error was applied
+            result = e.getWriteResult();
+            for (BulkWriteError err : e.getWriteErrors()) errors.put(err.getIndex(), err);
+        }
+
+        Set<Integer> upserted = new HashSet<>();
+        for (BulkWriteUpsert u : result.getUpserts()) upserted.add(u.getIndex());
+
+        for (int i = 0; i < batch.size(); i++) {
+            Entry e = batch.get(i);
+            BulkWriteError err = errors.get(i);
+            if (err != null && err.getCode() != DUPLICATE_KEY) {
+                Log.w(TAG, "Dropping " + e.opKey + ": " + err.getMessage());
+            } else if (UPSERT.equals(e.kind) && !upserted.contains(i)) {
+                // matched an existing document, or lost a unique-index race: ours only if it carries our op key
+                checkOwnInsert(collection, e);
+            }
+        }
+        delete(batch);
+        return batch.size();
+    }
+
+    private void checkOwnInsert(String collection, Entry e) {
+        Document existing = MongoHelper.collection(collection).find(e.filter)
+                .projection(new Document(OP_ID_FIELD, 1)).first();
+        if (existing != null && e.opKey.equals(existing.getString(OP_ID_FIELD))) return;
+
+        Log.w(TAG, "Upsert " + e.opKey + " conflicted with an existing document");
+        // an offline registration whose phone was taken meanwhile: stop verifying it locally
+        Object phone = e.filter.get("phone");
+        if (MongoHelper.USER_DETAILS.equals(collection) && phone instanceof String) {
+            CredentialCache.get(app).remove((String) phone);
+        }
+    }
+
+    private List<Entry> loadDue() {
+        List<Entry> out = new ArrayList<>();
+        try (Cursor c = localDb.getReadableDatabase().query(LocalDb.T_JOURNAL,
+                new String[]{LocalDb.C_ID, LocalDb.C_OP_KEY, LocalDb.C_COLLECTION, LocalDb.C_KIND,
+                        LocalDb.C_FILTER, LocalDb.C_UPDATE, LocalDb.C_ATTEMPTS},
+                LocalDb.C_NEXT_ATTEMPT_AT + " <= ?", new String[]{String.valueOf(System.currentTimeMillis())},
+                null, null, LocalDb.C_ID, String.valueOf(BATCH))) {
+            while (c.moveToNext()) {
+                out.add(new Entry(c.getLong(0), c.getString(1), c.getString(2), c.getString(3),
+                        Document.parse(c.getString(4)), Document.parse(c.getString(5)), c.getInt(6)));
+            }
+        }
+        return out;
+    }
+
+    private void delete(List<Entry> batch) {
+        SQLiteDatabase db = localDb.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            // by row id: a replacement appended during the flush has a new id and survives
+            for (Entry e : batch) {
+                db.delete(LocalDb.T_JOURNAL, LocalDb.C_ID + " = ?", new String[]{String.valueOf(e.id)});
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    private void backOff(List<Entry> batch) {
+        SQLiteDatabase db = localDb.getWritableDatabase();
+        long now = System.currentTimeMillis();
+        long soonest = Long.MAX_VALUE;
+        db.beginTransaction();
+        try {
+            for (Entry e : batch) {
+                long delay = Math.max(BACKOFF.baseDelayMs, BACKOFF.delayMs(e.attempts + 1, null));
+                soonest = Math.min(soonest, delay);
+                ContentValues cv = new ContentValues();
+                cv.put(LocalDb.C_ATTEMPTS, e.attempts + 1);
+                cv.put(LocalDb.C_NEXT_ATTEMPT_AT, now + delay);
+                db.update(LocalDb.T_JOURNAL, cv, LocalDb.C_ID + " = ?", new String[]{String.valueOf(e.id)});
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        AppExecutors.scheduler().schedule(this::flushAsync, soonest, TimeUnit.MILLISECONDS);
+    }
+
+    private static final class Entry {
+        final long id;
+        final String opKey;
+        final String collection;
+        final String kind;
+        final Document filter;
+        final Document update;
+        final int attempts;
+
+        Entry(long id, String opKey, String collection, String kind,
+              Document filter, Document update, int attempts) {
+            this.id = id;
+            this.opKey = opKey;
+            this.collection = collection;
+            this.kind = kind;
+            this.filter = filter;
+            this.update = update;
+            this.attempts = attempts;
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.smartfirstaid.data.snapshot;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.util.Log;
+
+import com.example.smartfirstaid.data.model.Procedure;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read-only view over the procedures snapshot bundled as an asset, so a fresh install
+ * has every procedure before Mongo is ever reached. The file is memory-mapped and
+ * lookups decode only the strings of the requested procedure.
+ *
+ * Layout (big-endian):
+ * <pre>
+ *   header      magic "SFAP", u16 version, u16 flags, i64 createdAt,
+ *               i64 markTs, i32 markKeyId, i32 stringCount, i32 procCount,
+ *               i32 offsetsPos, i32 dataPos, i32 indexPos, i32 recordsPos
+ *   offsets     i32[stringCount + 1], byte offsets into data
+ *   data        UTF-8 bytes of every distinct string
+ *   index       procCount x (i32 keyId, i32 recordOffset), sorted by key
+ *   records     per procedure 5 x (u16 n, i32[n] string ids): do, dont, voiceScript, images,
+ *               keywords; then i32 titleId, i32 iconId (-1 when the procedure has no icon)
+ * </pre>
+ * Version 2 added keywords, title and icon so the emergency catalog is searchable offline.
+ * markTs/markKeyId are the delta-sync high-water mark the snapshot is current to
+ * (-1 when some documents had no updatedAt).
+ */
+public final class ProcedureSnapshot {
+    private static final String TAG = "ProcedureSnapshot";
+
+    public static final String ASSET = "procedures.snap";
+
+    private final ByteBuffer buf;
+    private final long createdAt;
+    private final long markTs;
+    private final int markKeyId;
+    private final int stringCount;
+    private final int procCount;
+    private final int offsetsPos;
+    private final int dataPos;
+    private final int indexPos;
+    private final int recordsPos;
+
+    /** Map the bundled asset; null when the APK has none or it is unreadable. */
+    public static ProcedureSnapshot open(Context context) {
+        try {
+            return wrap(map(context));
+        } catch (IOException e) {
+            Log.i(TAG, "No usable procedure snapshot: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /** Assets stored uncompressed (noCompress in the build) are mapped; others are copied once. */
+    private static ByteBuffer map(Context context) throws IOException {
+        try (AssetFileDescriptor afd = context.getAssets().openFd(ASSET);
+             FileInputStream in = afd.createInputStream()) {
+            return in.getChannel().map(FileChannel.MapMode.READ_ONLY, afd.getStartOffset(), afd.getLength());
+        } catch (IOException compressed) {
+            try (InputStream in = context.getAssets().open(ASSET)) {
+                ByteArrayOutputStream bos = new ByteArrayOutputStream();
+                byte[] chunk = new byte[16 * 1024];
+                int n;
+                while ((n = in.read(chunk)) != -1) bos.write(chunk, 0, n);
+                return ByteBuffer.wrap(bos.toByteArray());
+            }
+        }
+    }
+
+    public static ProcedureSnapshot wrap(ByteBuffer buf) throws IOException {
+        if (buf.capacity() < SnapshotFormat.HEADER_BYTES || buf.getInt(0) != SnapshotFormat.MAGIC) throw new IOException("not a snapshot");
+        if (buf.getShort(4) != SnapshotFormat.FORMAT_VERSION) throw new IOException("unsupported version " + buf.getShort(4));
+        return new ProcedureSnapshot(buf);
+    }
+
+    private ProcedureSnapshot(ByteBuffer buf) {
+        this.buf = buf;
+        createdAt = buf.getLong(8);
+        markTs = buf.getLong(16);
+        markKeyId = buf.getInt(24);
+        stringCount = buf.getInt(28);
+        procCount = buf.getInt(32);
+        offsetsPos = buf.getInt(36);
+        dataPos = buf.getInt(40);
+        indexPos = buf.getInt(44);
+        recordsPos = buf.getInt(48);
+    }
+
+    public int size() {
+        return procCount;
+    }
+
+    public long createdAt() {
+        return createdAt;
+    }
+
+    /** updatedAt of the newest document in the snapshot, or -1. */
+    public long markTs() {
+        return markTs;
+    }
+
+    public String markKey() {
+        return markKeyId < 0 ? "" : string(markKeyId);
+    }
+
+    /** Keys in sorted order. */
+    public List<String> keys() {
+        List<String> out = new ArrayList<>(procCount);
+        for (int i = 0; i < procCount; i++) out.add(string(buf.getInt(indexPos + 8 * i)));
+        return out;
+    }
+
+    /** Binary search over the sorted index; null when the key is not in the snapshot. */
+    public Procedure get(String key) {
+        int lo = 0, hi = procCount - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int cmp = string(buf.getInt(indexPos + 8 * mid)).compareTo(key);
+            if (cmp < 0) lo = mid + 1;
+            else if (cmp > 0) hi = mid - 1;
+            else return record(key, recordsPos + buf.getInt(indexPos + 8 * mid + 4));
+        }
+        return null;
+    }
+
+    private Procedure record(String key, int pos) {
+        List<List<String>> lists = new ArrayList<>(5);
+        for (int l = 0; l < 5; l++) {
+            int n = buf.getShort(pos) & 0xFFFF;
+            pos += 2;
+            List<String> items = new ArrayList<>(n);
+            for (int i = 0; i < n; i++, pos += 4) items.add(string(buf.getInt(pos)));
+            lists.add(items);
+        }
+        String title = string(buf.getInt(pos));
+        int iconId = buf.getInt(pos + 4);
+        return new Procedure(key, lists.get(0), lists.get(1), lists.get(2), lists.get(3),
+                title, lists.get(4), iconId < 0 ? null : string(iconId));
+    }
+
+    private String string(int id) {
+        if (id < 0 || id >= stringCount) throw new IllegalStateException("bad string id " + id);
+        int start = buf.getInt(offsetsPos + 4 * id);
+        int end = buf.getInt(offsetsPos + 4 * (id + 1));
+        byte[] bytes = new byte[end - start];
+        // duplicate(): position changes must not race with other readers
+        ByteBuffer view = buf.duplicate();
+        view.position(dataPos + start);
+        view.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.smartfirstaid.data.snapshot;
+
+import com.example.smartfirstaid.data.model.Procedure;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds a {@link ProcedureSnapshot} file. Pure Java so it runs at build time on the JVM
+ * (the snapshot-export module); the layout is documented on the reader.
+ */
+public final class ProcedureSnapshotWriter {
+
+    private final List<String> strings = new ArrayList<>();
+    private final Map<String, Integer> stringIds = new HashMap<>();
+    private final List<Procedure> procedures = new ArrayList<>();
+    private long markTs = Long.MIN_VALUE;
+    private String markKey = "";
+    private boolean undated;
+
+    /** @param updatedAt the document's updatedAt in ms, or a negative value when it has none */
+    public ProcedureSnapshotWriter add(Procedure p, long updatedAt) {
+        procedures.add(p);
+        if (updatedAt < 0) {
+            undated = true;
+        } else if (updatedAt > markTs || (updatedAt == markTs && p.key.compareTo(markKey) > 0)) {
+            markTs = updatedAt;
+            markKey = p.key;
+        }
+        return this;
+    }
+
+    public byte[] toByteArray(long createdAt) {
+        Collections.sort(procedures, (a, b) -> a.key.compareTo(b.key));
+        strings.clear();
+        stringIds.clear();
+
+        // records first, so the string table is complete before it is laid out
+        ByteBuffer records = ByteBuffer.allocate(recordsCapacity());
+        int[] keyIds = new int[procedures.size()];
+        int[] recordOffsets = new int[procedures.size()];
+        for (int i = 0; i < procedures.size(); i++) {
+            Procedure p = procedures.get(i);
+            keyIds[i] = intern(p.key);
+            recordOffsets[i] = records.position();
+            putList(records, p.doList);
+            putList(records, p.dontList);
+            putList(records, p.voiceScript);
+            putList(records, p.images);
+            putList(records, p.keywords);
+            records.putInt(intern(p.title));
+            records.putInt(p.icon == null ? -1 : intern(p.icon));
+        }
+        int markKeyId = hasMark() ? intern(markKey) : -1;
+
+        List<byte[]> encoded = new ArrayList<>(strings.size());
+        int stringBytes = 0;
+        for (String s : strings) {
+            byte[] b = s.getBytes(StandardCharsets.UTF_8);
+            encoded.add(b);
+            stringBytes += b.length;
+        }
+
+        int offsetsPos = SnapshotFormat.HEADER_BYTES;
+        int dataPos = offsetsPos + 4 * (strings.size() + 1);
+        int indexPos = align4(dataPos + stringBytes);
+        int recordsPos = indexPos + 8 * procedures.size();
+
+        ByteBuffer out = ByteBuffer.allocate(recordsPos + records.position());
+        out.putInt(SnapshotFormat.MAGIC)
+                .putShort(SnapshotFormat.FORMAT_VERSION)
+                .putShort((short) 0)
+                .putLong(createdAt)
+                .putLong(hasMark() ? markTs : -1)
+                .putInt(markKeyId)
+                .putInt(strings.size())
+                .putInt(procedures.size())
+                .putInt(offsetsPos)
+                .putInt(dataPos)
+                .putInt(indexPos)
+                .putInt(recordsPos);
+
+        int off = 0;
+        for (byte[] b : encoded) {
+            out.putInt(off);
+            off += b.length;
+        }
+        out.putInt(off);
+        for (byte[] b : encoded) out.put(b);
+
+        out.position(indexPos);
+        for (int i = 0; i < procedures.size(); i++) out.putInt(keyIds[i]).putInt(recordOffsets[i]);
+        out.put(records.array(), 0, records.position());
+        return out.array();
+    }
+
+    public void writeTo(OutputStream os, long createdAt) throws IOException {
+        os.write(toByteArray(createdAt));
+    }
+
+    /** Delta sync can start after the snapshot only if every document carried updatedAt. */
+    private boolean hasMark() {
+        return !undated && !procedures.isEmpty();
+    }
+
+    private int intern(String s) {
+        Integer id = stringIds.get(s);
+        if (id != null) return id;
+        strings.add(s);
+        stringIds.put(s, strings.size() - 1);
+        return strings.size() - 1;
+    }
+
+    private void putList(ByteBuffer buf, List<String> items) {
+        if (items.size() > 0xFFFF) throw new IllegalArgumentException("list too long: " + items.size());
+        buf.putShort((short) items.size());
+        for (String s : items) buf.putInt(intern(s));
+    }
+
+    private int recordsCapacity() {
+        int n = 0;
+        for (Procedure p : procedures) {
+            n += 5 * 2 + 4 * (p.doList.size() + p.dontList.size() + p.voiceScript.size() + p.images.size()
+                    + p.keywords.size()) + 2 * 4;
+        }
+        return n;
+    }
+
+    private static int align4(int n) {
+        return (n + 3) & ~3;
+    }
+}
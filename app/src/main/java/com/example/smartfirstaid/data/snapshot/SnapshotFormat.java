@@ -0,0 +1,14 @@
+package com.example.smartfirstaid.data.snapshot;
+
+/**
+ * Header constants shared by the snapshot reader and writer; the layout is documented on
+ * {@link ProcedureSnapshot}. No Android types, so the JVM exporter can compile it too.
+ */
+final class SnapshotFormat {
+
+    static final int MAGIC = 0x53464150; // "SFAP"
+    static final short FORMAT_VERSION = 2;
+    static final int HEADER_BYTES = 52;
+
+    private SnapshotFormat() {}
+}
@@ -0,0 +1,138 @@
+package com.example.smartfirstaid.diagnosis;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.LruCache;
+
+import com.example.smartfirstaid.data.db.LocalDb;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Two-tier cache of model diagnoses (the JSON object text), keyed by the
+ * canonical symptom set plus model and prompt version. Memory is an LRU;
+ * the disk tier lives in LocalDb and expires after {@link #TTL_MS}.
+ */
+public final class DiagnosisCache {
+
+    public static final long TTL_MS = TimeUnit.DAYS.toMillis(7);
+    private static final int MEMORY_ENTRIES = 32;
+
+    private static volatile DiagnosisCache instance;
+
+    private final LocalDb localDb;
+    private final LruCache<String, String> memory = new LruCache<>(MEMORY_ENTRIES);
+
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public static DiagnosisCache get(Context context) {
+        if (instance == null) {
+            synchronized (DiagnosisCache.class) {
+                if (instance == null) instance = new DiagnosisCache(context);
+            }
+        }
+        return instance;
+    }
+
+    private DiagnosisCache(Context context) {
+        localDb = LocalDb.get(context);
+    }
+
+    /**
+     * Cache key for a symptom list: lower-cased, trimmed, whitespace-collapsed,
+     * de-duplicated and sorted, so order and casing don't matter.
+     */
+    public static String keyFor(List<String> symptoms, String model, int promptVersion) {
+        TreeSet<String> canon = new TreeSet<>();
+        for (String s : canonicalSymptoms(symptoms)) canon.add(s);
+        StringBuilder sb = new StringBuilder()
+                .append(model).append('|').append(promptVersion);
+        for (String s : canon) sb.append('\n').append(s);
+        return sha256Hex(sb.toString());
+    }
+
+    /** Normalized, de-duplicated symptoms in input order. */
+    public static List<String> canonicalSymptoms(List<String> symptoms) {
+        List<String> out = new ArrayList<>();
+        if (symptoms == null) return out;
+        for (String s : symptoms) {
+            if (s == null) continue;
+            String n = s.trim().toLowerCase(Locale.ROOT).replaceAll("\\s+", " ");
+            if (!n.isEmpty() && !out.contains(n)) out.add(n);
+        }
+        return out;
+    }
+
+    /** Memory lookup only; safe on the main thread. */
+    public String getFromMemory(String key) {
+        String v = memory.get(key);
+        if (v != null) memoryHits.incrementAndGet();
+        return v;
+    }
+
+    /** Memory then disk. Blocking; call off the main thread. */
+    public String get(String key) {
+        String v = getFromMemory(key);
+        if (v != null) return v;
+
+        long minCreated = System.currentTimeMillis() - TTL_MS;
+        SQLiteDatabase db = localDb.getReadableDatabase();
+        try (Cursor c = db.query(LocalDb.T_DIAGNOSES, new String[]{LocalDb.C_JSON},
+                LocalDb.C_CACHE_KEY + " = ? AND " + LocalDb.C_CREATED_AT + " >= ?",
+                new String[]{key, String.valueOf(minCreated)}, null, null, null)) {
+            if (c.moveToFirst()) {
+                v = c.getString(0);
+                memory.put(key, v);
+                diskHits.incrementAndGet();
+                return v;
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /** Store in both tiers. Blocking (disk write). */
+    public void put(String key, String json) {
+        memory.put(key, json);
+        ContentValues cv = new ContentValues();
+        cv.put(LocalDb.C_CACHE_KEY, key);
+        cv.put(LocalDb.C_JSON, json);
+        cv.put(LocalDb.C_CREATED_AT, System.currentTimeMillis());
+        SQLiteDatabase db = localDb.getWritableDatabase();
+        db.insertWithOnConflict(LocalDb.T_DIAGNOSES, null, cv, SQLiteDatabase.CONFLICT_REPLACE);
+        db.delete(LocalDb.T_DIAGNOSES, LocalDb.C_CREATED_AT + " < ?",
+                new String[]{String.valueOf(System.currentTimeMillis() - TTL_MS)});
+    }
+
+    public long memoryHits() { return memoryHits.get(); }
+    public long diskHits() { return diskHits.get(); }
+    public long misses() { return misses.get(); }
+
+    @Override
+    public String toString() {
+        return "memoryHits=" + memoryHits() + " diskHits=" + diskHits() + " misses=" + misses();
+    }
+
+    private static String sha256Hex(String s) {
+        try {
+            byte[] d = MessageDigest.getInstance("SHA-256").digest(s.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(d.length * 2);
+            for (byte b : d) hex.append(String.format(Locale.ROOT, "%02x", b));
+            return hex.toString();
+        } catch (Exception e) {
+            // SHA-256 is always present on Android; fall back to the raw string just in case
+            return s;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.smartfirstaid.diagnosis;
+
+/**
+ * Incremental parser for the diagnosis JSON the model streams back.
+ * Feed it text fragments as they arrive; it reports each top-level string
+ * field and each string array item the moment its closing quote is seen,
+ * so the UI can show "disease" or the first immediate action before the
+ * rest of the answer has been generated. Text before the first '{' is ignored.
+ */
+public final class DiagnosisStreamParser {
+
+    public interface Listener {
+        /** A top-level string field such as "disease" or "criticality" is complete. */
+        void onField(String key, String value);
+        /** One item of a top-level string array such as "immediate_actions" is complete. */
+        void onArrayItem(String key, int index, String value);
+        /** The outer object has been closed. */
+        void onObjectEnd();
+    }
+
+    private final Listener listener;
+
+    // container stack: '{' or '[' for each open level
+    private final char[] stack = new char[32];
+    private int depth;
+    private boolean started;
+    private boolean done;
+
+    private boolean inString;
+    private boolean escape;
+    private int unicodeLeft;
+    private int unicodeValue;
+    private final StringBuilder str = new StringBuilder();
+
+    private boolean expectKey;
+    private String currentKey;
+    private int arrayIndex;
+
+    public DiagnosisStreamParser(Listener listener) {
+        this.listener = listener;
+    }
+
+    public boolean isDone() {
+        return done;
+    }
+
+    /** True once at least the opening brace of the object has been seen. */
+    public boolean hasStarted() {
+        return started;
+    }
+
+    public void feed(CharSequence chunk) {
+        for (int i = 0, n = chunk.length(); i < n && !done; i++) accept(chunk.charAt(i));
+    }
+
+    private void accept(char c) {
+        if (!started) {
+            if (c == '{') {
+                started = true;
+                push('{');
+            }
+            return;
+        }
+
+        if (inString) {
+            acceptStringChar(c);
+            return;
+        }
+
+        switch (c) {
+            case '"':
+                inString = true;
+                str.setLength(0);
+                break;
+            case '{':
+            case '[':
+                if (depth == 1 && c == '[') arrayIndex = 0;
+                push(c);
+                break;
+            case '}':
+            case ']':
+                if (depth > 0) depth--;
+                if (depth == 0) {
+                    done = true;
+                    listener.onObjectEnd();
+                } else if (depth == 1) {
+                    expectKey = false;
+                }
+                break;
+            case ',':
+                if (depth == 1) expectKey = true;
+                break;
+            case ':':
+                if (depth == 1) expectKey = false;
+                break;
+            default:
+                // numbers, literals and whitespace are not rendered
+                break;
+        }
+    }
+
+    private void acceptStringChar(char c) {
+        if (unicodeLeft > 0) {
+            unicodeValue = (unicodeValue << 4) | Character.digit(c, 16);
+            if (--unicodeLeft == 0) str.append((char) unicodeValue);
+            return;
+        }
+        if (escape) {
+            escape = false;
+            switch (c) {
+                case 'n': str.append('\n'); break;
+                case 't': str.append('\t'); break;
+                case 'r': str.append('\r'); break;
+                case 'b': str.append('\b'); break;
+                case 'f': str.append('\f'); break;
+                case 'u': unicodeLeft = 4; unicodeValue = 0; break;
+                default:  str.append(c); break; // \" \\ \/
+            }
+            return;
+        }
+        if (c == '\\') {
+            escape = true;
+        } else if (c == '"') {
+            inString = false;
+            onStringComplete(str.toString());
+        } else {
+            str.append(c);
+        }
+    }
+
+    private void onStringComplete(String s) {
+        if (depth == 1) {
+            if (expectKey) {
+                currentKey = s;
+            } else if (currentKey != null) {
+                listener.onField(currentKey, s);
+            }
+        } else if (depth == 2 && stack[1] == '[' && currentKey != null) {
+            listener.onArrayItem(currentKey, arrayIndex++, s);
+        }
+    }
+
+    private void push(char c) {
+        if (depth < stack.length) stack[depth] = c;
+        depth++;
+        if (depth == 1) expectKey = true;
+    }
+}
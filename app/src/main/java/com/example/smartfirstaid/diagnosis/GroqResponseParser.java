@@ -0,0 +1,250 @@
+package com.example.smartfirstaid.diagnosis;
+
+import android.util.JsonReader;
+import android.util.JsonToken;
+
+import com.example.smartfirstaid.data.model.Diagnosis;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Single-pass parser for non-streaming Groq responses. Walks the envelope with a
+ * JsonReader (no intermediate JSONObject tree), takes the first text content it finds
+ * under "output" (Responses API) or "choices" (chat completions), then reads the first
+ * balanced JSON object inside that text straight into a {@link Diagnosis}.
+ */
+public final class GroqResponseParser {
+
+    /** Outcome of a parse: the model text (for diagnostics) and the diagnosis, if any. */
+    public static final class Result {
+        public final String text;
+        public final Diagnosis diagnosis;
+
+        Result(String text, Diagnosis diagnosis) {
+            this.text = text;
+            this.diagnosis = diagnosis;
+        }
+    }
+
+    private GroqResponseParser() {}
+
+    public static Result parse(Reader body) throws IOException {
+        String text = extractText(body);
+        return new Result(text, text == null ? null : parseDiagnosisText(text));
+    }
+
+    /** First textual content of a Groq response envelope, or null. */
+    public static String extractText(Reader body) throws IOException {
+        JsonReader r = new JsonReader(body);
+        r.setLenient(true);
+        String text = null;
+        r.beginObject();
+        while (r.hasNext()) {
+            String name = r.nextName();
+            if (text == null && "output".equals(name) && r.peek() == JsonToken.BEGIN_ARRAY) {
+                text = readOutputArray(r);
+            } else if (text == null && "choices".equals(name) && r.peek() == JsonToken.BEGIN_ARRAY) {
+                text = readChoicesArray(r);
+            } else {
+                r.skipValue();
+            }
+        }
+        return text;
+    }
+
+    /**
+     * Locate the first balanced {...} in free text (braces inside strings and escaped
+     * quotes are handled) and read it into a Diagnosis. Returns null if there is none.
+     */
+    public static Diagnosis parseDiagnosisText(String text) {
+        int start = firstBalancedObject(text);
+        if (start < 0) return null;
+        try {
+            StringReader sr = new StringReader(text);
+            if (sr.skip(start) != start) return null;
+            JsonReader r = new JsonReader(sr);
+            r.setLenient(true);
+            return readDiagnosis(r);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /** Start index of the first '{' if it opens a complete, balanced object; otherwise -1. */
+    static int firstBalancedObject(CharSequence s) {
+        int start = -1;
+        for (int i = 0, n = s.length(); i < n; i++) {
+            if (s.charAt(i) == '{') {
+                start = i;
+                break;
+            }
+        }
+        if (start < 0) return -1;
+
+        int depth = 0;
+        boolean inString = false, escape = false;
+        for (int i = start, n = s.length(); i < n; i++) {
+            char c = s.charAt(i);
+            if (inString) {
+                if (escape) escape = false;
+                else if (c == '\\') escape = true;
+                else if (c == '"') inString = false;
+            } else if (c == '"') {
+                inString = true;
+            } else if (c == '{') {
+                depth++;
+            } else if (c == '}' && --depth == 0) {
+                return start;
+            }
+        }
+        return -1;
+    }
+
+    private static Diagnosis readDiagnosis(JsonReader r) throws IOException {
+        String disease = "—", criticality = "—", possibility = null;
+        List<String> immediate = null, worsen = null;
+        r.beginObject();
+        while (r.hasNext()) {
+            String name = r.nextName();
+            switch (name) {
+                case "disease":           disease = readString(r, "—"); break;
+                case "criticality":       criticality = readString(r, "—"); break;
+                case "possibility":       possibility = readString(r, null); break;
+                case "immediate_actions": immediate = readStringArray(r); break;
+                case "worsen_actions":    worsen = readStringArray(r); break;
+                default:                  r.skipValue(); break;
+            }
+        }
+        r.endObject();
+        return new Diagnosis(disease, criticality, possibility, immediate, worsen, false);
+    }
+
+    private static String readOutputArray(JsonReader r) throws IOException {
+        String text = null;
+        r.beginArray();
+        while (r.hasNext()) {
+            if (text != null || r.peek() != JsonToken.BEGIN_OBJECT) {
+                r.skipValue();
+                continue;
+            }
+            r.beginObject();
+            while (r.hasNext()) {
+                String name = r.nextName();
+                if (text == null && "content".equals(name) && r.peek() == JsonToken.BEGIN_ARRAY) {
+                    text = readContentArray(r);
+                } else if (text == null && "text".equals(name) && r.peek() == JsonToken.STRING) {
+                    text = r.nextString();
+                } else {
+                    r.skipValue();
+                }
+            }
+            r.endObject();
+        }
+        r.endArray();
+        return text;
+    }
+
+    private static String readContentArray(JsonReader r) throws IOException {
+        String text = null;
+        r.beginArray();
+        while (r.hasNext()) {
+            JsonToken t = r.peek();
+            if (text == null && t == JsonToken.STRING) {
+                text = r.nextString();
+            } else if (text == null && t == JsonToken.BEGIN_OBJECT) {
+                text = readTextField(r);
+            } else {
+                r.skipValue();
+            }
+        }
+        r.endArray();
+        return text;
+    }
+
+    private static String readChoicesArray(JsonReader r) throws IOException {
+        String text = null;
+        boolean first = true;
+        r.beginArray();
+        while (r.hasNext()) {
+            if (!first || r.peek() != JsonToken.BEGIN_OBJECT) {
+                r.skipValue();
+                continue;
+            }
+            first = false;
+            r.beginObject();
+            while (r.hasNext()) {
+                String name = r.nextName();
+                if ("message".equals(name) && r.peek() == JsonToken.BEGIN_OBJECT) {
+                    String t = readMessage(r);
+                    if (t != null) text = t;
+                } else if (text == null && "text".equals(name) && r.peek() == JsonToken.STRING) {
+                    text = r.nextString();
+                } else {
+                    r.skipValue();
+                }
+            }
+            r.endObject();
+        }
+        r.endArray();
+        return text;
+    }
+
+    private static String readMessage(JsonReader r) throws IOException {
+        String text = null;
+        r.beginObject();
+        while (r.hasNext()) {
+            String name = r.nextName();
+            if ("content".equals(name)) {
+                JsonToken t = r.peek();
+                if (t == JsonToken.STRING) text = r.nextString();
+                else if (t == JsonToken.BEGIN_OBJECT) text = readTextField(r);
+                else r.skipValue();
+            } else {
+                r.skipValue();
+            }
+        }
+        r.endObject();
+        return text;
+    }
+
+    /** Reads an object and returns its "text" string member, if any. */
+    private static String readTextField(JsonReader r) throws IOException {
+        String text = null;
+        r.beginObject();
+        while (r.hasNext()) {
+            if ("text".equals(r.nextName()) && r.peek() == JsonToken.STRING) text = r.nextString();
+            else r.skipValue();
+        }
+        r.endObject();
+        return text;
+    }
+
+    private static String readString(JsonReader r, String fallback) throws IOException {
+        JsonToken t = r.peek();
+        if (t == JsonToken.NULL) {
+            r.nextNull();
+            return fallback;
+        }
+        if (t == JsonToken.STRING || t == JsonToken.NUMBER || t == JsonToken.BOOLEAN) {
+            return t == JsonToken.BOOLEAN ? String.valueOf(r.nextBoolean()) : r.nextString();
+        }
+        r.skipValue();
+        return fallback;
+    }
+
+    private static List<String> readStringArray(JsonReader r) throws IOException {
+        List<String> out = new ArrayList<>();
+        if (r.peek() != JsonToken.BEGIN_ARRAY) {
+            r.skipValue();
+            return out;
+        }
+        r.beginArray();
+        while (r.hasNext()) out.add(readString(r, ""));
+        r.endArray();
+        return out;
+    }
+}
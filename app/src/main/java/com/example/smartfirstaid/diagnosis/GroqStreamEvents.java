@@ -0,0 +1,40 @@
+package com.example.smartfirstaid.diagnosis;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/** Pulls the generated text out of Groq streaming events (Responses API and chat-completions shapes). */
+public final class GroqStreamEvents {
+
+    public static final String DONE = "[DONE]";
+
+    private GroqStreamEvents() {}
+
+    /** True for the events that end a stream. */
+    public static boolean isTerminal(String event, String data) {
+        if (DONE.equals(data)) return true;
+        return "response.completed".equals(event)
+                || "response.failed".equals(event)
+                || "response.incomplete".equals(event);
+    }
+
+    /** Text fragment carried by this event, or null if it carries none. */
+    public static String deltaText(String event, String data) {
+        if (data == null || data.isEmpty() || DONE.equals(data)) return null;
+        try {
+            JSONObject o = new JSONObject(data);
+            String type = event != null ? event : o.optString("type", "");
+            if ("response.output_text.delta".equals(type)) {
+                return o.optString("delta", null);
+            }
+            JSONArray choices = o.optJSONArray("choices");
+            if (choices != null && choices.length() > 0) {
+                JSONObject delta = choices.getJSONObject(0).optJSONObject("delta");
+                if (delta != null && delta.has("content") && !delta.isNull("content")) {
+                    return delta.optString("content", null);
+                }
+            }
+        } catch (Exception ignored) { }
+        return null;
+    }
+}
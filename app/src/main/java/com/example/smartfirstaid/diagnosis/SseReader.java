@@ -0,0 +1,49 @@
+package com.example.smartfirstaid.diagnosis;
+
+import java.io.IOException;
+
+import okio.BufferedSource;
+
+/**
+ * Minimal server-sent-events reader over an OkHttp body source.
+ * Joins multi-line "data:" fields and hands each event to the callback.
+ */
+public final class SseReader {
+
+    public interface EventHandler {
+        /** Return false to stop reading. */
+        boolean onEvent(String event, String data) throws IOException;
+    }
+
+    private SseReader() {}
+
+    public static void read(BufferedSource source, EventHandler handler) throws IOException {
+        String event = null;
+        StringBuilder data = new StringBuilder();
+        String line;
+        while ((line = source.readUtf8Line()) != null) {
+            if (line.isEmpty()) {
+                if (data.length() > 0 || event != null) {
+                    if (!handler.onEvent(event, data.toString())) return;
+                }
+                event = null;
+                data.setLength(0);
+                continue;
+            }
+            if (line.startsWith(":")) continue; // comment / keep-alive
+
+            int colon = line.indexOf(':');
+            String field = colon < 0 ? line : line.substring(0, colon);
+            String value = colon < 0 ? "" : line.substring(colon + 1);
+            if (value.startsWith(" ")) value = value.substring(1);
+
+            if ("data".equals(field)) {
+                if (data.length() > 0) data.append('\n');
+                data.append(value);
+            } else if ("event".equals(field)) {
+                event = value;
+            }
+        }
+        if (data.length() > 0) handler.onEvent(event, data.toString());
+    }
+}
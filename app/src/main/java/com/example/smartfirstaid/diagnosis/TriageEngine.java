@@ -0,0 +1,197 @@
+package com.example.smartfirstaid.diagnosis;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.example.smartfirstaid.data.model.Diagnosis;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * On-device symptom triage, used before (and instead of, when offline) the Groq call.
+ * The knowledge base in assets/triage_kb.json is indexed once into an inverted index
+ * term -> (condition, weight); a lookup is a handful of hash probes per symptom word.
+ * Results are the same Diagnosis type the model's answer is parsed into.
+ */
+public final class TriageEngine {
+    private static final String TAG = "TriageEngine";
+    private static final String ASSET = "triage_kb.json";
+    // below this total keyword weight the match is too weak to show
+    private static final int MIN_SCORE = 2;
+
+    private static volatile TriageEngine instance;
+
+    private static final class Condition {
+        String name;
+        String criticality;
+        int totalWeight;
+        List<String> immediate;
+        List<String> worsen;
+    }
+
+    private static final class Posting {
+        final int condition;
+        final int weight;
+
+        Posting(int condition, int weight) {
+            this.condition = condition;
+            this.weight = weight;
+        }
+    }
+
+    private final List<Condition> conditions = new ArrayList<>();
+    private final Map<String, List<Posting>> index = new HashMap<>();
+    private final Map<String, String> synonyms = new HashMap<>();
+    private final Set<String> redFlags = new HashSet<>();
+
+    public static TriageEngine get(Context context) {
+        if (instance == null) {
+            synchronized (TriageEngine.class) {
+                if (instance == null) instance = load(context.getApplicationContext());
+            }
+        }
+        return instance;
+    }
+
+    /** Engine over an in-memory knowledge base, same shape as the asset. */
+    static TriageEngine fromKnowledgeBase(JSONObject kb) throws Exception {
+        TriageEngine e = new TriageEngine();
+        e.build(kb);
+        return e;
+    }
+
+    private static TriageEngine load(Context context) {
+        TriageEngine e = new TriageEngine();
+        try (InputStream in = context.getAssets().open(ASSET)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buf = new byte[8192];
+            int n;
+            while ((n = in.read(buf)) > 0) out.write(buf, 0, n);
+            e.build(new JSONObject(new String(out.toByteArray(), StandardCharsets.UTF_8)));
+        } catch (Exception ex) {
+            Log.e(TAG, "Failed to load " + ASSET, ex);
+        }
+        return e;
+    }
+
+    private void build(JSONObject kb) throws Exception {
+        JSONObject syn = kb.optJSONObject("synonyms");
+        if (syn != null) {
+            Iterator<String> it = syn.keys();
+            while (it.hasNext()) {
+                String k = it.next();
+                synonyms.put(k, syn.getString(k));
+            }
+        }
+        JSONArray flags = kb.optJSONArray("red_flags");
+        if (flags != null) for (int i = 0; i < flags.length(); i++) redFlags.add(flags.getString(i));
+
+        JSONArray conds = kb.getJSONArray("conditions");
+        for (int i = 0; i < conds.length(); i++) {
+            JSONObject o = conds.getJSONObject(i);
+            Condition c = new Condition();
+            c.name = o.getString("name");
+            c.criticality = o.optString("criticality", "moderate");
+            c.immediate = strings(o.optJSONArray("immediate"));
+            c.worsen = strings(o.optJSONArray("worsen"));
+
+            JSONObject kw = o.getJSONObject("keywords");
+            Iterator<String> it = kw.keys();
+            while (it.hasNext()) {
+                String term = it.next();
+                int w = kw.getInt(term);
+                c.totalWeight += w;
+                List<Posting> list = index.get(term);
+                if (list == null) {
+                    list = new ArrayList<>(2);
+                    index.put(term, list);
+                }
+                list.add(new Posting(conditions.size(), w));
+            }
+            conditions.add(c);
+        }
+    }
+
+    /**
+     * Best-matching condition for the symptoms, or null
+     * when nothing in the knowledge base matches well enough.
+     */
+    public Diagnosis triage(List<String> symptoms) {
+        Set<String> terms = new LinkedHashSet<>();
+        for (String s : symptoms) tokenize(s, terms);
+
+        int[] scores = new int[conditions.size()];
+        boolean redFlag = false;
+        for (String t : terms) {
+            if (redFlags.contains(t)) redFlag = true;
+            List<Posting> postings = index.get(t);
+            if (postings == null) continue;
+            for (Posting p : postings) scores[p.condition] += p.weight;
+        }
+
+        int best = -1;
+        double bestCoverage = 0;
+        for (int i = 0; i < scores.length; i++) {
+            if (scores[i] == 0) continue;
+            double coverage = scores[i] / (double) conditions.get(i).totalWeight;
+            if (best < 0 || scores[i] > scores[best]
+                    || (scores[i] == scores[best] && coverage > bestCoverage)) {
+                best = i;
+                bestCoverage = coverage;
+            }
+        }
+        if (best < 0 || scores[best] < MIN_SCORE) return null;
+
+        Condition c = conditions.get(best);
+        return new Diagnosis(c.name,
+                redFlag ? "high" : c.criticality,
+                String.format(Locale.US, "Offline estimate (%d%% keyword match)", Math.round(bestCoverage * 100)),
+                c.immediate, c.worsen, true);
+    }
+
+    private void tokenize(String text, Set<String> out) {
+        if (text == null) return;
+        for (String raw : text.toLowerCase(Locale.ROOT).split("[^a-z]+")) {
+            if (raw.length() < 3) continue;
+            String t = normalize(raw);
+            if (t != null) out.add(t);
+        }
+    }
+
+    private String normalize(String word) {
+        String s = synonyms.get(word);
+        if (s != null) return s;
+        if (index.containsKey(word) || redFlags.contains(word)) return word;
+        // crude plural / tense stripping, then retry
+        String[] suffixes = {"ing", "ed", "es", "s"};
+        for (String suf : suffixes) {
+            if (word.length() > suf.length() + 2 && word.endsWith(suf)) {
+                String stem = word.substring(0, word.length() - suf.length());
+                s = synonyms.get(stem);
+                if (s != null) return s;
+                if (index.containsKey(stem)) return stem;
+            }
+        }
+        return word;
+    }
+
+    private static List<String> strings(JSONArray arr) {
+        List<String> out = new ArrayList<>();
+        if (arr != null) for (int i = 0; i < arr.length(); i++) out.add(arr.optString(i, ""));
+        return out;
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.smartfirstaid.images;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.os.SystemClock;
+import android.util.DisplayMetrics;
+import android.util.Log;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.load.engine.DiskCacheStrategy;
+import com.bumptech.glide.request.FutureTarget;
+import com.example.smartfirstaid.util.AppExecutors;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Procedure images, pre-rendered at the carousel's size into their own directory under
+ * files/ (not cache/), so they are neither evicted by Glide's LRU when the user browses
+ * other content nor cleared by the system under storage pressure. Only {@link #retainOnly}
+ * removes files, once their procedure no longer references them.
+ */
+public final class EmergencyImageCache {
+    private static final String TAG = "EmergencyImageCache";
+    private static final String DIR = "emergency_images";
+
+    // mirrors the carousel in activity_emergency_detail.xml: 440dp tall, 16dp side padding,
+    // 6dp padding inside each page
+    private static final int PAGER_HEIGHT_DP = 440;
+    private static final int PAGER_PADDING_DP = 16;
+    private static final int PAGE_PADDING_DP = 6;
+
+    private static volatile EmergencyImageCache instance;
+
+    private final Context app;
+    private final File dir;
+    private final int width;
+    private final int height;
+    private final Set<String> inFlight = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    public static EmergencyImageCache get(Context context) {
+        if (instance == null) {
+            synchronized (EmergencyImageCache.class) {
+                if (instance == null) instance = new EmergencyImageCache(context.getApplicationContext());
+            }
+        }
+        return instance;
+    }
+
+    private EmergencyImageCache(Context app) {
+        this.app = app;
+        this.dir = new File(app.getFilesDir(), DIR);
+        DisplayMetrics dm = app.getResources().getDisplayMetrics();
+        // the detail screen is used in portrait: take the short edge whatever the current orientation
+        int shortEdge = Math.min(dm.widthPixels, dm.heightPixels);
+        this.width = Math.max(1, shortEdge - Math.round((2 * PAGER_PADDING_DP + 2 * PAGE_PADDING_DP) * dm.density));
+        this.height = Math.max(1, Math.round((PAGER_HEIGHT_DP - 2 * PAGE_PADDING_DP) * dm.density));
+    }
+
+    public int width() {
+        return width;
+    }
+
+    public int height() {
+        return height;
+    }
+
+    /** The pre-rendered file for url, or null if it has not been fetched yet. */
+    public File localFile(String url) {
+        File f = fileFor(url);
+        return f.exists() ? f : null;
+    }
+
+    /** What the carousel should hand to Glide: the local file when present, else the URL. */
+    public Object model(String url) {
+        File f = localFile(url);
+        return f != null ? f : url;
+    }
+
+    public void prefetchAsync(Collection<String> urls) {
+        final List<String> copy = new ArrayList<>(urls);
+        AppExecutors.io().execute(() -> prefetch(copy));
+    }
+
+    /** Fetch every url not yet on disk. Blocking; returns how many were newly stored. */
+    public int prefetch(Collection<String> urls) {
+        int stored = 0;
+        for (String url : urls) {
+            if (url == null || url.isEmpty() || fileFor(url).exists()) continue;
+            if (!inFlight.add(url)) continue;
+            try {
+                if (store(url)) stored++;
+            } finally {
+                inFlight.remove(url);
+            }
+        }
+        return stored;
+    }
+
+    /**
+     * Delete files for urls that are no longer referenced by any procedure. Blocking.
+     * Downloads still running (a detail screen's prefetchAsync) keep their file and temp
+     * file; temp files left behind by a killed process are removed.
+     */
+    public int retainOnly(Collection<String> urls) {
+        Set<String> keep = new HashSet<>();
+        for (String url : urls) keep.add(fileFor(url).getName());
+        File[] files = dir.listFiles();
+        if (files == null) return 0;
+        // after listing: a temp file in the listing belongs to a url already marked in flight
+        for (String url : inFlight) {
+            String name = fileFor(url).getName();
+            keep.add(name);
+            keep.add(name + ".tmp");
+        }
+        int removed = 0;
+        for (File f : files) {
+            if (!keep.contains(f.getName()) && f.delete()) removed++;
+        }
+        return removed;
+    }
+
+    private boolean store(String url) {
+        long start = SystemClock.elapsedRealtime();
+        File target = fileFor(url);
+        File tmp = new File(dir, target.getName() + ".tmp");
+        // decode straight to the page size; Glide's own disk cache is not the long-lived copy
+        FutureTarget<Bitmap> future = Glide.with(app).asBitmap().load(url)
+                .diskCacheStrategy(DiskCacheStrategy.NONE)
+                .skipMemoryCache(true)
+                .centerCrop()
+                .submit(width, height);
+        try {
+            Bitmap bmp = future.get();
+            if (!dir.isDirectory() && !dir.mkdirs()) return false;
+            try (OutputStream os = new FileOutputStream(tmp)) {
+                if (bmp.hasAlpha()) bmp.compress(Bitmap.CompressFormat.PNG, 100, os);
+                else bmp.compress(Bitmap.CompressFormat.JPEG, 90, os);
+            }
+            if (!tmp.renameTo(target)) {
+                Log.w(TAG, "Could not move " + tmp.getName() + " into place for " + url);
+                //noinspection ResultOfMethodCallIgnored
+                tmp.delete();
+                return false;
+            }
+            Log.d(TAG, "Stored " + url + " (" + target.length() + " bytes) in "
+                    + (SystemClock.elapsedRealtime() - start) + " ms");
+            return true;
+        } catch (Exception e) {
+            Log.w(TAG, "Prefetch failed for " + url + ": " + e.getMessage());
+            //noinspection ResultOfMethodCallIgnored
+            tmp.delete();
+            return false;
+        } finally {
+            // the bitmap is on disk or abandoned: give it back to Glide's pool
+            Glide.with(app).clear(future);
+        }
+    }
+
+    // the page size is part of the name, so a different display size re-renders instead of reusing
+    private File fileFor(String url) {
+        try {
+            byte[] d = MessageDigest.getInstance("SHA-256").digest(url.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder(48);
+            for (int i = 0; i < 16; i++) sb.append(String.format(Locale.US, "%02x", d[i]));
+            return new File(dir, sb.append('_').append(width).append('x').append(height).toString());
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.smartfirstaid.images;
+
+import android.content.Context;
+import android.graphics.drawable.Drawable;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.viewpager2.widget.ViewPager2;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.RequestBuilder;
+import com.bumptech.glide.load.engine.DiskCacheStrategy;
+import com.bumptech.glide.request.RequestOptions;
+import com.example.smartfirstaid.util.FrameTimeMonitor;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Looping image carousel for ViewPager2 with a bounded item count. With n > 1 images the
+ * adapter exposes n + 2 pages: [last, 0 .. n-1, first]. When a swipe settles on either
+ * copy at the ends, the pager jumps without animation to the real page, so wrapping is
+ * seamless while positions stay small (accessibility and RecyclerView prefetch work).
+ */
+public final class LoopingImagePagerAdapter extends RecyclerView.Adapter<LoopingImagePagerAdapter.VH> {
+
+    private final List<String> items = new ArrayList<>();
+    private final EmergencyImageCache cache;
+
+    public LoopingImagePagerAdapter(EmergencyImageCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Same model, size and transform for preload and bind, so a bind hits the memory
+     * cache entry the preload made. Local files skip Glide's disk cache; they are one already.
+     */
+    public static RequestBuilder<Drawable> request(Context context, EmergencyImageCache cache, String url) {
+        Object model = cache.model(url);
+        return Glide.with(context)
+                .load(model)
+                .apply(new RequestOptions().centerCrop()
+                        .override(cache.width(), cache.height())
+                        .diskCacheStrategy(model instanceof File
+                                ? DiskCacheStrategy.NONE : DiskCacheStrategy.AUTOMATIC));
+    }
+
+    /**
+     * Wire the adapter to the pager: keep both neighbours bound, wrap at the ends and
+     * measure frame times while the user swipes.
+     */
+    public void attach(ViewPager2 pager, FrameTimeMonitor frames) {
+        pager.setAdapter(this);
+        pager.setOffscreenPageLimit(1);
+        View inner = pager.getChildAt(0);
+        if (inner instanceof RecyclerView) {
+            // room for the two off-screen pages plus the one leaving, so swipes rebind nothing
+            ((RecyclerView) inner).setItemViewCacheSize(3);
+        }
+        pager.registerOnPageChangeCallback(new ViewPager2.OnPageChangeCallback() {
+            @Override
+            public void onPageScrollStateChanged(int state) {
+                if (state == ViewPager2.SCROLL_STATE_DRAGGING) {
+                    frames.start();
+                } else if (state == ViewPager2.SCROLL_STATE_IDLE) {
+                    frames.stop();
+                    int n = items.size();
+                    if (n <= 1) return;
+                    int current = pager.getCurrentItem();
+                    if (current == 0) pager.setCurrentItem(n, false);
+                    else if (current == n + 1) pager.setCurrentItem(1, false);
+                }
+            }
+        });
+    }
+
+    /** Replace the images and return the adapter position of the first real page. */
+    public int setItems(List<String> urls) {
+        items.clear();
+        if (urls != null) items.addAll(urls);
+        notifyDataSetChanged();
+        return items.size() > 1 ? 1 : 0;
+    }
+
+    /** Index into the image list for an adapter position. */
+    int realIndex(int position) {
+        int n = items.size();
+        if (n <= 1) return position;
+        if (position == 0) return n - 1;
+        if (position == n + 1) return 0;
+        return position - 1;
+    }
+
+    @NonNull
+    @Override
+    public VH onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        ImageView iv = new ImageView(parent.getContext());
+        RecyclerView.LayoutParams lp = new RecyclerView.LayoutParams(
+                ViewGroup.LayoutParams.MATCH_PARENT,
+                ViewGroup.LayoutParams.MATCH_PARENT
+        );
+        iv.setLayoutParams(lp);
+        iv.setScaleType(ImageView.ScaleType.CENTER_CROP);
+        int pad = (int) (parent.getContext().getResources().getDisplayMetrics().density * 6);
+        iv.setPadding(pad, pad, pad, pad);
+        return new VH(iv);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull VH holder, int position) {
+        if (items.isEmpty()) return;
+        String url = items.get(realIndex(position));
+        // pre-rendered file when we have one
+        request(holder.imageView.getContext(), cache, url).into(holder.imageView);
+    }
+
+    @Override
+    public void onViewRecycled(@NonNull VH holder) {
+        // hand the bitmap back to Glide's pool before the view is reused
+        Glide.with(holder.imageView.getContext()).clear(holder.imageView);
+    }
+
+    @Override
+    public int getItemCount() {
+        int n = items.size();
+        return n <= 1 ? n : n + 2;
+    }
+
+    static final class VH extends RecyclerView.ViewHolder {
+        final ImageView imageView;
+
+        VH(@NonNull View itemView) {
+            super(itemView);
+            imageView = (ImageView) itemView;
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.example.smartfirstaid.location;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.location.Address;
+import android.location.Geocoder;
+import android.util.Log;
+import android.util.LruCache;
+
+import com.example.smartfirstaid.data.db.LocalDb;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Persistent reverse-geocode cache, so repeat lookups are instant and an address can
+ * still be shown offline. Entries live in LocalDb keyed by a {@link #STORE_PRECISION}
+ * geohash; {@link #nearest} scans the cells around a point at a precision matching the
+ * radius and returns the closest entry inside it. A recently looked-up cell is also
+ * kept in memory for main-thread {@link #peek}.
+ *
+ * An optional {@link #PRELOAD_ASSET} ("lat,lon,name" per line) seeds place names for a
+ * region before the device has ever been online there.
+ */
+public final class GeocodeCache {
+    private static final String TAG = "GeocodeCache";
+
+    public static final String SOURCE_GEOCODER = "geocoder";
+    public static final String SOURCE_PRELOAD = "preload";
+
+    /** ~38 m x 19 m cells: one stored address per building or so. */
+    static final int STORE_PRECISION = 8;
+    public static final double DEFAULT_RADIUS_M = 150;
+    /** Geocoder results older than this are refreshed when online. */
+    public static final long FRESH_MS = TimeUnit.DAYS.toMillis(30);
+
+    static final String PRELOAD_ASSET = "places.csv";
+    private static final String PREFS = "SmartFirstAidPrefs";
+    private static final String PREF_PRELOAD_SIZE = "geocode_preload_size";
+    private static final int MEMORY_ENTRIES = 32;
+
+    public static final class Hit {
+        public final String address;
+        public final String source;
+        public final double distanceM;
+        public final long fetchedAt;
+
+        Hit(String address, String source, double distanceM, long fetchedAt) {
+            this.address = address;
+            this.source = source;
+            this.distanceM = distanceM;
+            this.fetchedAt = fetchedAt;
+        }
+
+        /** A Geocoder address for (about) this spot, young enough not to refetch. */
+        public boolean isExact(double withinM) {
+            return SOURCE_GEOCODER.equals(source) && distanceM <= withinM
+                    && System.currentTimeMillis() - fetchedAt < FRESH_MS;
+        }
+    }
+
+    private static volatile GeocodeCache instance;
+
+    private final Context app;
+    private final LocalDb localDb;
+    private final LruCache<String, Hit> memory = new LruCache<>(MEMORY_ENTRIES);
+
+    public static GeocodeCache get(Context context) {
+        if (instance == null) {
+            synchronized (GeocodeCache.class) {
+                if (instance == null) instance = new GeocodeCache(context.getApplicationContext());
+            }
+        }
+        return instance;
+    }
+
+    private GeocodeCache(Context app) {
+        this.app = app;
+        this.localDb = LocalDb.get(app);
+    }
+
+    /** Memory only, same storage cell; safe on the main thread. */
+    public Hit peek(double lat, double lon) {
+        return memory.get(Geohash.encode(lat, lon, STORE_PRECISION));
+    }
+
+    /** Closest cached address within radiusM, or null. Disk read; call off the main thread. */
+    public Hit nearest(double lat, double lon, double radiusM) {
+        int p = Math.min(STORE_PRECISION, Geohash.precisionFor(radiusM, lat));
+        Hit best = null;
+        SQLiteDatabase db = localDb.getReadableDatabase();
+        for (String cell : Geohash.neighbourhood(Geohash.encode(lat, lon, p))) {
+            // prefix scan on the primary key index
+            try (Cursor c = db.query(LocalDb.T_GEOCODES,
+                    new String[]{LocalDb.C_LAT, LocalDb.C_LON, LocalDb.C_ADDRESS, LocalDb.C_SOURCE, LocalDb.C_FETCHED_AT},
+                    LocalDb.C_GEOHASH + " >= ? AND " + LocalDb.C_GEOHASH + " < ?",
+                    new String[]{cell, cell + "~"}, null, null, null)) {
+                while (c.moveToNext()) {
+                    double d = Geohash.distanceM(lat, lon, c.getDouble(0), c.getDouble(1));
+                    if (d > radiusM || (best != null && !closerOrFresher(d, c.getString(3), best))) continue;
+                    best = new Hit(c.getString(2), c.getString(3), d, c.getLong(4));
+                }
+            }
+        }
+        if (best != null) memory.put(Geohash.encode(lat, lon, STORE_PRECISION), best);
+        return best;
+    }
+
+    // a Geocoder address beats a preloaded place name at about the same distance
+    private static boolean closerOrFresher(double d, String source, Hit best) {
+        if (SOURCE_GEOCODER.equals(source) != SOURCE_GEOCODER.equals(best.source)) {
+            return SOURCE_GEOCODER.equals(source) ? d <= best.distanceM + 50 : d + 50 < best.distanceM;
+        }
+        return d < best.distanceM;
+    }
+
+    /**
+     * Reverse geocode through the platform Geocoder and store the result. Blocking and
+     * possibly networked; returns null when there is no address for the point.
+     */
+    public Hit fetch(double lat, double lon) throws IOException {
+        if (!Geocoder.isPresent()) throw new IOException("no Geocoder on this device");
+        List<Address> addresses = new Geocoder(app, Locale.getDefault()).getFromLocation(lat, lon, 1);
+        if (addresses == null || addresses.isEmpty() || addresses.get(0).getAddressLine(0) == null) return null;
+        String line = addresses.get(0).getAddressLine(0);
+        put(lat, lon, line, SOURCE_GEOCODER, SQLiteDatabase.CONFLICT_REPLACE);
+        Hit hit = new Hit(line, SOURCE_GEOCODER, 0, System.currentTimeMillis());
+        memory.put(Geohash.encode(lat, lon, STORE_PRECISION), hit);
+        return hit;
+    }
+
+    private void put(double lat, double lon, String address, String source, int conflict) {
+        put(localDb.getWritableDatabase(), lat, lon, address, source, conflict);
+    }
+
+    private static void put(SQLiteDatabase db, double lat, double lon, String address, String source, int conflict) {
+        ContentValues cv = new ContentValues();
+        cv.put(LocalDb.C_GEOHASH, Geohash.encode(lat, lon, STORE_PRECISION));
+        cv.put(LocalDb.C_LAT, lat);
+        cv.put(LocalDb.C_LON, lon);
+        cv.put(LocalDb.C_ADDRESS, address);
+        cv.put(LocalDb.C_SOURCE, source);
+        cv.put(LocalDb.C_FETCHED_AT, System.currentTimeMillis());
+        db.insertWithOnConflict(LocalDb.T_GEOCODES, null, cv, conflict);
+    }
+
+    /**
+     * Import {@link #PRELOAD_ASSET} if the APK has one and it changed since the last import.
+     * Never overwrites Geocoder results. Blocking; returns the number of places read.
+     */
+    public int preloadFromAssets() {
+        SharedPreferences prefs = app.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+        int imported = 0;
+        try (InputStream in = app.getAssets().open(PRELOAD_ASSET)) {
+            int size = in.available();
+            if (prefs.getInt(PREF_PRELOAD_SIZE, -1) == size) return 0;
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            SQLiteDatabase db = localDb.getWritableDatabase();
+            db.beginTransaction();
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    line = line.trim();
+                    if (line.isEmpty() || line.startsWith("#")) continue;
+                    String[] parts = line.split(",", 3);
+                    if (parts.length < 3) continue;
+                    try {
+                        put(db, Double.parseDouble(parts[0].trim()), Double.parseDouble(parts[1].trim()),
+                                parts[2].trim(), SOURCE_PRELOAD, SQLiteDatabase.CONFLICT_IGNORE);
+                        imported++;
+                    } catch (NumberFormatException e) {
+                        Log.w(TAG, "Skipping preload line: " + line);
+                    }
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+            prefs.edit().putInt(PREF_PRELOAD_SIZE, size).apply();
+        } catch (IOException e) {
+            // no preload bundled; the cache fills from Geocoder lookups only
+            return 0;
+        }
+        return imported;
+    }
+}
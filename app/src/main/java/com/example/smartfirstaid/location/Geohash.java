@@ -0,0 +1,116 @@
+package com.example.smartfirstaid.location;
+
+/**
+ * Base-32 geohashes: nearby points share a prefix, so a B-tree over the hash string
+ * is a spatial index, and a radius query is a prefix scan over a cell and its eight
+ * neighbours.
+ */
+public final class Geohash {
+    private static final String BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz";
+    private static final double EARTH_RADIUS_M = 6_371_000;
+    private static final double M_PER_DEG_LAT = 111_320;
+    public static final int MAX_PRECISION = 12;
+
+    private Geohash() {}
+
+    public static String encode(double lat, double lon, int precision) {
+        double latLo = -90, latHi = 90, lonLo = -180, lonHi = 180;
+        StringBuilder sb = new StringBuilder(precision);
+        boolean evenBit = true; // bits alternate lon, lat, lon, ...
+        int bit = 0, ch = 0;
+        while (sb.length() < precision) {
+            if (evenBit) {
+                double mid = (lonLo + lonHi) / 2;
+                if (lon >= mid) { ch = (ch << 1) | 1; lonLo = mid; } else { ch <<= 1; lonHi = mid; }
+            } else {
+                double mid = (latLo + latHi) / 2;
+                if (lat >= mid) { ch = (ch << 1) | 1; latLo = mid; } else { ch <<= 1; latHi = mid; }
+            }
+            evenBit = !evenBit;
+            if (++bit == 5) {
+                sb.append(BASE32.charAt(ch));
+                bit = 0;
+                ch = 0;
+            }
+        }
+        return sb.toString();
+    }
+
+    /** Cell bounds as {latLo, latHi, lonLo, lonHi}. */
+    public static double[] bounds(String hash) {
+        double latLo = -90, latHi = 90, lonLo = -180, lonHi = 180;
+        boolean evenBit = true;
+        for (int i = 0; i < hash.length(); i++) {
+            int cd = BASE32.indexOf(hash.charAt(i));
+            if (cd < 0) throw new IllegalArgumentException("not a geohash: " + hash);
+            for (int b = 4; b >= 0; b--) {
+                boolean one = ((cd >> b) & 1) == 1;
+                if (evenBit) {
+                    double mid = (lonLo + lonHi) / 2;
+                    if (one) lonLo = mid; else lonHi = mid;
+                } else {
+                    double mid = (latLo + latHi) / 2;
+                    if (one) latLo = mid; else latHi = mid;
+                }
+                evenBit = !evenBit;
+            }
+        }
+        return new double[]{latLo, latHi, lonLo, lonHi};
+    }
+
+    /** The cell itself followed by its neighbours (fewer at the poles). */
+    public static String[] neighbourhood(String hash) {
+        double[] b = bounds(hash);
+        double dLat = b[1] - b[0], dLon = b[3] - b[2];
+        double cLat = (b[0] + b[1]) / 2, cLon = (b[2] + b[3]) / 2;
+        String[] out = new String[9];
+        int n = 0;
+        out[n++] = hash;
+        for (int i = -1; i <= 1; i++) {
+            for (int j = -1; j <= 1; j++) {
+                if (i == 0 && j == 0) continue;
+                double lat = cLat + i * dLat;
+                if (lat <= -90 || lat >= 90) continue;
+                double lon = cLon + j * dLon;
+                if (lon >= 180) lon -= 360;
+                if (lon < -180) lon += 360;
+                String h = encode(lat, lon, hash.length());
+                if (!contains(out, n, h)) out[n++] = h;
+            }
+        }
+        String[] trimmed = new String[n];
+        System.arraycopy(out, 0, trimmed, 0, n);
+        return trimmed;
+    }
+
+    /**
+     * Longest precision whose cells are at least radiusM on each side at this latitude,
+     * so a circle around any point in a cell stays inside that cell's neighbourhood.
+     */
+    public static int precisionFor(double radiusM, double lat) {
+        double cos = Math.max(0.01, Math.cos(Math.toRadians(lat)));
+        for (int p = MAX_PRECISION; p > 1; p--) {
+            int lonBits = (5 * p + 1) / 2;
+            int latBits = 5 * p / 2;
+            double heightM = 180.0 / (1L << latBits) * M_PER_DEG_LAT;
+            double widthM = 360.0 / (1L << lonBits) * M_PER_DEG_LAT * cos;
+            if (heightM >= radiusM && widthM >= radiusM) return p;
+        }
+        return 1;
+    }
+
+    /** Great-circle distance in metres. */
+    public static double distanceM(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_M * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    private static boolean contains(String[] arr, int n, String s) {
+        for (int i = 0; i < n; i++) if (arr[i].equals(s)) return true;
+        return false;
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.smartfirstaid.location;
+
+import android.Manifest;
+import android.content.Context;
+import android.location.Location;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.RequiresPermission;
+
+import com.google.android.gms.location.CurrentLocationRequest;
+import com.google.android.gms.location.FusedLocationProviderClient;
+import com.google.android.gms.location.LocationCallback;
+import com.google.android.gms.location.LocationRequest;
+import com.google.android.gms.location.LocationResult;
+import com.google.android.gms.location.LocationServices;
+import com.google.android.gms.location.Priority;
+import com.google.android.gms.tasks.CancellationTokenSource;
+
+/**
+ * One "where am I" session. Three sources run at once and feed the same listener on the
+ * main thread:
+ * <ul>
+ *   <li>the fused provider's cached fix, shown at once however old it is;</li>
+ *   <li>getCurrentLocation at high accuracy, bounded by {@link #CURRENT_TIMEOUT_MS};</li>
+ *   <li>high-accuracy updates that refine the fix until it is within
+ *       {@link #TARGET_ACCURACY_M} or {@link #REFINE_MS} has passed.</li>
+ * </ul>
+ * A fix is only passed on when it improves on the one already shown. Logs
+ * time-to-first-coordinate and time-to-accurate-fix under the "LocationFix" tag.
+ */
+public final class LocationFixer {
+    private static final String TAG = "LocationFix";
+
+    static final long CURRENT_TIMEOUT_MS = 10_000;
+    static final long REFINE_MS = 30_000;
+    static final float TARGET_ACCURACY_M = 20f;
+    private static final long UPDATE_INTERVAL_MS = 1_000;
+    // a fix this much newer wins even if it reports a worse accuracy: the user may have moved
+    private static final long STALE_MS = 2 * 60_000;
+
+    public interface Listener {
+        /** A better fix; source is "cached", "current" or "update". */
+        void onFix(Location location, String source);
+
+        /** The session ended; gotFix is false when no source produced a coordinate. */
+        void onFinished(boolean gotFix);
+    }
+
+    private final FusedLocationProviderClient client;
+    private final Listener listener;
+    private final Handler main = new Handler(Looper.getMainLooper());
+
+    private CancellationTokenSource cancel;
+    private long startedAtMs;
+    private Location best;
+    private boolean running;
+    private boolean accurateLogged;
+
+    private final LocationCallback updates = new LocationCallback() {
+        @Override
+        public void onLocationResult(@NonNull LocationResult result) {
+            for (Location l : result.getLocations()) offer(l, "update");
+            if (best != null && best.hasAccuracy() && best.getAccuracy() <= TARGET_ACCURACY_M) finish();
+        }
+    };
+
+    private final Runnable refineTimeout = this::finish;
+
+    public LocationFixer(Context context, Listener listener) {
+        this.client = LocationServices.getFusedLocationProviderClient(context.getApplicationContext());
+        this.listener = listener;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /** Main thread only; restarting begins a new session. */
+    @RequiresPermission(anyOf = {Manifest.permission.ACCESS_FINE_LOCATION, Manifest.permission.ACCESS_COARSE_LOCATION})
+    public void start() {
+        stop();
+        running = true;
+        best = null;
+        accurateLogged = false;
+        startedAtMs = SystemClock.elapsedRealtime();
+        cancel = new CancellationTokenSource();
+
+        client.getLastLocation().addOnSuccessListener(l -> {
+            if (running && l != null) offer(l, "cached");
+        });
+
+        CurrentLocationRequest current = new CurrentLocationRequest.Builder()
+                .setPriority(Priority.PRIORITY_HIGH_ACCURACY)
+                .setDurationMillis(CURRENT_TIMEOUT_MS)
+                .setMaxUpdateAgeMillis(0)
+                .build();
+        client.getCurrentLocation(current, cancel.getToken()).addOnCompleteListener(task -> {
+            if (!running) return;
+            if (task.isSuccessful() && task.getResult() != null) offer(task.getResult(), "current");
+            else Log.i(TAG, "no fresh fix within " + CURRENT_TIMEOUT_MS + " ms");
+            // nothing from any source by now: report instead of waiting out the refinement window
+            if (best == null) finish();
+        });
+
+        LocationRequest request = new LocationRequest.Builder(Priority.PRIORITY_HIGH_ACCURACY, UPDATE_INTERVAL_MS)
+                .setMinUpdateIntervalMillis(UPDATE_INTERVAL_MS / 2)
+                .setDurationMillis(REFINE_MS)
+                .build();
+        client.requestLocationUpdates(request, updates, Looper.getMainLooper());
+        main.postDelayed(refineTimeout, REFINE_MS);
+    }
+
+    /** Stop every source; no callbacks after this returns. */
+    public void stop() {
+        if (!running) return;
+        running = false;
+        if (cancel != null) cancel.cancel();
+        cancel = null;
+        client.removeLocationUpdates(updates);
+        main.removeCallbacks(refineTimeout);
+    }
+
+    private void finish() {
+        if (!running) return;
+        stop();
+        if (best != null && !accurateLogged) {
+            Log.i(TAG, "settled at ±" + (best.hasAccuracy() ? Math.round(best.getAccuracy()) + " m" : "?")
+                    + " after " + (SystemClock.elapsedRealtime() - startedAtMs) + " ms");
+        }
+        listener.onFinished(best != null);
+    }
+
+    private void offer(Location l, String source) {
+        if (!isBetter(l, best)) return;
+        long t = SystemClock.elapsedRealtime() - startedAtMs;
+        if (best == null) {
+            Log.i(TAG, "time-to-first-coordinate " + t + " ms (" + source + ", " + describe(l) + ")");
+        }
+        best = l;
+        if (!accurateLogged && l.hasAccuracy() && l.getAccuracy() <= TARGET_ACCURACY_M) {
+            accurateLogged = true;
+            Log.i(TAG, "time-to-accurate-fix " + t + " ms (" + source + ", " + describe(l) + ")");
+        }
+        listener.onFix(l, source);
+    }
+
+    private static String describe(Location l) {
+        long ageMs = (SystemClock.elapsedRealtimeNanos() - l.getElapsedRealtimeNanos()) / 1_000_000;
+        return "±" + (l.hasAccuracy() ? Math.round(l.getAccuracy()) + " m" : "?") + ", " + (ageMs / 1000) + " s old";
+    }
+
+    /** More accurate, or newer and no less accurate, or much newer. */
+    static boolean isBetter(Location candidate, Location current) {
+        if (current == null) return true;
+        long dt = (candidate.getElapsedRealtimeNanos() - current.getElapsedRealtimeNanos()) / 1_000_000;
+        if (dt > STALE_MS) return true;
+        if (dt < -STALE_MS) return false;
+        float ca = candidate.hasAccuracy() ? candidate.getAccuracy() : Float.MAX_VALUE;
+        float cur = current.hasAccuracy() ? current.getAccuracy() : Float.MAX_VALUE;
+        if (ca < cur) return true;
+        return dt > 0 && ca <= cur;
+    }
+}
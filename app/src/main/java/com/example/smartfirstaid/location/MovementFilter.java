@@ -0,0 +1,77 @@
+package com.example.smartfirstaid.location;
+
+/**
+ * Decides, fix by fix, whether a tracked position is worth keeping and whether the user
+ * is moving. Plain Java so the thresholds can be unit-tested without a device.
+ *
+ * A fix is a duplicate when it lies within its own accuracy (at least {@link #MIN_MOVE_M})
+ * of the last kept fix and less than {@link #KEEPALIVE_MS} has passed; a stationary user
+ * then costs one stored row every few minutes. The user becomes stationary once every fix
+ * for {@link #SETTLE_MS} stayed near one anchor, and moving again as soon as a fix leaves
+ * {@link #LEAVE_M} of it.
+ */
+public final class MovementFilter {
+
+    static final double MIN_MOVE_M = 15;
+    static final long KEEPALIVE_MS = 5 * 60_000;
+    static final double SETTLE_RADIUS_M = 30;
+    static final long SETTLE_MS = 2 * 60_000;
+    static final double LEAVE_M = 60;
+
+    public enum Mode { MOVING, STATIONARY }
+
+    private Mode mode = Mode.MOVING;
+    private boolean hasKept;
+    private double keptLat, keptLon;
+    private long keptAt;
+    private boolean hasAnchor;
+    private double anchorLat, anchorLon;
+    private long anchorAt;
+
+    public Mode mode() {
+        return mode;
+    }
+
+    /**
+     * Feed one fix in time order. Returns true when it should be stored; {@link #mode()}
+     * reflects the fix afterwards.
+     */
+    public boolean accept(double lat, double lon, float accuracyM, long timeMs) {
+        updateMode(lat, lon, accuracyM, timeMs);
+        if (hasKept) {
+            double d = Geohash.distanceM(keptLat, keptLon, lat, lon);
+            if (d < Math.max(MIN_MOVE_M, accuracyM) && timeMs - keptAt < KEEPALIVE_MS) return false;
+        }
+        hasKept = true;
+        keptLat = lat;
+        keptLon = lon;
+        keptAt = timeMs;
+        return true;
+    }
+
+    private void updateMode(double lat, double lon, float accuracyM, long timeMs) {
+        if (!hasAnchor) {
+            setAnchor(lat, lon, timeMs);
+            return;
+        }
+        double d = Geohash.distanceM(anchorLat, anchorLon, lat, lon);
+        if (mode == Mode.STATIONARY) {
+            // a poor fix alone is not movement
+            if (d > Math.max(LEAVE_M, accuracyM)) {
+                mode = Mode.MOVING;
+                setAnchor(lat, lon, timeMs);
+            }
+        } else if (d > Math.max(SETTLE_RADIUS_M, accuracyM)) {
+            setAnchor(lat, lon, timeMs);
+        } else if (timeMs - anchorAt >= SETTLE_MS) {
+            mode = Mode.STATIONARY;
+        }
+    }
+
+    private void setAnchor(double lat, double lon, long timeMs) {
+        hasAnchor = true;
+        anchorLat = lat;
+        anchorLon = lon;
+        anchorAt = timeMs;
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.smartfirstaid.location;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import com.example.smartfirstaid.data.db.LocalDb;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The last {@link #CAPACITY} tracked positions, persisted so they survive the process and
+ * can be shared after the fact. Stored as a ring in LocalDb: each point overwrites slot
+ * seq % CAPACITY, so the table never grows and no pruning query is needed.
+ */
+public final class TrackLog {
+
+    public static final int CAPACITY = 500;
+
+    public static final class Point {
+        public final double lat;
+        public final double lon;
+        public final float accuracyM;
+        public final long timeMs;
+
+        public Point(double lat, double lon, float accuracyM, long timeMs) {
+            this.lat = lat;
+            this.lon = lon;
+            this.accuracyM = accuracyM;
+            this.timeMs = timeMs;
+        }
+    }
+
+    private static volatile TrackLog instance;
+
+    private final LocalDb localDb;
+    private long nextSeq = -1; // guarded by this; loaded lazily
+
+    public static TrackLog get(Context context) {
+        if (instance == null) {
+            synchronized (TrackLog.class) {
+                if (instance == null) instance = new TrackLog(context.getApplicationContext());
+            }
+        }
+        return instance;
+    }
+
+    private TrackLog(Context app) {
+        this.localDb = LocalDb.get(app);
+    }
+
+    /** Append points in one transaction. Disk write; call off the main thread. */
+    public synchronized void append(List<Point> points) {
+        if (points.isEmpty()) return;
+        SQLiteDatabase db = localDb.getWritableDatabase();
+        if (nextSeq < 0) nextSeq = readNextSeq(db);
+        db.beginTransaction();
+        try {
+            ContentValues cv = new ContentValues();
+            for (Point p : points) {
+                cv.clear();
+                cv.put(LocalDb.C_SLOT, nextSeq % CAPACITY);
+                cv.put(LocalDb.C_SEQ, nextSeq);
+                cv.put(LocalDb.C_LAT, p.lat);
+                cv.put(LocalDb.C_LON, p.lon);
+                cv.put(LocalDb.C_ACCURACY, p.accuracyM);
+                cv.put(LocalDb.C_TIME, p.timeMs);
+                db.insertWithOnConflict(LocalDb.T_TRACK, null, cv, SQLiteDatabase.CONFLICT_REPLACE);
+                nextSeq++;
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /** Up to limit most recent points, newest first. */
+    public List<Point> recent(int limit) {
+        List<Point> out = new ArrayList<>();
+        try (Cursor c = localDb.getReadableDatabase().query(LocalDb.T_TRACK,
+                new String[]{LocalDb.C_LAT, LocalDb.C_LON, LocalDb.C_ACCURACY, LocalDb.C_TIME},
+                null, null, null, null, LocalDb.C_SEQ + " DESC", String.valueOf(limit))) {
+            while (c.moveToNext()) out.add(new Point(c.getDouble(0), c.getDouble(1), c.getFloat(2), c.getLong(3)));
+        }
+        return out;
+    }
+
+    public synchronized void clear() {
+        localDb.getWritableDatabase().delete(LocalDb.T_TRACK, null, null);
+        nextSeq = 0;
+    }
+
+    private static long readNextSeq(SQLiteDatabase db) {
+        try (Cursor c = db.rawQuery("SELECT MAX(" + LocalDb.C_SEQ + ") FROM " + LocalDb.T_TRACK, null)) {
+            return c.moveToFirst() && !c.isNull(0) ? c.getLong(0) + 1 : 0;
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.example.smartfirstaid.location;
+
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.app.Service;
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.ServiceInfo;
+import android.location.Location;
+import android.os.Build;
+import android.os.IBinder;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.core.app.NotificationCompat;
+import androidx.core.app.ServiceCompat;
+import androidx.core.content.ContextCompat;
+
+import com.example.smartfirstaid.util.AppExecutors;
+import com.google.android.gms.location.FusedLocationProviderClient;
+import com.google.android.gms.location.LocationCallback;
+import com.google.android.gms.location.LocationRequest;
+import com.google.android.gms.location.LocationResult;
+import com.google.android.gms.location.LocationServices;
+import com.google.android.gms.location.Priority;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Foreground service that records the user's position for the length of an emergency.
+ *
+ * Battery: fixes are batched by the fused provider (setMaxUpdateDelayMillis), so the app
+ * wakes once per batch instead of once per fix, and the request follows
+ * {@link MovementFilter}: frequent high-accuracy fixes while moving, sparse balanced-power
+ * ones while stationary. Stationary duplicates are dropped before they reach
+ * {@link TrackLog}. Fixes per hour and wake-ups (batch deliveries) per hour are logged
+ * under the "LocationTracking" tag.
+ */
+public final class TrackingService extends Service {
+    private static final String TAG = "LocationTracking";
+
+    private static final String CHANNEL_ID = "sfa_tracking";
+    private static final int NOTIFICATION_ID = 2401;
+    private static final String ACTION_STOP = "com.example.smartfirstaid.location.STOP_TRACKING";
+    private static final int STATS_EVERY_BATCHES = 10;
+
+    // moving: a fix every 10 s, delivered at least once a minute
+    private static final long MOVING_INTERVAL_MS = 10_000;
+    private static final long MOVING_MAX_DELAY_MS = 60_000;
+    // stationary: a fix a minute, delivered every five
+    private static final long STATIONARY_INTERVAL_MS = 60_000;
+    private static final long STATIONARY_MAX_DELAY_MS = 5 * 60_000;
+
+    private static volatile boolean running;
+
+    private FusedLocationProviderClient client;
+    private final MovementFilter filter = new MovementFilter();
+    private MovementFilter.Mode requestedMode;
+
+    private long startedAtMs;
+    private long fixes, kept, batches, modeChanges;
+
+    private final LocationCallback callback = new LocationCallback() {
+        @Override
+        public void onLocationResult(@NonNull LocationResult result) {
+            onBatch(result.getLocations());
+        }
+    };
+
+    /** Start tracking; location permission must already be granted. */
+    public static void start(Context context) {
+        ContextCompat.startForegroundService(context, new Intent(context, TrackingService.class));
+    }
+
+    public static void stop(Context context) {
+        context.stopService(new Intent(context, TrackingService.class));
+    }
+
+    public static boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        client = LocationServices.getFusedLocationProviderClient(this);
+        startedAtMs = SystemClock.elapsedRealtime();
+        running = true;
+    }
+
+    @Override
+    public int onStartCommand(Intent intent, int flags, int startId) {
+        if (intent != null && ACTION_STOP.equals(intent.getAction())) {
+            stopSelf();
+            return START_NOT_STICKY;
+        }
+        ServiceCompat.startForeground(this, NOTIFICATION_ID, buildNotification(),
+                Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q ? ServiceInfo.FOREGROUND_SERVICE_TYPE_LOCATION : 0);
+        if (requestedMode == null) request(filter.mode());
+        // not restarted by the system: location permission and user intent may be gone
+        return START_NOT_STICKY;
+    }
+
+    private void request(MovementFilter.Mode mode) {
+        boolean moving = mode == MovementFilter.Mode.MOVING;
+        long interval = moving ? MOVING_INTERVAL_MS : STATIONARY_INTERVAL_MS;
+        LocationRequest request = new LocationRequest.Builder(
+                moving ? Priority.PRIORITY_HIGH_ACCURACY : Priority.PRIORITY_BALANCED_POWER_ACCURACY, interval)
+                .setMinUpdateIntervalMillis(interval / 2)
+                .setMaxUpdateDelayMillis(moving ? MOVING_MAX_DELAY_MS : STATIONARY_MAX_DELAY_MS)
+                .build();
+        try {
+            client.removeLocationUpdates(callback);
+            client.requestLocationUpdates(request, callback, Looper.getMainLooper());
+            requestedMode = mode;
+            Log.i(TAG, "requesting " + mode + " updates: every " + interval / 1000 + " s, batched up to "
+                    + request.getMaxUpdateDelayMillis() / 1000 + " s");
+        } catch (SecurityException e) {
+            Log.w(TAG, "Location permission missing; stopping");
+            stopSelf();
+        }
+    }
+
+    private void onBatch(List<Location> locations) {
+        batches++;
+        final List<TrackLog.Point> points = new ArrayList<>(locations.size());
+        for (Location l : locations) {
+            fixes++;
+            float acc = l.hasAccuracy() ? l.getAccuracy() : 0;
+            if (filter.accept(l.getLatitude(), l.getLongitude(), acc, l.getTime())) {
+                points.add(new TrackLog.Point(l.getLatitude(), l.getLongitude(), acc, l.getTime()));
+            }
+        }
+        kept += points.size();
+        if (!points.isEmpty()) {
+            final TrackLog log = TrackLog.get(this);
+            AppExecutors.io().execute(() -> log.append(points));
+        }
+        if (filter.mode() != requestedMode) {
+            modeChanges++;
+            request(filter.mode());
+        }
+        if (batches % STATS_EVERY_BATCHES == 0) logStats("running");
+    }
+
+    private void logStats(String state) {
+        long ms = SystemClock.elapsedRealtime() - startedAtMs;
+        double hours = Math.max(ms, 1) / 3_600_000.0;
+        Log.i(TAG, state + " " + ms / 60_000 + " min, mode " + requestedMode
+                + ": " + fixes + " fixes (" + kept + " kept), " + batches + " deliveries, "
+                + modeChanges + " mode changes; "
+                + Math.round(fixes / hours) + " fixes/h, ~" + Math.round(batches / hours)
+                + " wake-ups/h");
+    }
+
+    private Notification buildNotification() {
+        NotificationManager nm = (NotificationManager) getSystemService(Context.NOTIFICATION_SERVICE);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O && nm != null) {
+            nm.createNotificationChannel(new NotificationChannel(CHANNEL_ID, "Location tracking",
+                    NotificationManager.IMPORTANCE_LOW));
+        }
+        int immutable = Build.VERSION.SDK_INT >= Build.VERSION_CODES.M ? PendingIntent.FLAG_IMMUTABLE : 0;
+        PendingIntent stop = PendingIntent.getService(this, 0,
+                new Intent(this, TrackingService.class).setAction(ACTION_STOP), immutable);
+        return new NotificationCompat.Builder(this, CHANNEL_ID)
+                .setSmallIcon(android.R.drawable.ic_menu_mylocation)
+                .setContentTitle("Tracking your location")
+                .setContentText("Positions are recorded for your emergency")
+                .setOngoing(true)
+                .setPriority(NotificationCompat.PRIORITY_LOW)
+                .addAction(0, "Stop", stop)
+                .build();
+    }
+
+    @Override
+    public void onDestroy() {
+        client.removeLocationUpdates(callback);
+        logStats("stopped after");
+        running = false;
+        super.onDestroy();
+    }
+
+    @Override
+    public IBinder onBind(Intent intent) {
+        return null;
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.smartfirstaid.net;
+
+/** Resilience settings and shared state (breaker, latency history) for one endpoint. */
+public final class CallPolicy {
+
+    public final RetryPolicy retry;
+    public final CircuitBreaker breaker;
+    public final LatencyTracker latency;
+    /** Send a second copy of the request once the first is slower than this percentile; 0 disables. */
+    public final int hedgePercentile;
+
+    public CallPolicy(RetryPolicy retry, CircuitBreaker breaker, LatencyTracker latency, int hedgePercentile) {
+        this.retry = retry;
+        this.breaker = breaker;
+        this.latency = latency;
+        this.hedgePercentile = hedgePercentile;
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.smartfirstaid.net;
+
+import android.os.SystemClock;
+
+/**
+ * Consecutive-failure circuit breaker, fed one outcome per logical call (see ResilientCall).
+ * After {@code failureThreshold} failures in a row calls are rejected for {@code openMs};
+ * then a single trial call decides whether to close again.
+ */
+public final class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final long openMs;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean trialInFlight;
+
+    public CircuitBreaker(int failureThreshold, long openMs) {
+        this.failureThreshold = failureThreshold;
+        this.openMs = openMs;
+    }
+
+    /** Whether a call may go out now. In HALF_OPEN only one trial call is let through. */
+    public synchronized boolean allowRequest() {
+        if (state == State.OPEN && SystemClock.elapsedRealtime() - openedAt >= openMs) {
+            state = State.HALF_OPEN;
+            trialInFlight = false;
+        }
+        switch (state) {
+            case CLOSED:
+                return true;
+            case HALF_OPEN:
+                if (trialInFlight) return false;
+                trialInFlight = true;
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    public synchronized void recordSuccess() {
+        consecutiveFailures = 0;
+        trialInFlight = false;
+        state = State.CLOSED;
+    }
+
+    public synchronized void recordFailure() {
+        consecutiveFailures++;
+        trialInFlight = false;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            openedAt = SystemClock.elapsedRealtime();
+        }
+    }
+
+    /** The call let through as the half-open trial was cancelled before it had an outcome. */
+    public synchronized void recordCancelled() {
+        trialInFlight = false;
+    }
+
+    public synchronized State state() {
+        return state;
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.smartfirstaid.net;
+
+import java.io.IOException;
+
+/** Thrown instead of calling an endpoint whose circuit breaker is open. */
+public final class CircuitOpenException extends IOException {
+    public CircuitOpenException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.smartfirstaid.net;
+
+import android.util.Log;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Connection;
+import okhttp3.ConnectionPool;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Process-wide OkHttpClient. One connection pool, dispatcher and TLS session
+ * cache shared by every screen, so a second diagnosis reuses the warm
+ * HTTP/2 connection to api.groq.com instead of paying a new handshake.
+ */
+public final class HttpClientProvider {
+    private static final String TAG = "HttpClientProvider";
+
+    private static final AtomicLong connectionsOpened = new AtomicLong();
+    private static final AtomicLong tlsHandshakes = new AtomicLong();
+    private static final AtomicLong connectionsAcquired = new AtomicLong();
+
+    private static volatile OkHttpClient client;
+
+    private HttpClientProvider() {}
+
+    public static OkHttpClient get() {
+        if (client == null) {
+            synchronized (HttpClientProvider.class) {
+                if (client == null) client = build();
+            }
+        }
+        return client;
+    }
+
+    private static OkHttpClient build() {
+        return new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(4, 5, TimeUnit.MINUTES))
+                .protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                .connectTimeout(10, TimeUnit.SECONDS)
+                // streaming responses can pause between tokens; the call timeout bounds the total
+                .readTimeout(30, TimeUnit.SECONDS)
+                .writeTimeout(15, TimeUnit.SECONDS)
+                .callTimeout(60, TimeUnit.SECONDS)
+                .pingInterval(30, TimeUnit.SECONDS)
+                .retryOnConnectionFailure(true)
+                .eventListener(new StatsListener())
+                .build();
+    }
+
+    /**
+     * Open (or keep) a pooled connection to the host of {@code url} ahead of the real request,
+     * so DNS, TCP and TLS are done by the time the user asks for a diagnosis.
+     */
+    public static void preconnect(String url) {
+        Request head = new Request.Builder().url(url).head().build();
+        get().newCall(head).enqueue(new Callback() {
+            @Override public void onFailure(Call call, IOException e) {
+                Log.d(TAG, "preconnect failed: " + e.getMessage());
+            }
+
+            @Override public void onResponse(Call call, Response response) {
+                response.close();
+            }
+        });
+    }
+
+    public static long connectionsOpened() { return connectionsOpened.get(); }
+    public static long tlsHandshakes() { return tlsHandshakes.get(); }
+
+    /** Calls that were served by an already-open pooled connection. */
+    public static long connectionsReused() {
+        return Math.max(0, connectionsAcquired.get() - connectionsOpened.get());
+    }
+
+    public static String stats() {
+        return "acquired=" + connectionsAcquired.get()
+                + " opened=" + connectionsOpened()
+                + " tlsHandshakes=" + tlsHandshakes()
+                + " reused=" + connectionsReused()
+                + " pooled=" + get().connectionPool().connectionCount();
+    }
+
+    private static final class StatsListener extends EventListener {
+        @Override
+        public void connectEnd(Call call, InetSocketAddress address, Proxy proxy, Protocol protocol) {
+            connectionsOpened.incrementAndGet();
+        }
+
+        @Override
+        public void secureConnectEnd(Call call, Handshake handshake) {
+            tlsHandshakes.incrementAndGet();
+        }
+
+        @Override
+        public void connectionAcquired(Call call, Connection connection) {
+            connectionsAcquired.incrementAndGet();
+        }
+    }
+}
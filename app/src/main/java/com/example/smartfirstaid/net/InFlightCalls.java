@@ -0,0 +1,84 @@
+package com.example.smartfirstaid.net;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Response;
+
+/**
+ * De-duplicates identical requests from one owner (a screen): while a call for a key is
+ * running, a second enqueue from the same owner for the same key is rejected instead of
+ * hitting the network again. Calls are scoped per owner so a new screen never waits on,
+ * or is cancelled together with, a call that belongs to a screen being torn down.
+ */
+public final class InFlightCalls {
+
+    /** Owner compared by identity, so the map never depends on an Activity's equals(). */
+    private static final class Slot {
+        final Object owner;
+        final String key;
+
+        Slot(Object owner, String key) {
+            this.owner = owner;
+            this.key = key;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Slot)) return false;
+            Slot s = (Slot) o;
+            return owner == s.owner && key.equals(s.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(owner) + key.hashCode();
+        }
+    }
+
+    private static final Map<Slot, ResilientCall> running = new ConcurrentHashMap<>();
+
+    private InFlightCalls() {}
+
+    /**
+     * Enqueue {@code call} unless {@code owner} already has one running for {@code key}.
+     * Returns false (and does not enqueue) for a duplicate.
+     */
+    public static boolean enqueue(Object owner, String key, ResilientCall call, Callback callback) {
+        final Slot slot = new Slot(owner, key);
+        if (running.putIfAbsent(slot, call) != null) return false;
+        call.enqueue(new Callback() {
+            @Override public void onFailure(Call c, IOException e) {
+                running.remove(slot, call);
+                callback.onFailure(c, e);
+            }
+
+            @Override public void onResponse(Call c, Response response) throws IOException {
+                try {
+                    callback.onResponse(c, response);
+                } finally {
+                    running.remove(slot, call);
+                }
+            }
+        });
+        return true;
+    }
+
+    public static boolean isRunning(Object owner, String key) {
+        return running.containsKey(new Slot(owner, key));
+    }
+
+    /** Cancel every running call started by owner. */
+    public static void cancelAll(Object owner) {
+        for (Iterator<Map.Entry<Slot, ResilientCall>> it = running.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Slot, ResilientCall> e = it.next();
+            if (e.getKey().owner != owner) continue;
+            it.remove();
+            e.getValue().cancel();
+        }
+    }
+}
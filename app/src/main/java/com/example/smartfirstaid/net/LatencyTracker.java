@@ -0,0 +1,32 @@
+package com.example.smartfirstaid.net;
+
+import java.util.Arrays;
+
+/** Rolling window of recent latencies, used to pick the hedging delay. */
+public final class LatencyTracker {
+
+    private static final int MIN_SAMPLES = 10;
+
+    private final long[] samples;
+    private int next;
+    private int count;
+
+    public LatencyTracker(int window) {
+        samples = new long[window];
+    }
+
+    public synchronized void record(long ms) {
+        samples[next] = ms;
+        next = (next + 1) % samples.length;
+        if (count < samples.length) count++;
+    }
+
+    /** Latency at the given percentile (0-100), or -1 until enough samples are in. */
+    public synchronized long percentile(int p) {
+        if (count < MIN_SAMPLES) return -1;
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        int idx = (int) Math.ceil(p / 100.0 * count) - 1;
+        return sorted[Math.max(0, Math.min(idx, count - 1))];
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.smartfirstaid.net;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.example.smartfirstaid.util.AppExecutors;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * One logical request with retries, backoff, optional hedging and a circuit breaker.
+ * The callback sees exactly one outcome: the first successful response, the final
+ * retryable error response once attempts run out, or a failure. The breaker counts that
+ * outcome once, whatever the number of attempts behind it. A response is
+ * "successful" as soon as its headers arrive, so streaming bodies work unchanged.
+ */
+public final class ResilientCall {
+    private static final String TAG = "ResilientCall";
+
+    private final OkHttpClient client;
+    private final Request request;
+    private final CallPolicy policy;
+
+    private final AtomicBoolean completed = new AtomicBoolean();
+    private final List<Call> active = new ArrayList<>();
+    private volatile boolean cancelled;
+    private int attempts;
+    private boolean hedged;
+
+    public ResilientCall(OkHttpClient client, Request request, CallPolicy policy) {
+        this.client = client;
+        this.request = request;
+        this.policy = policy;
+    }
+
+    public void enqueue(Callback callback) {
+        if (!policy.breaker.allowRequest()) {
+            completed.set(true);
+            callback.onFailure(null, new CircuitOpenException("Circuit open for " + request.url().host()));
+            return;
+        }
+        launch(callback);
+        scheduleHedge(callback);
+    }
+
+    public void cancel() {
+        cancelled = true;
+        // an abandoned half-open trial must not keep the breaker shut
+        if (!completed.get()) policy.breaker.recordCancelled();
+        synchronized (active) {
+            for (Call c : active) c.cancel();
+            active.clear();
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    private void scheduleHedge(Callback callback) {
+        if (policy.hedgePercentile <= 0) return;
+        long delay = policy.latency.percentile(policy.hedgePercentile);
+        if (delay <= 0) return;
+        AppExecutors.scheduler().schedule(() -> {
+            synchronized (active) {
+                if (hedged || completed.get() || cancelled || active.isEmpty()) return;
+                hedged = true;
+            }
+            Log.d(TAG, "Hedging " + request.url().encodedPath() + " after " + delay + " ms");
+            launch(callback);
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void launch(Callback callback) {
+        final Call call = client.newCall(request);
+        final long start = SystemClock.elapsedRealtime();
+        synchronized (active) {
+            if (cancelled) return;
+            attempts++;
+            active.add(call);
+        }
+        call.enqueue(new Callback() {
+            @Override public void onFailure(Call c, IOException e) {
+                if (!finishAttempt(c)) return;
+                retryOrFail(callback, c, e, null, null);
+            }
+
+            @Override public void onResponse(Call c, Response response) throws IOException {
+                if (!finishAttempt(c)) {
+                    response.close();
+                    return;
+                }
+                int code = response.code();
+                if (RetryPolicy.isRetryableStatus(code)) {
+                    retryOrFail(callback, c, new IOException("HTTP " + code), response,
+                            response.header("Retry-After"));
+                    return;
+                }
+                if (!completed.compareAndSet(false, true)) {
+                    response.close();
+                    return;
+                }
+                policy.breaker.recordSuccess();
+                policy.latency.record(SystemClock.elapsedRealtime() - start);
+                cancelOthers();
+                callback.onResponse(c, response);
+            }
+        });
+    }
+
+    /** Remove c from the active set; false when the outcome no longer matters. */
+    private boolean finishAttempt(Call c) {
+        synchronized (active) {
+            active.remove(c);
+        }
+        return !cancelled && !completed.get();
+    }
+
+    private void retryOrFail(Callback callback, Call c, IOException error,
+                             Response response, String retryAfter) {
+        int attemptNo;
+        synchronized (active) {
+            // a hedge copy is still running; let it decide the outcome
+            if (!active.isEmpty()) {
+                if (response != null) response.close();
+                return;
+            }
+            attemptNo = attempts;
+        }
+        long delay = attemptNo < policy.retry.maxAttempts && policy.breaker.allowRequest()
+                ? policy.retry.delayMs(attemptNo, retryAfter) : -1;
+        if (delay < 0) {
+            if (!completed.compareAndSet(false, true)) {
+                if (response != null) response.close();
+                return;
+            }
+            // one failure per logical call, not per attempt or hedge copy
+            policy.breaker.recordFailure();
+            // out of attempts: hand over the last error response (or the failure) as-is
+            try {
+                if (response != null) callback.onResponse(c, response);
+                else callback.onFailure(c, error);
+            } catch (IOException e) {
+                Log.w(TAG, "callback failed", e);
+            }
+            return;
+        }
+        if (response != null) response.close();
+        Log.d(TAG, "Attempt " + attemptNo + " failed (" + error.getMessage() + "), retrying in " + delay + " ms");
+        AppExecutors.scheduler().schedule(() -> {
+            if (!cancelled && !completed.get()) launch(callback);
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void cancelOthers() {
+        synchronized (active) {
+            for (Call other : active) other.cancel();
+            active.clear();
+        }
+    }
+}
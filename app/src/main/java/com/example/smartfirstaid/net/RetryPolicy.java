@@ -0,0 +1,51 @@
+package com.example.smartfirstaid.net;
+
+import java.util.Random;
+
+/** Exponential backoff with full jitter; honours Retry-After up to a cap. */
+public final class RetryPolicy {
+
+    public final int maxAttempts;
+    public final long baseDelayMs;
+    public final long maxDelayMs;
+    public final long maxRetryAfterMs;
+
+    private final Random random = new Random();
+
+    public RetryPolicy(int maxAttempts, long baseDelayMs, long maxDelayMs, long maxRetryAfterMs) {
+        this.maxAttempts = maxAttempts;
+        this.baseDelayMs = baseDelayMs;
+        this.maxDelayMs = maxDelayMs;
+        this.maxRetryAfterMs = maxRetryAfterMs;
+    }
+
+    /** 429 and 5xx except 501 (not implemented will not heal by retrying). */
+    public static boolean isRetryableStatus(int code) {
+        return code == 408 || code == 429 || (code >= 500 && code != 501);
+    }
+
+    /**
+     * Delay before the given retry (1 = first retry), or -1 when the server
+     * asked us to wait longer than we are willing to.
+     */
+    public long delayMs(int retry, String retryAfterHeader) {
+        long retryAfter = parseRetryAfterMs(retryAfterHeader);
+        if (retryAfter > maxRetryAfterMs) return -1;
+        long cap = Math.min(maxDelayMs, baseDelayMs << Math.min(retry - 1, 16));
+        long jittered;
+        synchronized (random) {
+            jittered = (long) (random.nextDouble() * cap);
+        }
+        return Math.max(jittered, retryAfter);
+    }
+
+    /** Retry-After as delta-seconds; HTTP-date values are treated as absent. */
+    static long parseRetryAfterMs(String header) {
+        if (header == null) return 0;
+        try {
+            return Math.max(0, Long.parseLong(header.trim()) * 1000);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.smartfirstaid.share;
+
+import java.text.Normalizer;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Who needs help and where, as one text message a person can read and a phone can open:
+ * <pre>
+ *   SOS Ravi Kumar, 34y, +919876543210 needs help at https://plus.codes/7J4VXHCV+JRM acc 12m 2026-10-18 05:42Z #SFA1
+ * </pre>
+ * Only GSM-7 basic characters are used, so the message is sent as 7-bit text and
+ * {@link #toSms()} always fits a single 160-character SMS; the name is transliterated to
+ * that alphabet and shortened if needed. The position is an 11-digit plus code (~3 m).
+ * {@link #parse} reads the same text back, so a receiving copy of the app can act on it.
+ */
+public final class EmergencyPayload {
+
+    public static final int SMS_LIMIT = 160;
+    static final String TAG_SUFFIX = "#SFA1";
+    private static final int CODE_DIGITS = 11;
+    private static final String TIME_FORMAT = "yyyy-MM-dd HH:mm";
+
+    private static final Pattern SMS = Pattern.compile("^SOS (?:(?!\\d{1,3}y, )(.*?), )?(?:(\\d{1,3})y, )?(?:(\\+?\\d{3,15}) )?"
+            + "needs help at https://plus\\.codes/([23456789CFGHJMPQRVWX]{8}\\+[23456789CFGHJMPQRVWX]{2,3})"
+            + "(?: acc (\\d{1,5})m)? (\\d{4}-\\d{2}-\\d{2} \\d{2}:\\d{2})Z " + TAG_SUFFIX + "$");
+    // letters, digits and punctuation that are single septets in the GSM 03.38 basic table
+    private static final Pattern NOT_GSM_NAME = Pattern.compile("[^A-Za-z0-9 .'\\-]");
+
+    public final String name;   // may be empty
+    public final int age;       // 0 = unknown
+    public final String phone;  // may be empty
+    public final double lat;
+    public final double lon;
+    public final int accuracyM; // -1 = unknown
+    public final long timeMs;
+
+    public EmergencyPayload(String name, int age, String phone, double lat, double lon,
+                            int accuracyM, long timeMs) {
+        this.name = name == null ? "" : name;
+        this.age = age;
+        this.phone = phone == null ? "" : phone;
+        this.lat = lat;
+        this.lon = lon;
+        this.accuracyM = accuracyM;
+        this.timeMs = timeMs;
+    }
+
+    public String plusCode() {
+        return PlusCode.encode(lat, lon, CODE_DIGITS);
+    }
+
+    /** The message text; at most {@link #SMS_LIMIT} GSM-7 characters. */
+    public String toSms() {
+        StringBuilder tail = new StringBuilder();
+        if (age > 0 && age < 1000) tail.append(age).append("y, ");
+        String digits = phone.replaceAll("[^+0-9]", "");
+        if (digits.matches("\\+?\\d{3,15}")) tail.append(digits).append(' ');
+        tail.append("needs help at https://plus.codes/").append(plusCode());
+        if (accuracyM >= 0) tail.append(" acc ").append(Math.min(accuracyM, 99_999)).append('m');
+        tail.append(' ').append(utc().format(new Date(timeMs))).append("Z ").append(TAG_SUFFIX);
+
+        String n = gsmName(name);
+        // "SOS " + name + ", " + tail; drop the name rather than overflow
+        int room = SMS_LIMIT - 4 - 2 - tail.length();
+        if (n.length() > room) n = n.substring(0, Math.max(0, room)).trim();
+        return n.isEmpty() ? "SOS " + tail : "SOS " + n + ", " + tail;
+    }
+
+    /** Inverse of {@link #toSms()}; position is the plus code's cell centre, time to the minute. */
+    public static EmergencyPayload parse(String sms) throws ParseException {
+        Matcher m = SMS.matcher(sms.trim());
+        if (!m.matches()) throw new ParseException("not an SOS message", 0);
+        double[] pos;
+        try {
+            pos = PlusCode.decode(m.group(4));
+        } catch (IllegalArgumentException e) {
+            throw new ParseException(e.getMessage(), m.start(4));
+        }
+        return new EmergencyPayload(
+                m.group(1) != null ? m.group(1) : "",
+                m.group(2) != null ? Integer.parseInt(m.group(2)) : 0,
+                m.group(3) != null ? m.group(3) : "",
+                pos[0], pos[1],
+                m.group(5) != null ? Integer.parseInt(m.group(5)) : -1,
+                utc().parse(m.group(6)).getTime());
+    }
+
+    /** True when every character is in the GSM 03.38 basic table (no escapes, no UCS-2). */
+    static boolean isGsm7Basic(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '\n') continue;
+            if (c < 0x20 || c > 0x7E) return false;
+            // ASCII characters that are only in the extension table (two septets) or absent
+            if ("[\\]^`{|}~".indexOf(c) >= 0) return false;
+        }
+        return true;
+    }
+
+    /** Strip accents, then anything outside the GSM basic letters; collapses spaces. */
+    static String gsmName(String name) {
+        String folded = Normalizer.normalize(name, Normalizer.Form.NFD).replaceAll("\\p{M}+", "");
+        StringBuilder sb = new StringBuilder();
+        for (String w : NOT_GSM_NAME.matcher(folded).replaceAll("").trim().split("\\s+")) {
+            if (w.isEmpty()) continue;
+            if (sb.length() > 0) sb.append(' ');
+            sb.append(w);
+        }
+        return sb.toString();
+    }
+
+    private static SimpleDateFormat utc() {
+        SimpleDateFormat f = new SimpleDateFormat(TIME_FORMAT, Locale.US);
+        f.setTimeZone(TimeZone.getTimeZone("UTC"));
+        f.setLenient(false);
+        return f;
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.smartfirstaid.share;
+
+import android.app.Activity;
+import android.content.ActivityNotFoundException;
+import android.content.ClipData;
+import android.content.ClipboardManager;
+import android.content.Context;
+import android.content.Intent;
+import android.net.Uri;
+import android.util.Log;
+
+/**
+ * Hands an SOS text to whatever can send it, in order of how well it works without data:
+ * the SMS app, then the share sheet (WhatsApp, email, ...), then the clipboard so the
+ * user can paste it anywhere. The user still picks the recipient and presses send.
+ */
+public final class EmergencySender {
+    private static final String TAG = "EmergencySender";
+
+    public enum Channel { SMS, SHARE_SHEET, CLIPBOARD }
+
+    private EmergencySender() {}
+
+    public static Channel send(Activity activity, String text) {
+        Intent sms = new Intent(Intent.ACTION_SENDTO, Uri.parse("smsto:"))
+                .putExtra("sms_body", text);
+        if (tryStart(activity, sms)) return Channel.SMS;
+
+        Intent share = new Intent(Intent.ACTION_SEND)
+                .setType("text/plain")
+                .putExtra(Intent.EXTRA_TEXT, text);
+        if (tryStart(activity, Intent.createChooser(share, "Send SOS via"))) return Channel.SHARE_SHEET;
+
+        ClipboardManager cm = (ClipboardManager) activity.getSystemService(Context.CLIPBOARD_SERVICE);
+        if (cm != null) cm.setPrimaryClip(ClipData.newPlainText("SOS", text));
+        return Channel.CLIPBOARD;
+    }
+
+    // starting and catching avoids declaring package-visibility queries for every SMS app
+    private static boolean tryStart(Activity activity, Intent intent) {
+        try {
+            activity.startActivity(intent);
+            return true;
+        } catch (ActivityNotFoundException | SecurityException e) {
+            Log.i(TAG, "No handler for " + intent.getAction() + ": " + e.getMessage());
+            return false;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.smartfirstaid.share;
+
+import java.util.Locale;
+
+/**
+ * Open Location Code ("plus code") encoding for full codes of 10 or 11 digits. Ten digits
+ * are a cell of 1/8000 degree (~14 m), eleven add one 5 x 4 grid step (~3 m). Maps apps
+ * and https://plus.codes open them directly, which makes them a compact, readable way to
+ * put a position in a text message.
+ */
+public final class PlusCode {
+    private static final String ALPHABET = "23456789CFGHJMPQRVWX";
+    private static final int PAIR_DIGITS = 10;
+    private static final int PAIR_RESOLUTION = 8000; // cells per degree after five pairs
+    private static final int GRID_ROWS = 5;
+    private static final int GRID_COLS = 4;
+    private static final char SEPARATOR = '+';
+    private static final int SEPARATOR_POS = 8;
+
+    private PlusCode() {}
+
+    public static String encode(double lat, double lon, int digits) {
+        if (digits != PAIR_DIGITS && digits != PAIR_DIGITS + 1) {
+            throw new IllegalArgumentException("only 10 or 11 digit codes are supported");
+        }
+        boolean grid = digits > PAIR_DIGITS;
+        long latScale = (long) PAIR_RESOLUTION * (grid ? GRID_ROWS : 1);
+        long lonScale = (long) PAIR_RESOLUTION * (grid ? GRID_COLS : 1);
+        lat = Math.min(Math.max(lat, -90), 90);
+        long latUnits = (long) Math.floor((lat + 90) * latScale);
+        // 90 itself belongs to the last row
+        latUnits = Math.min(latUnits, 180 * latScale - 1);
+        lon = ((lon + 180) % 360 + 360) % 360 - 180;
+        long lonUnits = (long) Math.floor((lon + 180) * lonScale);
+        lonUnits = Math.min(lonUnits, 360 * lonScale - 1);
+
+        char[] out = new char[digits + 1];
+        int pos = out.length - 1;
+        if (grid) {
+            out[pos--] = ALPHABET.charAt((int) (latUnits % GRID_ROWS) * GRID_COLS + (int) (lonUnits % GRID_COLS));
+            latUnits /= GRID_ROWS;
+            lonUnits /= GRID_COLS;
+        }
+        for (int i = 0; i < PAIR_DIGITS / 2; i++) {
+            if (pos == SEPARATOR_POS) out[pos--] = SEPARATOR;
+            out[pos--] = ALPHABET.charAt((int) (lonUnits % 20));
+            out[pos--] = ALPHABET.charAt((int) (latUnits % 20));
+            latUnits /= 20;
+            lonUnits /= 20;
+        }
+        return new String(out);
+    }
+
+    /** Centre of the code's cell as {lat, lon}. */
+    public static double[] decode(String code) {
+        String c = code.toUpperCase(Locale.ROOT);
+        if (c.length() < PAIR_DIGITS + 1 || c.indexOf(SEPARATOR) != SEPARATOR_POS) {
+            throw new IllegalArgumentException("not a full plus code: " + code);
+        }
+        c = c.substring(0, SEPARATOR_POS) + c.substring(SEPARATOR_POS + 1);
+        if (c.length() > PAIR_DIGITS + 1) throw new IllegalArgumentException("unsupported length: " + code);
+
+        long latUnits = 0, lonUnits = 0;
+        for (int i = 0; i < PAIR_DIGITS; i += 2) {
+            latUnits = latUnits * 20 + digit(c.charAt(i), code);
+            lonUnits = lonUnits * 20 + digit(c.charAt(i + 1), code);
+        }
+        double latScale = PAIR_RESOLUTION, lonScale = PAIR_RESOLUTION;
+        if (c.length() > PAIR_DIGITS) {
+            int d = digit(c.charAt(PAIR_DIGITS), code);
+            latUnits = latUnits * GRID_ROWS + d / GRID_COLS;
+            lonUnits = lonUnits * GRID_COLS + d % GRID_COLS;
+            latScale *= GRID_ROWS;
+            lonScale *= GRID_COLS;
+        }
+        return new double[]{(latUnits + 0.5) / latScale - 90, (lonUnits + 0.5) / lonScale - 180};
+    }
+
+    private static int digit(char ch, String code) {
+        int d = ALPHABET.indexOf(ch);
+        if (d < 0) throw new IllegalArgumentException("not a plus code: " + code);
+        return d;
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.smartfirstaid.startup;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.example.smartfirstaid.data.db.MongoHelper;
+import com.example.smartfirstaid.data.model.Procedure;
+import com.example.smartfirstaid.data.repository.ProcedureRepository;
+import com.example.smartfirstaid.data.repository.ProcedureSync;
+import com.example.smartfirstaid.data.repository.WriteJournal;
+import com.example.smartfirstaid.images.EmergencyImageCache;
+import com.example.smartfirstaid.location.GeocodeCache;
+import com.example.smartfirstaid.util.AppExecutors;
+import com.example.smartfirstaid.util.PasswordHasher;
+import com.example.smartfirstaid.util.StartupMetrics;
+import com.example.smartfirstaid.voice.TtsEngine;
+import com.example.smartfirstaid.voice.VoiceCache;
+import com.example.smartfirstaid.voice.VoiceSynthesizer;
+
+import org.bson.Document;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs once per process, off the main thread: loads the local procedure store into
+ * memory, opens the Mongo connection, syncs procedures and pre-renders their images
+ * and voice lines, so the first EmergencyDetailActivity open is served warm.
+ */
+public final class WarmupRunner {
+    private static final String TAG = "WarmupRunner";
+
+    private static boolean started;
+
+    private WarmupRunner() {}
+
+    public static synchronized void start(Context context) {
+        if (started) return;
+        started = true;
+        final Context app = context.getApplicationContext();
+        AppExecutors.io().execute(() -> run(app));
+    }
+
+    private static void run(Context app) {
+        ProcedureRepository repo = ProcedureRepository.get(app);
+
+        // 0) start binding the shared TTS engine; it comes up on the main thread while we work
+        TtsEngine.get(app).warmUp();
+
+        // 1) local store -> memory; works offline and makes cached procedures instant
+        long t = SystemClock.elapsedRealtime();
+        int local = repo.loadAllLocal();
+        StartupMetrics.warmupStep("local procedures (" + local + ")", SystemClock.elapsedRealtime() - t);
+
+        // 1b) pick this device's PBKDF2 cost once, so sign-in never pays for calibration
+        t = SystemClock.elapsedRealtime();
+        try {
+            PasswordHasher.get(app).currentIterations();
+            StartupMetrics.warmupStep("password hasher", SystemClock.elapsedRealtime() - t);
+        } catch (Exception e) {
+            Log.w(TAG, "PBKDF2 calibration failed: " + e.getMessage());
+        }
+
+        // 2) driver class loading, TCP handshake, cluster monitor startup
+        // a client object exists even when the ping fails; only a successful ping says the
+        // server answers, so offline starts don't pay another selection timeout per step
+        boolean reachable = false;
+        t = SystemClock.elapsedRealtime();
+        try {
+            MongoHelper.database().runCommand(new Document("ping", 1));
+            reachable = true;
+            StartupMetrics.warmupStep("mongo connect", SystemClock.elapsedRealtime() - t);
+            t = SystemClock.elapsedRealtime();
+            MongoHelper.ensureSchema();
+            StartupMetrics.warmupStep("mongo indexes", SystemClock.elapsedRealtime() - t);
+        } catch (Exception e) {
+            Log.w(TAG, "Mongo unreachable, serving local procedures only: " + e.getMessage());
+        }
+
+        // 3) every procedure, not just the ones with a button today
+        if (reachable) {
+            t = SystemClock.elapsedRealtime();
+            try {
+                ProcedureSync.Report r = repo.sync();
+                StartupMetrics.warmupStep("procedure sync (" + r + ")", SystemClock.elapsedRealtime() - t);
+            } catch (Exception e) {
+                Log.w(TAG, "Procedure sync failed: " + e.getMessage());
+            }
+            // writes journaled while offline or during the last run
+            WriteJournal.get(app).flush();
+        }
+
+        // 4) render every procedure image at carousel size into the long-lived emergency cache
+        t = SystemClock.elapsedRealtime();
+        List<String> urls = new ArrayList<>();
+        for (Procedure p : repo.allLocal()) urls.addAll(p.images);
+        EmergencyImageCache images = EmergencyImageCache.get(app);
+        // nothing known locally yet (fresh install, offline): keep what is on disk
+        int removed = urls.isEmpty() ? 0 : images.retainOnly(urls);
+        int stored = images.prefetch(urls);
+        StartupMetrics.warmupStep("emergency images (" + stored + " new, " + removed + " dropped, "
+                + urls.size() + " total)", SystemClock.elapsedRealtime() - t);
+
+        // 5) queue every procedure's voice lines for synthesis; the engine works through them in the background
+        List<String> lines = new ArrayList<>();
+        for (Procedure p : repo.allLocal()) lines.addAll(VoiceCache.linesFor(p));
+        VoiceSynthesizer.get(app).enqueue(lines, false);
+
+        // 6) bundled place names for offline addresses; a no-op unless the asset changed
+        t = SystemClock.elapsedRealtime();
+        int places = GeocodeCache.get(app).preloadFromAssets();
+        if (places > 0) {
+            StartupMetrics.warmupStep("geocode preload (" + places + ")", SystemClock.elapsedRealtime() - t);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.smartfirstaid.util;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * App-wide thread pools. io() is for Mongo / disk / network calls, cpu() for
+ * heavy computation such as PBKDF2. Both are bounded so a burst of work
+ * queues instead of spawning threads.
+ */
+public final class AppExecutors {
+
+    private static final int IO_THREADS = 4;
+    private static final int CPU_THREADS =
+            Math.max(1, Math.min(Runtime.getRuntime().availableProcessors() - 1, 3));
+
+    private static final ExecutorService IO =
+            newPool("sfa-io", IO_THREADS, Process.THREAD_PRIORITY_BACKGROUND);
+    private static final ExecutorService CPU =
+            newPool("sfa-cpu", CPU_THREADS, Process.THREAD_PRIORITY_BACKGROUND + Process.THREAD_PRIORITY_MORE_FAVORABLE);
+
+    // timers only (retry backoff, hedging); never run blocking work here
+    private static final ScheduledExecutorService SCHEDULER = new ScheduledThreadPoolExecutor(1,
+            r -> new Thread(r, "sfa-timer"));
+
+    private static final Handler MAIN_HANDLER = new Handler(Looper.getMainLooper());
+    private static final Executor MAIN = MAIN_HANDLER::post;
+
+    private AppExecutors() {}
+
+    public static ExecutorService io() { return IO; }
+
+    public static ExecutorService cpu() { return CPU; }
+
+    public static Executor main() { return MAIN; }
+
+    public static ScheduledExecutorService scheduler() { return SCHEDULER; }
+
+    /**
+     * Run work on the CPU pool and wait for it. For use from an io() thread so that
+     * hashing stays bounded by the CPU pool instead of the I/O pool size.
+     */
+    public static <T> T onCpu(Callable<T> work) throws Exception {
+        try {
+            return CPU.submit(work).get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) throw (Exception) cause;
+            throw e;
+        }
+    }
+
+    private static ExecutorService newPool(final String name, int threads, final int priority) {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads,
+                30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                new ThreadFactory() {
+                    private final AtomicInteger n = new AtomicInteger();
+                    @Override public Thread newThread(Runnable r) {
+                        return new Thread(() -> {
+                            Process.setThreadPriority(priority);
+                            r.run();
+                        }, name + "-" + n.incrementAndGet());
+                    }
+                });
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+}
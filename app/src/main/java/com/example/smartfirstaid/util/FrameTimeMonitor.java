@@ -0,0 +1,67 @@
+package com.example.smartfirstaid.util;
+
+import android.util.Log;
+import android.view.Choreographer;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Records frame-to-frame intervals between start() and stop() with Choreographer and
+ * logs a summary under the "FrameTime" tag: frame count, p50/p95/max and how many
+ * frames overran 1.5x the display's refresh interval. Main thread only.
+ */
+public final class FrameTimeMonitor implements Choreographer.FrameCallback {
+    private static final String TAG = "FrameTime";
+    private static final int MAX_FRAMES = 600;
+
+    private final String label;
+    private final long jankThresholdNs;
+    private final long[] intervalsNs = new long[MAX_FRAMES];
+    private int count;
+    private long lastFrameNs;
+    private boolean running;
+
+    public FrameTimeMonitor(String label, float refreshRateHz) {
+        this.label = label;
+        float hz = refreshRateHz > 1 ? refreshRateHz : 60f;
+        this.jankThresholdNs = (long) (1.5 * 1_000_000_000L / hz);
+    }
+
+    public void start() {
+        if (running) return;
+        running = true;
+        count = 0;
+        lastFrameNs = 0;
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    public void stop() {
+        if (!running) return;
+        running = false;
+        Choreographer.getInstance().removeFrameCallback(this);
+        if (count == 0) return;
+
+        long[] sorted = Arrays.copyOf(intervalsNs, count);
+        Arrays.sort(sorted);
+        int janky = 0;
+        for (long ns : sorted) if (ns > jankThresholdNs) janky++;
+        Log.i(TAG, label + " frames=" + count
+                + " p50=" + ms(sorted[count / 2])
+                + " p95=" + ms(sorted[Math.min(count - 1, (int) (count * 0.95))])
+                + " max=" + ms(sorted[count - 1])
+                + " janky=" + janky);
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (!running) return;
+        if (lastFrameNs != 0 && count < MAX_FRAMES) intervalsNs[count++] = frameTimeNanos - lastFrameNs;
+        lastFrameNs = frameTimeNanos;
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    private static String ms(long ns) {
+        return String.format(Locale.US, "%.1fms", ns / 1_000_000.0);
+    }
+}
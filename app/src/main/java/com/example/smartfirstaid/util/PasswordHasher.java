@@ -0,0 +1,157 @@
+package com.example.smartfirstaid.util;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.security.MessageDigest;
+
+/**
+ * PBKDF2 password hashing with a per-device calibrated cost. Every hash is stored
+ * with its algorithm and iteration count, so records made with older parameters
+ * still verify and can be upgraded on the next successful sign-in.
+ * All hashing runs on the AppExecutors CPU pool; the blocking methods are meant to be
+ * called from an I/O thread, never from the CPU pool itself.
+ */
+public final class PasswordHasher {
+    private static final String TAG = "PasswordHasher";
+
+    /** Parameters every record made before calibration existed was hashed with. */
+    public static final int LEGACY_ITERATIONS = 150_000;
+
+    private static final String PREFS = "SmartFirstAidPrefs";
+    private static final String KEY_ITERATIONS = "pbkdf2_iterations";
+
+    // target time for one hash on this device, and the ceiling above LEGACY_ITERATIONS
+    private static final long TARGET_MS = 300;
+    private static final int MAX_ITERATIONS = 1_000_000;
+    private static final int PROBE_ITERATIONS = 20_000;
+
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BYTES = 32;
+
+    /** A stored password: algorithm, cost, salt and derived key. */
+    public static final class Hashed {
+        public final String algorithm;
+        public final int iterations;
+        public final byte[] salt;
+        public final byte[] hash;
+
+        public Hashed(String algorithm, int iterations, byte[] salt, byte[] hash) {
+            this.algorithm = algorithm;
+            this.iterations = iterations;
+            this.salt = salt;
+            this.hash = hash;
+        }
+    }
+
+    /**
+     * Rebuild a stored record from its UserDetails fields. Records created before the
+     * algorithm/iteration fields existed get the legacy parameters.
+     */
+    public static Hashed fromStored(String algorithm, Integer iterations, String saltBase64, String hashBase64) {
+        return new Hashed(
+                algorithm != null ? algorithm : PasswordUtils.PBKDF2_SHA256,
+                iterations != null ? iterations : LEGACY_ITERATIONS,
+                PasswordUtils.fromBase64(saltBase64),
+                PasswordUtils.fromBase64(hashBase64));
+    }
+
+    private static volatile PasswordHasher instance;
+
+    private final SharedPreferences prefs;
+    private volatile int iterations;
+
+    public static PasswordHasher get(Context context) {
+        if (instance == null) {
+            synchronized (PasswordHasher.class) {
+                if (instance == null) instance = new PasswordHasher(context.getApplicationContext());
+            }
+        }
+        return instance;
+    }
+
+    private PasswordHasher(Context context) {
+        prefs = context.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+        int stored = prefs.getInt(KEY_ITERATIONS, 0);
+        // builds before the legacy floor could calibrate below it
+        iterations = stored > 0 ? Math.max(LEGACY_ITERATIONS, stored) : 0;
+    }
+
+    /**
+     * Iteration count new hashes use on this device (calibrates on first call). Never below
+     * the legacy cost, so a rehash on a slow device does not weaken an existing record. Blocking.
+     */
+    public int currentIterations() throws Exception {
+        int it = iterations;
+        return it > 0 ? it : calibrate();
+    }
+
+    /** Measure PBKDF2 speed and pick the iteration count that takes about TARGET_MS. Blocking. */
+    public synchronized int calibrate() throws Exception {
+        if (iterations > 0) return iterations;
+        final byte[] salt = PasswordUtils.generateSalt(SALT_BYTES);
+        final char[] probe = "calibration".toCharArray();
+        long ms = AppExecutors.onCpu(() -> {
+            PasswordUtils.pbkdf2(probe, salt, 1_000, HASH_BYTES); // warm the provider
+            long start = SystemClock.elapsedRealtimeNanos();
+            PasswordUtils.pbkdf2(probe, salt, PROBE_ITERATIONS, HASH_BYTES);
+            return Math.max(1, (SystemClock.elapsedRealtimeNanos() - start) / 1_000_000);
+        });
+        int it = iterationsFor(ms);
+        iterations = it;
+        prefs.edit().putInt(KEY_ITERATIONS, it).apply();
+        Log.i(TAG, "Calibrated PBKDF2: " + PROBE_ITERATIONS + " iterations took " + ms
+                + " ms -> using " + it + " iterations");
+        return it;
+    }
+
+    /**
+     * Iteration count that takes about TARGET_MS when PROBE_ITERATIONS took probeMs,
+     * kept between LEGACY_ITERATIONS and MAX_ITERATIONS.
+     */
+    static int iterationsFor(long probeMs) {
+        long scaled = PROBE_ITERATIONS * TARGET_MS / Math.max(1, probeMs);
+        int it = (int) Math.max(LEGACY_ITERATIONS, Math.min(MAX_ITERATIONS, scaled));
+        // round to a readable number
+        return (it / 10_000) * 10_000;
+    }
+
+    /** Hash a new password with this device's current parameters. Blocking. */
+    public Hashed hash(String password) throws Exception {
+        final int it = currentIterations();
+        final byte[] salt = PasswordUtils.generateSalt(SALT_BYTES);
+        byte[] hash = timed("hash", it, () -> PasswordUtils.pbkdf2(password.toCharArray(), salt, it, HASH_BYTES));
+        return new Hashed(PasswordUtils.PBKDF2_SHA256, it, salt, hash);
+    }
+
+    /** Constant-time check of a password against a stored record. Blocking. */
+    public boolean verify(String password, Hashed stored) throws Exception {
+        if (!PasswordUtils.PBKDF2_SHA256.equals(stored.algorithm)) {
+            throw new IllegalArgumentException("Unsupported password algorithm " + stored.algorithm);
+        }
+        byte[] given = timed("verify", stored.iterations, () ->
+                PasswordUtils.pbkdf2(password.toCharArray(), stored.salt, stored.iterations, stored.hash.length));
+        return MessageDigest.isEqual(stored.hash, given);
+    }
+
+    /**
+     * True when the stored record uses another algorithm or fewer iterations than new hashes
+     * would. Never downward: a record from a faster device keeps its higher cost, so sign-ins
+     * from devices with different calibrations don't rewrite it back and forth.
+     */
+    public boolean needsRehash(Hashed stored) {
+        int it = iterations;
+        if (it <= 0) return false;
+        return !PasswordUtils.PBKDF2_SHA256.equals(stored.algorithm) || stored.iterations < it;
+    }
+
+    private static byte[] timed(String what, int iterations, java.util.concurrent.Callable<byte[]> work)
+            throws Exception {
+        long start = SystemClock.elapsedRealtime();
+        byte[] out = AppExecutors.onCpu(work);
+        Log.d(TAG, what + " (" + iterations + " iterations) took " + (SystemClock.elapsedRealtime() - start) + " ms");
+        return out;
+    }
+}
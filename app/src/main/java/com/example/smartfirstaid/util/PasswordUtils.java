@@ -8,19 +8,37 @@ import javax.crypto.spec.PBEKeySpec;
 import android.util.Base64;
 
 public final class PasswordUtils {
+    public static final String PBKDF2_SHA256 = "PBKDF2WithHmacSHA256";
+
+    // provider lookup is slow and SecretKeyFactory is not thread-safe: one per thread
+    private static final ThreadLocal<SecretKeyFactory> FACTORY = new ThreadLocal<>();
+    private static final SecureRandom RANDOM = new SecureRandom();
+
     private PasswordUtils(){}
 
     public static byte[] generateSalt(int size) {
         byte[] salt = new byte[size];
-        new SecureRandom().nextBytes(salt);
+        RANDOM.nextBytes(salt);
         return salt;
     }
 
     public static byte[] pbkdf2(char[] password, byte[] salt, int iterations, int keyLenBytes)
             throws NoSuchAlgorithmException, InvalidKeySpecException {
         PBEKeySpec spec = new PBEKeySpec(password, salt, iterations, keyLenBytes * 8);
-        SecretKeyFactory skf = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256");
-        return skf.generateSecret(spec).getEncoded();
+        try {
+            return factory().generateSecret(spec).getEncoded();
+        } finally {
+            spec.clearPassword();
+        }
+    }
+
+    private static SecretKeyFactory factory() throws NoSuchAlgorithmException {
+        SecretKeyFactory f = FACTORY.get();
+        if (f == null) {
+            f = SecretKeyFactory.getInstance(PBKDF2_SHA256);
+            FACTORY.set(f);
+        }
+        return f;
     }
 
     public static String toBase64(byte[] data) {
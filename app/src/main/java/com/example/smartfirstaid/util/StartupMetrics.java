@@ -0,0 +1,38 @@
+package com.example.smartfirstaid.util;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+/** Logs cold-start milestones under the "StartupMetrics" tag (filter Logcat to compare runs). */
+public final class StartupMetrics {
+    private static final String TAG = "StartupMetrics";
+
+    private static volatile long appStartMs;
+    private static volatile boolean firstInstructionLogged;
+
+    private StartupMetrics() {}
+
+    public static void markAppStart() {
+        appStartMs = SystemClock.elapsedRealtime();
+    }
+
+    public static long sinceAppStart() {
+        return appStartMs == 0 ? -1 : SystemClock.elapsedRealtime() - appStartMs;
+    }
+
+    public static void warmupStep(String step, long tookMs) {
+        Log.i(TAG, "warmup " + step + " took " + tookMs + " ms (t+" + sinceAppStart() + " ms)");
+    }
+
+    /**
+     * Time from opening EmergencyDetailActivity to instructions on screen.
+     * source is where the procedure came from: memory, local or remote.
+     */
+    public static void instructionShown(String key, long openedAtMs, String source) {
+        long ttfi = SystemClock.elapsedRealtime() - openedAtMs;
+        String first = firstInstructionLogged ? "" : " [first in process]";
+        firstInstructionLogged = true;
+        Log.i(TAG, "time-to-first-instruction key=" + key + " source=" + source
+                + " " + ttfi + " ms" + first);
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.smartfirstaid.util;
+
+import androidx.annotation.MainThread;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Replacement for AsyncTask: runs work on one of the AppExecutors pools and
+ * delivers the result on the main thread, unless the owner has been destroyed
+ * in the meantime, in which case the work is interrupted and nothing is delivered.
+ */
+public final class TaskRunner {
+
+    public interface Callback<T> {
+        void onSuccess(T result);
+        void onError(Exception e);
+    }
+
+    /** Handle for a running task. */
+    public static final class Task {
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+        private volatile Future<?> future;
+
+        public void cancel() {
+            if (cancelled.compareAndSet(false, true)) {
+                Future<?> f = future;
+                if (f != null) f.cancel(true);
+            }
+        }
+
+        public boolean isCancelled() {
+            return cancelled.get();
+        }
+    }
+
+    private TaskRunner() {}
+
+    /** Run blocking I/O work (Mongo, disk, network). */
+    @MainThread
+    public static <T> Task io(LifecycleOwner owner, Callable<T> work, Callback<T> callback) {
+        return run(owner, AppExecutors.io(), work, callback);
+    }
+
+    /** Run CPU-bound work (hashing, parsing). */
+    @MainThread
+    public static <T> Task cpu(LifecycleOwner owner, Callable<T> work, Callback<T> callback) {
+        return run(owner, AppExecutors.cpu(), work, callback);
+    }
+
+    @MainThread
+    public static <T> Task run(LifecycleOwner owner, ExecutorService executor,
+                               Callable<T> work, Callback<T> callback) {
+        final Task task = new Task();
+        final Lifecycle lifecycle = owner.getLifecycle();
+        if (lifecycle.getCurrentState() == Lifecycle.State.DESTROYED) {
+            task.cancel();
+            return task;
+        }
+
+        final LifecycleEventObserver observer = (source, event) -> {
+            if (event == Lifecycle.Event.ON_DESTROY) task.cancel();
+        };
+        lifecycle.addObserver(observer);
+
+        task.future = executor.submit(() -> {
+            T result = null;
+            Exception error = null;
+            try {
+                result = work.call();
+            } catch (Exception e) {
+                error = e;
+            }
+            final T r = result;
+            final Exception err = error;
+            AppExecutors.main().execute(() -> {
+                lifecycle.removeObserver(observer);
+                if (task.isCancelled()) return;
+                if (err != null) callback.onError(err);
+                else callback.onSuccess(r);
+            });
+        });
+        // cancel() may have raced with submit()
+        if (task.isCancelled()) task.future.cancel(true);
+        return task;
+    }
+}
@@ -0,0 +1,306 @@
+package com.example.smartfirstaid.voice;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.speech.tts.TextToSpeech;
+import android.speech.tts.UtteranceProgressListener;
+import android.util.Log;
+
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
+
+import com.example.smartfirstaid.util.AppExecutors;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The process's one TextToSpeech engine. Screens and the background synthesizer
+ * {@link #acquire} a {@link Handle}; the engine is created on the first acquire (or by
+ * {@link #warmUp}) and shut down only after every handle is released and it has sat idle
+ * for a while, so moving between procedures never rebinds the engine or reloads the voice.
+ *
+ * Each handle has its own queue: stop() drops only that caller's utterances. The engine
+ * is fed one job at a time, speech before synthesis, and progress is fanned out to the
+ * owning handle's {@link Callback} on the main thread.
+ */
+public final class TtsEngine {
+    private static final String TAG = "TtsEngine";
+    private static final long IDLE_SHUTDOWN_MS = 5 * 60_000;
+
+    /** Progress for one handle, delivered on the main thread. */
+    public abstract static class Callback {
+        public void onReady() { }
+        /** The engine could not be bound; a later acquire or speak() tries again. */
+        public void onUnavailable() { }
+        public void onStart(String utteranceId) { }
+        public void onDone(String utteranceId) { }
+        public void onError(String utteranceId) { }
+    }
+
+    public final class Handle {
+        private final Callback callback;
+        private final long acquiredAtMs = SystemClock.elapsedRealtime();
+        private boolean released;
+
+        private Handle(Callback callback) {
+            this.callback = callback;
+        }
+
+        public boolean isReady() {
+            return TtsEngine.this.isReady();
+        }
+
+        /** Queue speech; flush first drops this handle's own pending utterances. */
+        public void speak(String text, String utteranceId, boolean flush) {
+            if (flush) stop();
+            submit(new Job(this, text, utteranceId, null));
+        }
+
+        /** Queue rendering text to file; runs when no speech is waiting. */
+        public void synthesize(String text, File file, String utteranceId) {
+            submit(new Job(this, text, utteranceId, file));
+        }
+
+        /** Drop this handle's queued and current utterances; other callers are unaffected. */
+        public void stop() {
+            cancel(this);
+        }
+
+        public void release() {
+            TtsEngine.this.release(this);
+        }
+    }
+
+    private static final class Job {
+        final Handle owner;
+        final String text;
+        final String utteranceId;
+        final File file;
+
+        Job(Handle owner, String text, String utteranceId, File file) {
+            this.owner = owner;
+            this.text = text;
+            this.utteranceId = utteranceId;
+            this.file = file;
+        }
+    }
+
+    private static volatile TtsEngine instance;
+
+    private final Context app;
+
+    // guarded by this
+    private TextToSpeech tts;
+    private boolean ready;
+    private int refCount;
+    private int opens;
+    private long createdAtMs;
+    private final List<Handle> waiting = new ArrayList<>();
+    private final Deque<Job> speech = new ArrayDeque<>();
+    private final Deque<Job> synthesis = new ArrayDeque<>();
+    private Job current;
+    private String currentInternalId;
+    private long seq;
+    private ScheduledFuture<?> shutdown;
+
+    public static TtsEngine get(Context context) {
+        if (instance == null) {
+            synchronized (TtsEngine.class) {
+                if (instance == null) instance = new TtsEngine(context.getApplicationContext());
+            }
+        }
+        return instance;
+    }
+
+    private TtsEngine(Context app) {
+        this.app = app;
+    }
+
+    /** Start binding the engine ahead of the first screen that needs it. */
+    public synchronized void warmUp() {
+        ensureEngine();
+        scheduleShutdownIfIdle();
+    }
+
+    public synchronized boolean isReady() {
+        return ready;
+    }
+
+    public synchronized Handle acquire(Callback callback) {
+        refCount++;
+        opens++;
+        cancelShutdown();
+        Handle h = new Handle(callback);
+        if (ready) {
+            Log.i(TAG, "engine-ready 0 ms (open #" + opens + ", already bound)");
+            AppExecutors.main().execute(callback::onReady);
+        } else {
+            waiting.add(h);
+            ensureEngine();
+        }
+        return h;
+    }
+
+    /** acquire() released automatically when owner is destroyed. */
+    public Handle acquire(LifecycleOwner owner, Callback callback) {
+        final Handle h = acquire(callback);
+        owner.getLifecycle().addObserver((LifecycleEventObserver) (source, event) -> {
+            if (event == Lifecycle.Event.ON_DESTROY) h.release();
+        });
+        return h;
+    }
+
+    private synchronized void release(Handle h) {
+        if (h.released) return;
+        h.released = true;
+        waiting.remove(h);
+        cancel(h);
+        refCount--;
+        scheduleShutdownIfIdle();
+    }
+
+    private void ensureEngine() {
+        if (tts != null) return;
+        createdAtMs = SystemClock.elapsedRealtime();
+        // constructed on the main thread; onInit arrives there too
+        AppExecutors.main().execute(() -> {
+            synchronized (TtsEngine.this) {
+                if (tts == null) tts = new TextToSpeech(app, this::onInit);
+            }
+        });
+    }
+
+    private synchronized void onInit(int status) {
+        if (tts == null) return;
+        if (status != TextToSpeech.SUCCESS) {
+            Log.w(TAG, "TTS engine unavailable (status " + status + ")");
+            tts.shutdown();
+            tts = null;
+            failAll(speech);
+            failAll(synthesis);
+            for (Handle h : waiting) AppExecutors.main().execute(h.callback::onUnavailable);
+            waiting.clear();
+            return;
+        }
+        Locale locale = Locale.US;
+        int res = tts.setLanguage(locale);
+        if (res == TextToSpeech.LANG_MISSING_DATA || res == TextToSpeech.LANG_NOT_SUPPORTED) {
+            locale = Locale.getDefault();
+            tts.setLanguage(locale);
+        }
+        tts.setSpeechRate(VoiceCache.SPEECH_RATE);
+        VoiceCache.get(app).setLocaleTag(locale.toLanguageTag());
+        tts.setOnUtteranceProgressListener(new UtteranceProgressListener() {
+            @Override public void onStart(String id) { dispatch(id, 0); }
+            @Override public void onDone(String id) { dispatch(id, 1); }
+            @Override public void onError(String id) { dispatch(id, 2); }
+        });
+        ready = true;
+        long now = SystemClock.elapsedRealtime();
+        Log.i(TAG, "engine bound in " + (now - createdAtMs) + " ms");
+        // each waiting screen logs its own acquire-to-ready latency
+        for (Handle h : waiting) {
+            Log.i(TAG, "engine-ready " + (now - h.acquiredAtMs) + " ms (open #" + opens + ")");
+            AppExecutors.main().execute(h.callback::onReady);
+        }
+        waiting.clear();
+        pump();
+    }
+
+    private static void failAll(Deque<Job> queue) {
+        for (final Job j : queue) AppExecutors.main().execute(() -> j.owner.callback.onError(j.utteranceId));
+        queue.clear();
+    }
+
+    private synchronized void submit(Job job) {
+        if (job.owner.released) return;
+        (job.file == null ? speech : synthesis).addLast(job);
+        ensureEngine();
+        pump();
+    }
+
+    private synchronized void cancel(Handle h) {
+        removeOwned(speech, h);
+        removeOwned(synthesis, h);
+        if (current != null && current.owner == h) {
+            current = null;
+            currentInternalId = null;
+            if (tts != null) tts.stop();
+            pump();
+        }
+    }
+
+    private static void removeOwned(Deque<Job> queue, Handle h) {
+        for (Iterator<Job> it = queue.iterator(); it.hasNext(); ) {
+            if (it.next().owner == h) it.remove();
+        }
+    }
+
+    private void pump() {
+        while (ready && current == null) {
+            Job job = speech.pollFirst();
+            if (job == null) job = synthesis.pollFirst();
+            if (job == null) {
+                scheduleShutdownIfIdle();
+                return;
+            }
+            String id = "tts-" + (++seq);
+            int rc = job.file == null
+                    ? tts.speak(job.text, TextToSpeech.QUEUE_ADD, null, id)
+                    : tts.synthesizeToFile(job.text, null, job.file, id);
+            if (rc == TextToSpeech.SUCCESS) {
+                current = job;
+                currentInternalId = id;
+            } else {
+                final Job failed = job;
+                AppExecutors.main().execute(() -> failed.owner.callback.onError(failed.utteranceId));
+            }
+        }
+    }
+
+    private synchronized void dispatch(String internalId, int what) {
+        // a late callback for an utterance that was stopped
+        if (current == null || !internalId.equals(currentInternalId)) return;
+        final Job job = current;
+        if (what == 0) {
+            AppExecutors.main().execute(() -> job.owner.callback.onStart(job.utteranceId));
+            return;
+        }
+        current = null;
+        currentInternalId = null;
+        if (what == 1) AppExecutors.main().execute(() -> job.owner.callback.onDone(job.utteranceId));
+        else AppExecutors.main().execute(() -> job.owner.callback.onError(job.utteranceId));
+        pump();
+    }
+
+    private void scheduleShutdownIfIdle() {
+        if (refCount > 0 || current != null || !speech.isEmpty() || !synthesis.isEmpty()) return;
+        cancelShutdown();
+        shutdown = AppExecutors.scheduler().schedule(this::shutdownIfIdle, IDLE_SHUTDOWN_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private void cancelShutdown() {
+        if (shutdown != null) {
+            shutdown.cancel(false);
+            shutdown = null;
+        }
+    }
+
+    private synchronized void shutdownIfIdle() {
+        shutdown = null;
+        if (refCount > 0 || current != null || !speech.isEmpty() || !synthesis.isEmpty() || tts == null) return;
+        Log.d(TAG, "idle; releasing engine");
+        tts.shutdown();
+        tts = null;
+        ready = false;
+    }
+}
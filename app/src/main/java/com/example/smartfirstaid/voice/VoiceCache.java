@@ -0,0 +1,93 @@
+package com.example.smartfirstaid.voice;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.example.smartfirstaid.data.model.Procedure;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Synthesized voice lines on disk, one WAV per line, named by a hash of the text, the
+ * voice locale and the speech rate, so identical sentences across procedures share a
+ * file and a locale change never plays stale audio. Lives under files/ so guidance
+ * survives the system clearing caches.
+ */
+public final class VoiceCache {
+    private static final String DIR = "voice_lines";
+    private static final String PREFS = "SmartFirstAidPrefs";
+    private static final String KEY_LOCALE = "voice_locale";
+
+    /** Rate used for both synthesis and live speech. */
+    public static final float SPEECH_RATE = 0.95f;
+
+    private static volatile VoiceCache instance;
+
+    private final File dir;
+    private final SharedPreferences prefs;
+
+    public static VoiceCache get(Context context) {
+        if (instance == null) {
+            synchronized (VoiceCache.class) {
+                if (instance == null) instance = new VoiceCache(context.getApplicationContext());
+            }
+        }
+        return instance;
+    }
+
+    private VoiceCache(Context app) {
+        dir = new File(app.getFilesDir(), DIR);
+        prefs = app.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+    }
+
+    /** The lines voice guidance reads for a procedure: the do-list, else the voice script. */
+    public static List<String> linesFor(Procedure p) {
+        List<String> source = !p.doList.isEmpty() ? p.doList : p.voiceScript;
+        List<String> out = new ArrayList<>(source.size());
+        for (String line : source) {
+            if (line == null) continue;
+            String s = line.trim();
+            if (s.isEmpty()) continue;
+            if (!s.endsWith(".") && !s.endsWith("!") && !s.endsWith("?")) s = s + ".";
+            out.add(s);
+        }
+        return out;
+    }
+
+    /** Locale the engine last resolved to; US English until the engine has run once. */
+    public String localeTag() {
+        return prefs.getString(KEY_LOCALE, Locale.US.toLanguageTag());
+    }
+
+    void setLocaleTag(String tag) {
+        prefs.edit().putString(KEY_LOCALE, tag).apply();
+    }
+
+    File dir() {
+        return dir;
+    }
+
+    /** Where this line's audio lives for the current locale (may not exist yet). */
+    File fileFor(String line) {
+        String id = localeTag() + "|" + SPEECH_RATE + "|" + line;
+        try {
+            byte[] d = MessageDigest.getInstance("SHA-256").digest(id.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder(36);
+            for (int i = 0; i < 16; i++) sb.append(String.format(Locale.US, "%02x", d[i]));
+            return new File(dir, sb.append(".wav").toString());
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** The cached audio for line, or null. */
+    public File localFile(String line) {
+        File f = fileFor(line);
+        return f.length() > 0 ? f : null;
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.smartfirstaid.voice;
+
+import android.media.AudioAttributes;
+import android.media.MediaPlayer;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Step-by-step voice guidance. Each step plays its pre-synthesized file from
+ * {@link VoiceCache} when there is one, which needs no TTS engine; steps not rendered
+ * yet are spoken live through {@link LiveSpeaker}, waiting for the engine if needed.
+ * Supports pause/resume and repeating the current step. Main thread only.
+ */
+public final class VoicePlayer {
+    private static final String TAG = "VoiceGuide";
+    private static final String LIVE_PREFIX = "SFA_STEP_";
+
+    public interface Listener {
+        void onStepStarted(int step, int total);
+        void onFinished();
+    }
+
+    /** Live fallback; speak() returns false while the engine is not ready yet. */
+    public interface LiveSpeaker {
+        boolean speak(String text, String utteranceId);
+        void stop();
+    }
+
+    private final VoiceCache cache;
+    private final LiveSpeaker live;
+    private final Listener listener;
+
+    private List<String> lines = new ArrayList<>();
+    private int step = -1;
+    private boolean paused;
+    private boolean waitingForEngine;
+    private MediaPlayer player;
+    private long tapMs;
+
+    public VoicePlayer(VoiceCache cache, LiveSpeaker live, Listener listener) {
+        this.cache = cache;
+        this.live = live;
+        this.listener = listener;
+    }
+
+    public boolean isActive() {
+        return step >= 0;
+    }
+
+    public boolean isPaused() {
+        return paused;
+    }
+
+    public void start(List<String> lines) {
+        stop();
+        this.lines = new ArrayList<>(lines);
+        if (this.lines.isEmpty()) return;
+        tapMs = SystemClock.elapsedRealtime();
+        play(0);
+    }
+
+    public void pause() {
+        if (!isActive() || paused) return;
+        paused = true;
+        if (player != null && player.isPlaying()) player.pause();
+        else live.stop();
+    }
+
+    /** Continue where paused; a live step restarts from its beginning. */
+    public void resume() {
+        if (!isActive() || !paused) return;
+        paused = false;
+        if (player != null) player.start();
+        else play(step);
+    }
+
+    public void repeat() {
+        if (!isActive()) return;
+        paused = false;
+        play(step);
+    }
+
+    public void stop() {
+        releasePlayer();
+        if (isActive()) live.stop();
+        step = -1;
+        paused = false;
+        waitingForEngine = false;
+    }
+
+    /** The live engine became ready; start a step that was waiting for it. */
+    public void onEngineReady() {
+        if (waitingForEngine && !paused) play(step);
+    }
+
+    /** Forward TTS completion for live steps (from any utterance listener, on the main thread). */
+    public void onLiveDone(String utteranceId) {
+        if (isActive() && !paused && (LIVE_PREFIX + step).equals(utteranceId)) next();
+    }
+
+    private void play(int index) {
+        releasePlayer();
+        live.stop();
+        step = index;
+        waitingForEngine = false;
+        String line = lines.get(index);
+        File file = cache.localFile(line);
+        if (file != null && playFile(file)) {
+            started("file");
+            return;
+        }
+        if (live.speak(line, LIVE_PREFIX + index)) {
+            started("live");
+        } else {
+            waitingForEngine = true;
+        }
+    }
+
+    private boolean playFile(File file) {
+        MediaPlayer mp = new MediaPlayer();
+        try {
+            mp.setAudioAttributes(new AudioAttributes.Builder()
+                    .setUsage(AudioAttributes.USAGE_ASSISTANCE_ACCESSIBILITY)
+                    .setContentType(AudioAttributes.CONTENT_TYPE_SPEECH)
+                    .build());
+            mp.setDataSource(file.getAbsolutePath());
+            mp.setOnCompletionListener(done -> {
+                if (done == player) next();
+            });
+            mp.prepare();
+            mp.start();
+            player = mp;
+            return true;
+        } catch (Exception e) {
+            Log.w(TAG, "Cached line unplayable, speaking live: " + e.getMessage());
+            mp.release();
+            //noinspection ResultOfMethodCallIgnored
+            file.delete();
+            return false;
+        }
+    }
+
+    private void started(String source) {
+        if (step == 0 && tapMs != 0) {
+            Log.i(TAG, "tap-to-first-word " + (SystemClock.elapsedRealtime() - tapMs) + " ms (" + source + ")");
+            tapMs = 0;
+        }
+        listener.onStepStarted(step, lines.size());
+    }
+
+    private void next() {
+        releasePlayer();
+        if (step + 1 < lines.size()) {
+            play(step + 1);
+        } else {
+            step = -1;
+            listener.onFinished();
+        }
+    }
+
+    private void releasePlayer() {
+        if (player != null) {
+            MediaPlayer p = player;
+            player = null;
+            p.release();
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.smartfirstaid.voice;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Renders voice lines to {@link VoiceCache} in the background with synthesizeToFile,
+ * one line at a time, so guidance can later start from audio files without waiting for
+ * a TextToSpeech engine. Lines already on disk are skipped. Uses the shared
+ * {@link TtsEngine}, holding a handle only while it has work.
+ */
+public final class VoiceSynthesizer {
+    private static final String TAG = "VoiceSynthesizer";
+
+    private static volatile VoiceSynthesizer instance;
+
+    private final Context app;
+    private final VoiceCache cache;
+
+    // guarded by this
+    private final Deque<String> pending = new ArrayDeque<>();
+    private final Set<String> queued = new HashSet<>();
+    private TtsEngine.Handle engine;
+    private String currentLine;
+    private File currentTmp;
+    private long lineStartMs;
+
+    public static VoiceSynthesizer get(Context context) {
+        if (instance == null) {
+            synchronized (VoiceSynthesizer.class) {
+                if (instance == null) instance = new VoiceSynthesizer(context.getApplicationContext());
+            }
+        }
+        return instance;
+    }
+
+    private VoiceSynthesizer(Context app) {
+        this.app = app;
+        this.cache = VoiceCache.get(app);
+    }
+
+    /**
+     * Queue lines that are not cached yet. urgent lines (the procedure on screen) jump
+     * ahead of background work such as the warm-up pass.
+     */
+    public synchronized void enqueue(Collection<String> lines, boolean urgent) {
+        for (String line : lines) {
+            if (cache.localFile(line) != null) continue;
+            if (queued.add(line)) {
+                if (urgent) pending.addFirst(line);
+                else pending.addLast(line);
+            } else if (urgent && pending.remove(line)) {
+                pending.addFirst(line);
+            }
+        }
+        if (pending.isEmpty()) return;
+        if (engine == null) {
+            engine = TtsEngine.get(app).acquire(new TtsEngine.Callback() {
+                @Override public void onDone(String utteranceId) { lineFinished(true); }
+                @Override public void onError(String utteranceId) { lineFinished(false); }
+            });
+        }
+        pump();
+    }
+
+    private synchronized void pump() {
+        while (currentLine == null && !pending.isEmpty()) {
+            String line = pending.pollFirst();
+            File target = cache.fileFor(line);
+            if (target.length() > 0) {
+                queued.remove(line);
+                continue;
+            }
+            File dir = cache.dir();
+            if (!dir.isDirectory() && !dir.mkdirs()) {
+                Log.w(TAG, "Cannot create " + dir);
+                return;
+            }
+            currentLine = line;
+            currentTmp = new File(dir, target.getName() + ".tmp");
+            lineStartMs = SystemClock.elapsedRealtime();
+            engine.synthesize(line, currentTmp, target.getName());
+        }
+        if (currentLine == null && engine != null) {
+            // drained: let the engine idle out if no screen is using it
+            engine.release();
+            engine = null;
+        }
+    }
+
+    private synchronized void lineFinished(boolean ok) {
+        if (currentLine == null) return;
+        File target = cache.fileFor(currentLine);
+        if (ok && currentTmp.length() > 0 && currentTmp.renameTo(target)) {
+            Log.d(TAG, "Synthesized " + target.length() + " bytes in "
+                    + (SystemClock.elapsedRealtime() - lineStartMs) + " ms: " + currentLine);
+        } else {
+            //noinspection ResultOfMethodCallIgnored
+            currentTmp.delete();
+        }
+        queued.remove(currentLine);
+        currentLine = null;
+        currentTmp = null;
+        pump();
+    }
+}
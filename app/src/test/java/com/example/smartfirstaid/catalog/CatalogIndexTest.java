@@ -0,0 +1,103 @@
+package com.example.smartfirstaid.catalog;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class CatalogIndexTest {
+
+    private static final class Item {
+        final String title;
+        final List<String> keywords;
+
+        Item(String title, String... keywords) {
+            this.title = title;
+            this.keywords = Arrays.asList(keywords);
+        }
+
+        @Override
+        public String toString() {
+            return title;
+        }
+    }
+
+    private static final CatalogIndex.Fields<Item> FIELDS = new CatalogIndex.Fields<Item>() {
+        @Override public String title(Item item) { return item.title; }
+        @Override public List<String> keywords(Item item) { return item.keywords; }
+    };
+
+    private static final Item BURNS = new Item("Burns", "scald", "fire");
+    private static final Item BLEEDING = new Item("Severe Bleeding", "cut", "wound");
+    private static final Item SNAKE = new Item("Snake Bite", "venom", "bite");
+    private static final Item DOG = new Item("Dog Bite", "rabies");
+    private static final Item FRACTURE = new Item("Fracture", "broken bone");
+
+    private static CatalogIndex<Item> index() {
+        return CatalogIndex.build(Arrays.asList(BLEEDING, BURNS, DOG, FRACTURE, SNAKE), FIELDS);
+    }
+
+    private static List<String> titles(List<Item> items) {
+        List<String> out = new ArrayList<>();
+        for (Item i : items) out.add(i.title);
+        return out;
+    }
+
+    @Test
+    public void emptyQuery_returnsAllInOrder() {
+        assertEquals(5, index().search("  ").size());
+        assertEquals("Severe Bleeding", index().search("").get(0).title);
+    }
+
+    @Test
+    public void prefixOfAnyTitleWord() {
+        assertEquals(Arrays.asList("Dog Bite", "Snake Bite"), titles(index().search("bit")));
+        assertEquals(Collections.singletonList("Severe Bleeding"), titles(index().search("BLEE")));
+    }
+
+    @Test
+    public void titleStartBeforeOtherMatches() {
+        // "b": Burns starts with it; Bleeding, Dog Bite, Snake Bite have a title word; Fracture a keyword
+        assertEquals(Arrays.asList("Burns", "Severe Bleeding", "Dog Bite", "Snake Bite", "Fracture"),
+                titles(index().search("b")));
+    }
+
+    @Test
+    public void keywordsMatch() {
+        assertEquals(Collections.singletonList("Burns"), titles(index().search("scal")));
+        assertEquals(Collections.singletonList("Fracture"), titles(index().search("bone")));
+    }
+
+    @Test
+    public void allWordsMustMatch() {
+        assertEquals(Collections.singletonList("Snake Bite"), titles(index().search("bite ven")));
+        assertTrue(index().search("bite fire").isEmpty());
+        assertTrue(index().search("xyz").isEmpty());
+    }
+
+    @Test
+    public void accentInsensitive() {
+        CatalogIndex<Item> idx = CatalogIndex.build(Collections.singletonList(new Item("Br\u00fblure")), FIELDS);
+        assertEquals(1, idx.search("brul").size());
+        assertEquals(1, idx.search("BR\u00dbL").size());
+    }
+
+    /** Hundreds of entries must filter well inside a 16 ms frame. */
+    @Test
+    public void largeCatalog_fast() {
+        List<Item> many = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) many.add(new Item("Procedure " + i + " bite", "kw" + i, "common"));
+        CatalogIndex<Item> idx = CatalogIndex.build(many, FIELDS);
+        for (int i = 0; i < 200; i++) idx.search("proc " + (i % 10)); // warm up
+        long start = System.nanoTime();
+        int found = 0;
+        for (int i = 0; i < 100; i++) found += idx.search("co bi").size();
+        long perQueryUs = (System.nanoTime() - start) / 100 / 1000;
+        assertEquals(100_000, found);
+        assertTrue(perQueryUs + " us per query", perQueryUs < 16_000);
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.smartfirstaid.data.db;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoDatabase;
+
+import org.bson.Document;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Plan parsing runs everywhere. The index checks need a local mongod:
+ * SFA_TEST_MONGO_URI=mongodb://localhost:27017 ./gradlew test
+ */
+public class MongoSchemaTest {
+
+    @Test
+    public void winningStages_classicPlan() {
+        Document explain = Document.parse("{queryPlanner: {winningPlan: "
+                + "{stage: 'PROJECTION_COVERED', inputStage: {stage: 'IXSCAN', indexName: 'phone_unique'}}}}");
+        MongoSchema.PlanReport r = new MongoSchema.PlanReport("q", MongoSchema.winningStages(explain));
+        assertEquals(Arrays.asList("PROJECTION_COVERED", "IXSCAN"), r.stages);
+        assertTrue(r.isCovered());
+        assertFalse(r.isCollectionScan());
+    }
+
+    @Test
+    public void winningStages_slotBasedPlan() {
+        Document explain = Document.parse("{queryPlanner: {winningPlan: {queryPlan: "
+                + "{stage: 'LIMIT', inputStage: {stage: 'COLLSCAN'}}, slotBasedPlan: {}}}}");
+        assertTrue(new MongoSchema.PlanReport("q", MongoSchema.winningStages(explain)).isCollectionScan());
+    }
+
+    @Test
+    public void hotQueries_areTheShapesTheAppRuns() {
+        assertEquals(Arrays.asList("procedure by key", "delta sync", "undated sync", "sign-in lookup",
+                "register upsert"), names());
+        MongoSchema.HotQuery signIn = query("sign-in lookup");
+        for (String field : Arrays.asList("passwordHash", "passwordSalt", "passwordAlgo",
+                "passwordIterations", "firstName", "lastName", "age")) {
+            assertEquals(field, 1, signIn.projection.get(field));
+        }
+        MongoSchema.HotQuery delta = query("delta sync");
+        assertTrue(delta.filter.containsKey("$or"));
+        assertEquals(MongoSchema.proceduresAfterSort(), delta.sort);
+    }
+
+    @Test
+    public void hotQueriesUseIndexes() {
+        String uri = System.getenv("SFA_TEST_MONGO_URI");
+        Assume.assumeTrue("SFA_TEST_MONGO_URI not set", uri != null);
+
+        try (MongoClient client = MongoClients.create(uri)) {
+            MongoDatabase db = client.getDatabase("sfa_schema_test");
+            db.drop();
+            try {
+                for (int i = 0; i < 50; i++) {
+                    db.getCollection(MongoHelper.USER_DETAILS).insertOne(new Document("phone", "9" + i)
+                            .append("firstName", "F" + i).append("passwordHash", "h" + i));
+                    Document p = new Document("key", "k" + i).append("title", "T" + i);
+                    // a few legacy documents without updatedAt, as the undated phase expects
+                    if (i % 10 != 0) p.append("updatedAt", new Date(1_700_000_000_000L + i * 1000L));
+                    db.getCollection(MongoHelper.PROCEDURES).insertOne(p);
+                }
+                assertTrue(MongoSchema.ensureIndexes(db).isEmpty());
+                // second run is a no-op, not an error
+                assertTrue(MongoSchema.ensureIndexes(db).isEmpty());
+
+                List<MongoSchema.PlanReport> reports = MongoSchema.verify(db);
+                assertEquals(MongoSchema.HOT_QUERIES.size(), reports.size());
+                for (MongoSchema.PlanReport r : reports) {
+                    assertFalse(r.toString(), r.isCollectionScan());
+                }
+                // the (updatedAt, key) index must hand the delta sync its pages already in order
+                MongoSchema.PlanReport delta = reports.get(names().indexOf("delta sync"));
+                assertFalse(delta.toString(), delta.isInMemorySort());
+            } finally {
+                db.drop();
+            }
+        }
+    }
+
+    private static List<String> names() {
+        List<String> names = new ArrayList<>();
+        for (MongoSchema.HotQuery q : MongoSchema.HOT_QUERIES) names.add(q.name);
+        return names;
+    }
+
+    private static MongoSchema.HotQuery query(String name) {
+        return MongoSchema.HOT_QUERIES.get(names().indexOf(name));
+    }
+}
@@ -0,0 +1,187 @@
+package com.example.smartfirstaid.data.repository;
+
+import com.example.smartfirstaid.data.db.LocalDb;
+import com.example.smartfirstaid.data.model.Procedure;
+import com.example.smartfirstaid.data.snapshot.ProcedureSnapshot;
+import com.example.smartfirstaid.data.snapshot.ProcedureSnapshotWriter;
+
+import org.bson.Document;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.Assert.*;
+
+/** Mark and page bookkeeping of ProcedureSync, driven by an in-memory collection instead of Mongo. */
+public class ProcedureSyncTest {
+
+    private static final int PAGE = 2;
+
+    /** The SQLite side: rows and mark change together, or not at all when a commit fails. */
+    private static final class FakeStore implements ProcedureSync.Pager.Store {
+        final Map<String, Boolean> rows = new TreeMap<>(); // key -> deleted
+        final List<String> marks = new ArrayList<>();
+        ProcedureSync.Mark mark;
+        int commitsLeft = Integer.MAX_VALUE;
+
+        @Override public void commit(List<ProcedureSync.Change> page, ProcedureSync.Mark next) {
+            if (commitsLeft-- == 0) throw new IllegalStateException("connection lost");
+            for (ProcedureSync.Change c : page) rows.put(c.key, c.deleted);
+            writeMark(next);
+        }
+
+        @Override public void writeMark(ProcedureSync.Mark m) {
+            mark = m;
+            marks.add(m.ts + "/" + m.key);
+        }
+    }
+
+    private static Document dated(String key, long updatedAt) {
+        return new Document("key", key).append("updatedAt", new Date(updatedAt)).append("do", Arrays.asList("Step"));
+    }
+
+    private static Document undated(String key) {
+        return new Document("key", key).append("do", Arrays.asList("Step"));
+    }
+
+    /** What MongoSchema's undated and delta queries return for a mark, in their sort order. */
+    private static List<Document> scan(List<Document> server, ProcedureSync.Mark mark) {
+        List<Document> out = new ArrayList<>();
+        for (Document d : server) {
+            Date ts = d.getDate("updatedAt");
+            String key = d.getString("key");
+            if (mark.ts == LocalDb.HWM_UNDATED) {
+                if (ts == null && key.compareTo(mark.key) > 0) out.add(d);
+            } else if (ts != null && (ts.getTime() > mark.ts
+                    || (ts.getTime() == mark.ts && key.compareTo(mark.key) > 0))) {
+                out.add(d);
+            }
+        }
+        Collections.sort(out, (a, b) -> {
+            Date ta = a.getDate("updatedAt"), tb = b.getDate("updatedAt");
+            int c = ta == null || tb == null ? 0 : ta.compareTo(tb);
+            return c != 0 ? c : a.getString("key").compareTo(b.getString("key"));
+        });
+        return out;
+    }
+
+    /** Same loop as ProcedureSync.run, over the in-memory collection; false when interrupted. */
+    private static boolean run(List<Document> server, FakeStore store, ProcedureSnapshot snapshot,
+                               ProcedureSync.Pager[] out) {
+        ProcedureSync.Pager pager = new ProcedureSync.Pager(store, PAGE, ProcedureSync.startMark(store.mark, snapshot));
+        out[0] = pager;
+        try {
+            do {
+                for (Document d : scan(server, pager.mark())) pager.offer(new ProcedureSync.Change(d));
+            } while (pager.endOfScan());
+            return true;
+        } catch (IllegalStateException e) {
+            return false;
+        }
+    }
+
+    private static ProcedureSnapshot snapshot(long... updatedAt) throws Exception {
+        ProcedureSnapshotWriter w = new ProcedureSnapshotWriter();
+        for (int i = 0; i < updatedAt.length; i++) {
+            w.add(new Procedure("snap" + i, Collections.singletonList("Step"), Collections.<String>emptyList(),
+                    Collections.<String>emptyList(), Collections.<String>emptyList()), updatedAt[i]);
+        }
+        return ProcedureSnapshot.wrap(ByteBuffer.wrap(w.toByteArray(0)));
+    }
+
+    @Test
+    public void undatedDocuments_thenDatedPhaseFromZero() {
+        List<Document> server = Arrays.asList(
+                undated("c"), dated("e", 200), undated("a"), dated("d", 100), undated("b"));
+        FakeStore store = new FakeStore();
+        ProcedureSync.Pager[] pager = new ProcedureSync.Pager[1];
+
+        assertTrue(run(server, store, null, pager));
+
+        // undated pages keep the undated ts and advance by key, then (0, "") before the dated scan
+        assertEquals(Arrays.asList("-1/b", "-1/c", "0/", "200/e"), store.marks);
+        assertEquals(Arrays.asList("a", "b", "c", "d", "e"), new ArrayList<>(store.rows.keySet()));
+        assertEquals(5, pager[0].changed);
+    }
+
+    @Test
+    public void nothingUndated_stillMovesToDatedPhase() {
+        FakeStore store = new FakeStore();
+        ProcedureSync.Pager[] pager = new ProcedureSync.Pager[1];
+
+        assertTrue(run(Collections.singletonList(dated("a", 50)), store, null, pager));
+
+        assertEquals(Arrays.asList("0/", "50/a"), store.marks);
+    }
+
+    @Test
+    public void interruptedRun_resumesAfterLastCommittedPage() {
+        List<Document> server = Arrays.asList(
+                dated("a", 10), dated("b", 10), dated("c", 20), dated("d", 30), dated("e", 30));
+        FakeStore store = new FakeStore();
+        store.mark = new ProcedureSync.Mark(0, "");
+        store.commitsLeft = 1;
+        ProcedureSync.Pager[] pager = new ProcedureSync.Pager[1];
+
+        assertFalse(run(server, store, null, pager));
+        assertEquals(Arrays.asList("a", "b"), new ArrayList<>(store.rows.keySet()));
+        assertEquals("10/b", store.mark.ts + "/" + store.mark.key);
+        assertEquals(2, pager[0].changed);
+
+        store.commitsLeft = Integer.MAX_VALUE;
+        assertTrue(run(server, store, null, pager));
+
+        // only what the first run did not store, including "e", which shares d's timestamp
+        assertEquals(3, pager[0].changed);
+        assertEquals(5, store.rows.size());
+        assertEquals("30/e", store.mark.ts + "/" + store.mark.key);
+    }
+
+    @Test
+    public void tombstones_countedAndAdvanceTheMark() {
+        List<Document> server = Arrays.asList(dated("a", 10),
+                new Document("key", "b").append("deleted", true).append("updatedAt", new Date(20)));
+        FakeStore store = new FakeStore();
+        store.mark = new ProcedureSync.Mark(0, "");
+        ProcedureSync.Pager[] pager = new ProcedureSync.Pager[1];
+
+        assertTrue(run(server, store, null, pager));
+
+        assertEquals(1, pager[0].changed);
+        assertEquals(1, pager[0].deleted);
+        assertEquals(Boolean.TRUE, store.rows.get("b"));
+        assertEquals("20/b", store.mark.ts + "/" + store.mark.key);
+    }
+
+    @Test
+    public void firstRun_startsFromSnapshotMark() throws Exception {
+        List<Document> server = Arrays.asList(dated("snap0", 100), dated("snap1", 300), dated("new", 400));
+        FakeStore store = new FakeStore();
+        ProcedureSync.Pager[] pager = new ProcedureSync.Pager[1];
+
+        assertTrue(run(server, store, snapshot(100, 300), pager));
+
+        // the snapshot is current to (300, snap1): only the newer document is pulled
+        assertEquals(Collections.singletonList("new"), new ArrayList<>(store.rows.keySet()));
+        assertEquals(Collections.singletonList("400/new"), store.marks);
+    }
+
+    @Test
+    public void startMark_storedWins_undatedSnapshotStartsUndated() throws Exception {
+        ProcedureSync.Mark stored = new ProcedureSync.Mark(5, "k");
+        assertSame(stored, ProcedureSync.startMark(stored, snapshot(100)));
+
+        ProcedureSync.Mark fromUndated = ProcedureSync.startMark(null, snapshot(100, -1));
+        assertEquals(LocalDb.HWM_UNDATED, fromUndated.ts);
+        assertEquals("", fromUndated.key);
+
+        assertEquals(LocalDb.HWM_UNDATED, ProcedureSync.startMark(null, null).ts);
+    }
+}
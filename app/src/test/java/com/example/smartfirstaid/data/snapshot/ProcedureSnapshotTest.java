@@ -0,0 +1,100 @@
+package com.example.smartfirstaid.data.snapshot;
+
+import com.example.smartfirstaid.data.model.Procedure;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+/** Format round trip. The bundled asset itself is built by ProcedureSnapshotExport. */
+public class ProcedureSnapshotTest {
+
+    private static Procedure proc(String key, String... doList) {
+        return new Procedure(key, Arrays.asList(doList), Collections.singletonList("Do not panic"),
+                Arrays.asList(doList), Collections.singletonList("https://example.org/" + key + ".png"));
+    }
+
+    @Test
+    public void roundTrip() throws Exception {
+        byte[] bytes = new ProcedureSnapshotWriter()
+                .add(proc("snake_bite", "Keep still", "Call for help"), 2_000)
+                .add(proc("burns", "Cool under running water", "Call for help"), 3_000)
+                .add(proc("choking", "Five back blows"), 3_000)
+                .toByteArray(42);
+
+        ProcedureSnapshot snap = ProcedureSnapshot.wrap(ByteBuffer.wrap(bytes));
+        assertEquals(3, snap.size());
+        assertEquals(42, snap.createdAt());
+        assertEquals(Arrays.asList("burns", "choking", "snake_bite"), snap.keys());
+        assertEquals(3_000, snap.markTs());
+        assertEquals("choking", snap.markKey());
+
+        Procedure burns = snap.get("burns");
+        assertEquals(Arrays.asList("Cool under running water", "Call for help"), burns.doList);
+        assertEquals(Collections.singletonList("Do not panic"), burns.dontList);
+        assertEquals(burns.doList, burns.voiceScript);
+        assertEquals(Collections.singletonList("https://example.org/burns.png"), burns.images);
+        assertNull(snap.get("drowning"));
+        assertNull(snap.get("aaa"));
+    }
+
+    @Test
+    public void catalogMetadata_roundTrips() throws Exception {
+        Procedure snake = new Procedure("snake_bite", Collections.singletonList("Keep still"),
+                Collections.<String>emptyList(), Collections.<String>emptyList(), Collections.<String>emptyList(),
+                "Snakebite", Arrays.asList("venom", "bite"), "https://example.org/snake.png");
+        byte[] bytes = new ProcedureSnapshotWriter()
+                .add(snake, 1_000)
+                .add(proc("burns", "Cool under running water"), 1_000)
+                .toByteArray(0);
+
+        ProcedureSnapshot snap = ProcedureSnapshot.wrap(ByteBuffer.wrap(bytes));
+        Procedure s = snap.get("snake_bite");
+        assertEquals("Snakebite", s.title);
+        assertEquals(Arrays.asList("venom", "bite"), s.keywords);
+        assertEquals("https://example.org/snake.png", s.icon);
+
+        // documents without metadata keep the key-derived title and no icon
+        Procedure burns = snap.get("burns");
+        assertEquals("Burns", burns.title);
+        assertTrue(burns.keywords.isEmpty());
+        assertNull(burns.icon);
+    }
+
+    @Test(expected = java.io.IOException.class)
+    public void rejectsOlderFormat() throws Exception {
+        byte[] bytes = new ProcedureSnapshotWriter().add(proc("a", "x"), 5).toByteArray(0);
+        ByteBuffer.wrap(bytes).putShort(4, (short) 1);
+        ProcedureSnapshot.wrap(ByteBuffer.wrap(bytes));
+    }
+
+    @Test
+    public void stringsAreStoredOnce() throws Exception {
+        ProcedureSnapshotWriter w = new ProcedureSnapshotWriter();
+        for (int i = 0; i < 20; i++) w.add(proc("k" + i, "Call emergency services immediately"), i);
+        int shared = new ProcedureSnapshotWriter().add(proc("k0", "Call emergency services immediately"), 0)
+                .toByteArray(0).length;
+        // the repeated sentences are stored once: well under half of 20 separate files
+        assertTrue(w.toByteArray(0).length < shared * 20 / 2);
+    }
+
+    @Test
+    public void undatedDocumentsDisableTheMark() throws Exception {
+        byte[] bytes = new ProcedureSnapshotWriter()
+                .add(proc("a", "x"), 5)
+                .add(proc("b", "y"), -1)
+                .toByteArray(0);
+        ProcedureSnapshot snap = ProcedureSnapshot.wrap(ByteBuffer.wrap(bytes));
+        assertEquals(-1, snap.markTs());
+        assertEquals("", snap.markKey());
+    }
+
+    @Test(expected = java.io.IOException.class)
+    public void rejectsForeignData() throws Exception {
+        ProcedureSnapshot.wrap(ByteBuffer.wrap(new byte[64]));
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.smartfirstaid.diagnosis;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+
+import static org.junit.Assert.*;
+
+/**
+ * The streaming path of DiagnoseActivity against a local SSE server:
+ * SseReader -> GroqStreamEvents -> DiagnosisStreamParser, with the answer split mid-value.
+ */
+public class DiagnosisStreamTest {
+
+    // the diagnosis JSON cut inside values, the way tokens arrive
+    private static final String[] FRAGMENTS = {
+            "{\"disease\": \"Heat exh",
+            "austion\", \"criticality\": \"mod",
+            "erate\", \"immediate_actions\": [\"Move to shade",
+            "\", \"Sip water\"], \"worsen_actions\": [",
+            "\"Call 108\"]}"
+    };
+
+    private MockWebServer server;
+    private OkHttpClient client;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        client = new OkHttpClient.Builder().readTimeout(10, TimeUnit.SECONDS).build();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    /** Records parser output interleaved with the delta events that produced it. */
+    private static final class Recorder implements DiagnosisStreamParser.Listener {
+        final List<String> log = new ArrayList<>();
+        final Map<String, Long> atMs = new HashMap<>();
+        long startNs;
+        int chunks;
+
+        void chunk() {
+            log.add("chunk " + chunks++);
+        }
+
+        private void record(String entry, String timingKey) {
+            log.add(entry);
+            atMs.put(timingKey, (System.nanoTime() - startNs) / 1_000_000);
+        }
+
+        @Override public void onField(String key, String value) {
+            record(key + "=" + value, key);
+        }
+
+        @Override public void onArrayItem(String key, int index, String value) {
+            record(key + "[" + index + "]=" + value, key + "[" + index + "]");
+        }
+
+        @Override public void onObjectEnd() {
+            record("end", "end");
+        }
+    }
+
+    /** Responses API stream: created, one delta per fragment, completed. */
+    private static String responsesStream(String... fragments) {
+        StringBuilder sb = new StringBuilder(": keep-alive\n\n");
+        sb.append("event: response.created\ndata: {\"type\":\"response.created\"}\n\n");
+        for (String f : fragments) {
+            sb.append("event: response.output_text.delta\n")
+                    .append("data: {\"type\":\"response.output_text.delta\",\"delta\":")
+                    .append(JSONObject.quote(f)).append("}\n\n");
+        }
+        sb.append("event: response.completed\ndata: {\"type\":\"response.completed\"}\n\n");
+        return sb.toString();
+    }
+
+    /** Chat-completions stream: unnamed events with choices[0].delta.content, then [DONE]. */
+    private static String chatStream(String... fragments) {
+        StringBuilder sb = new StringBuilder();
+        for (String f : fragments) {
+            sb.append("data: {\"choices\":[{\"delta\":{\"content\":")
+                    .append(JSONObject.quote(f)).append("}}]}\n\n");
+        }
+        sb.append("data: [DONE]\n\n");
+        return sb.toString();
+    }
+
+    /** Same wiring as DiagnoseActivity.callGroqStreaming. */
+    private Recorder stream(MockResponse response) throws IOException {
+        server.enqueue(response.setHeader("Content-Type", "text/event-stream"));
+        final Recorder rec = new Recorder();
+        final DiagnosisStreamParser parser = new DiagnosisStreamParser(rec);
+        Request request = new Request.Builder()
+                .url(server.url("/openai/v1/responses"))
+                .header("Accept", "text/event-stream")
+                .build();
+        rec.startNs = System.nanoTime();
+        try (Response r = client.newCall(request).execute()) {
+            assertTrue(r.isSuccessful());
+            SseReader.read(r.body().source(), (event, data) -> {
+                String delta = GroqStreamEvents.deltaText(event, data);
+                if (delta != null) {
+                    rec.chunk();
+                    parser.feed(delta);
+                }
+                return !parser.isDone() && !GroqStreamEvents.isTerminal(event, data);
+            });
+        }
+        return rec;
+    }
+
+    private static final List<String> EXPECTED = Arrays.asList(
+            "chunk 0",
+            "chunk 1", "disease=Heat exhaustion",
+            "chunk 2", "criticality=moderate",
+            "chunk 3", "immediate_actions[0]=Move to shade", "immediate_actions[1]=Sip water",
+            "chunk 4", "worsen_actions[0]=Call 108", "end");
+
+    @Test
+    public void responsesApi_eachFieldEmittedByTheChunkThatCompletesIt() throws IOException {
+        Recorder rec = stream(new MockResponse().setChunkedBody(responsesStream(FRAGMENTS), 16));
+        assertEquals(EXPECTED, rec.log);
+    }
+
+    @Test
+    public void chatCompletions_sameFieldsAndPreambleIgnored() throws IOException {
+        String[] withPreamble = new String[FRAGMENTS.length + 1];
+        withPreamble[0] = "Here is the JSON:\n```json\n";
+        System.arraycopy(FRAGMENTS, 0, withPreamble, 1, FRAGMENTS.length);
+
+        Recorder rec = stream(new MockResponse().setChunkedBody(chatStream(withPreamble), 16));
+
+        List<String> expected = new ArrayList<>();
+        expected.add("chunk 0");
+        for (String e : EXPECTED) {
+            expected.add(e.startsWith("chunk ") ? "chunk " + (Integer.parseInt(e.substring(6)) + 1) : e);
+        }
+        assertEquals(expected, rec.log);
+    }
+
+    /** Fields render while the server is still sending, not when the body ends. */
+    @Test
+    public void throttledStream_firstFieldLongBeforeTheEnd() throws IOException {
+        String body = responsesStream(FRAGMENTS);
+        // ~100 ms per 64 bytes: the whole body takes roughly a second to arrive
+        Recorder rec = stream(new MockResponse().setChunkedBody(body, 16)
+                .throttleBody(64, 100, TimeUnit.MILLISECONDS));
+
+        long disease = rec.atMs.get("disease");
+        long end = rec.atMs.get("end");
+        assertTrue("disease at " + disease + " ms, object end at " + end + " ms", end - disease >= 250);
+        assertTrue(rec.atMs.get("criticality") <= rec.atMs.get("immediate_actions[0]"));
+        assertTrue(rec.atMs.get("immediate_actions[1]") <= rec.atMs.get("worsen_actions[0]"));
+    }
+}
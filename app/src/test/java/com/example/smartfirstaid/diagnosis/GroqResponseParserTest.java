@@ -0,0 +1,68 @@
+package com.example.smartfirstaid.diagnosis;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/** Object extraction from model text; the envelope walk needs android.util.JsonReader and is instrumented. */
+public class GroqResponseParserTest {
+
+    private static final String DIAGNOSIS = "{\"disease\": \"Heat exhaustion\", \"criticality\": \"moderate\"}";
+
+    @Test
+    public void bareObject() {
+        assertEquals(0, GroqResponseParser.firstBalancedObject(DIAGNOSIS));
+    }
+
+    @Test
+    public void proseBeforeAndAfter() {
+        String text = "Here is the assessment:\n```json\n" + DIAGNOSIS + "\n```\nStay safe.";
+        assertEquals(text.indexOf('{'), GroqResponseParser.firstBalancedObject(text));
+    }
+
+    @Test
+    public void bracesInsideStrings_doNotCount() {
+        assertEquals(0, GroqResponseParser.firstBalancedObject("{\"a\": \"x } y {\"}"));
+        assertEquals(0, GroqResponseParser.firstBalancedObject("{\"a\": \"}}}\", \"b\": \"{{\"}"));
+        // the only closing brace is inside a string
+        assertEquals(-1, GroqResponseParser.firstBalancedObject("{\"a\": \"}\""));
+    }
+
+    @Test
+    public void escapedQuotes_keepTheStringOpen() {
+        // {"a": "say \"}\" now"}
+        assertEquals(0, GroqResponseParser.firstBalancedObject("{\"a\": \"say \\\"}\\\" now\"}"));
+        // {"a": "\\"} : an escaped backslash, then the real closing quote
+        assertEquals(0, GroqResponseParser.firstBalancedObject("{\"a\": \"\\\\\"}"));
+        // {"a": "\"} : the quote is escaped, so the brace is still inside the string
+        assertEquals(-1, GroqResponseParser.firstBalancedObject("{\"a\": \"\\\"}"));
+    }
+
+    @Test
+    public void nestedObjects() {
+        assertEquals(6, GroqResponseParser.firstBalancedObject("text: {\"a\": {\"b\": [1, {\"c\": 2}]}} }"));
+        assertEquals(-1, GroqResponseParser.firstBalancedObject("{\"a\": {\"b\": 1}"));
+    }
+
+    @Test
+    public void truncatedOutput() {
+        String full = "Sure. " + DIAGNOSIS;
+        for (int cut = 0; cut < full.length(); cut++) {
+            assertEquals("cut at " + cut, -1, GroqResponseParser.firstBalancedObject(full.substring(0, cut)));
+        }
+        assertEquals(6, GroqResponseParser.firstBalancedObject(full));
+    }
+
+    @Test
+    public void noObject() {
+        assertEquals(-1, GroqResponseParser.firstBalancedObject(""));
+        assertEquals(-1, GroqResponseParser.firstBalancedObject("I cannot help with that."));
+        assertEquals(-1, GroqResponseParser.firstBalancedObject("} stray closing brace"));
+    }
+
+    @Test
+    public void anyCharSequence() {
+        StringBuilder sb = new StringBuilder("prefix ").append(DIAGNOSIS);
+        assertEquals(7, GroqResponseParser.firstBalancedObject(sb));
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.smartfirstaid.diagnosis;
+
+import com.example.smartfirstaid.data.model.Diagnosis;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class TriageEngineTest {
+
+    private static JSONObject condition(String name, String criticality, Object... termWeights) throws Exception {
+        JSONObject keywords = new JSONObject();
+        for (int i = 0; i < termWeights.length; i += 2) keywords.put((String) termWeights[i], termWeights[i + 1]);
+        return new JSONObject()
+                .put("name", name)
+                .put("criticality", criticality)
+                .put("keywords", keywords)
+                .put("immediate", new JSONArray().put(name + ": act now"))
+                .put("worsen", new JSONArray().put(name + ": if worse"));
+    }
+
+    private static TriageEngine engine() throws Exception {
+        JSONObject kb = new JSONObject()
+                .put("synonyms", new JSONObject().put("breathless", "breath").put("puking", "vomit"))
+                .put("red_flags", new JSONArray().put("unresponsive").put("seizure"))
+                .put("conditions", new JSONArray()
+                        .put(condition("Heart attack", "high", "chest", 3, "pressure", 2, "arm", 2, "sweat", 1, "jaw", 1))
+                        .put(condition("Heat exhaustion", "moderate", "heat", 3, "sweat", 2, "dizzy", 2, "vomit", 1))
+                        .put(condition("Asthma attack", "moderate", "breath", 3, "wheeze", 3, "chest", 1))
+                        .put(condition("Food poisoning", "low", "vomit", 3, "stomach", 2, "diarrhea", 2)));
+        return TriageEngine.fromKnowledgeBase(kb);
+    }
+
+    @Test
+    public void synonymsAndInflections_match() throws Exception {
+        Diagnosis d = engine().triage(Arrays.asList("Breathless since noon", "wheezes"));
+
+        assertNotNull(d);
+        assertEquals("Asthma attack", d.disease);
+        assertEquals("moderate", d.criticality);
+        assertEquals(Collections.singletonList("Asthma attack: act now"), d.immediateActions);
+        assertTrue(d.offline);
+
+        // "puking" only matches through the synonym table
+        assertEquals("Food poisoning", engine().triage(Arrays.asList("puking", "stomach cramps")).disease);
+    }
+
+    @Test
+    public void redFlag_escalatesToHigh() throws Exception {
+        assertEquals("low", engine().triage(Arrays.asList("puking", "stomach cramps")).criticality);
+
+        Diagnosis d = engine().triage(Arrays.asList("puking", "stomach cramps", "now unresponsive"));
+        assertEquals("Food poisoning", d.disease);
+        assertEquals("high", d.criticality);
+    }
+
+    @Test
+    public void belowMinimumScore_isNull() throws Exception {
+        assertNull(engine().triage(Collections.singletonList("jaw ache")));   // score 1
+        assertNull(engine().triage(Arrays.asList("headache", "tired")));     // no term known
+        assertNull(engine().triage(Collections.<String>emptyList()));
+        assertNotNull(engine().triage(Collections.singletonList("stomach"))); // score 2
+    }
+
+    @Test
+    public void highestScoreWins_thenBestCoverage() throws Exception {
+        // heart attack 3 + 2 + 1 = 6 against heat exhaustion's 2 for "sweat"
+        assertEquals("Heart attack",
+                engine().triage(Arrays.asList("chest pressure", "sweating")).disease);
+
+        // both score 3: food poisoning covers 3/7 of its weight, heart attack 3/9
+        List<String> symptoms = Arrays.asList("vomit", "chest");
+        Diagnosis d = engine().triage(symptoms);
+        assertEquals("Food poisoning", d.disease);
+        assertEquals("Offline estimate (43% keyword match)", d.possibility);
+
+        List<String> reversed = new ArrayList<>(symptoms);
+        Collections.reverse(reversed);
+        assertEquals("Food poisoning", engine().triage(reversed).disease);
+    }
+
+    @Test
+    public void largeKnowledgeBase_triagesWellUnderBudget() throws Exception {
+        // ~130x the bundled knowledge base: 2000 conditions over a 3000-term vocabulary
+        Random rnd = new Random(42);
+        JSONObject synonyms = new JSONObject();
+        for (int i = 0; i < 500; i++) synonyms.put("alias" + word(i), "term" + word(rnd.nextInt(3000)));
+        JSONArray conditions = new JSONArray();
+        for (int c = 0; c < 2000; c++) {
+            Object[] tw = new Object[16];
+            for (int k = 0; k < 8; k++) {
+                tw[2 * k] = "term" + word(rnd.nextInt(3000));
+                tw[2 * k + 1] = 1 + rnd.nextInt(3);
+            }
+            conditions.put(condition("Condition " + c, "moderate", tw));
+        }
+        TriageEngine engine = TriageEngine.fromKnowledgeBase(new JSONObject()
+                .put("synonyms", synonyms)
+                .put("red_flags", new JSONArray().put("unresponsive"))
+                .put("conditions", conditions));
+
+        // a long symptom form: 12 fields, a mix of known terms, aliases, plurals and noise
+        List<String> symptoms = new ArrayList<>();
+        for (int f = 0; f < 12; f++) {
+            symptoms.add("term" + word(rnd.nextInt(3000)) + "s and alias" + word(rnd.nextInt(500))
+                    + " with some unrelated words");
+        }
+
+        for (int i = 0; i < 200; i++) engine.triage(symptoms); // warm-up
+        long[] ns = new long[200];
+        for (int i = 0; i < ns.length; i++) {
+            long t = System.nanoTime();
+            assertNotNull(engine.triage(symptoms));
+            ns[i] = System.nanoTime() - t;
+        }
+        Arrays.sort(ns);
+        long p95Ms = ns[ns.length * 95 / 100] / 1_000_000;
+        assertTrue("p95 triage " + p95Ms + " ms", p95Ms < 50);
+    }
+
+    // letters only: the tokenizer splits on anything else
+    private static String word(int n) {
+        StringBuilder sb = new StringBuilder();
+        do {
+            sb.append((char) ('a' + n % 26));
+            n /= 26;
+        } while (n > 0);
+        return sb.toString();
+    }
+}
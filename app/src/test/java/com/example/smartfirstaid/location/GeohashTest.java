@@ -0,0 +1,60 @@
+package com.example.smartfirstaid.location;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class GeohashTest {
+
+    @Test
+    public void encode_knownValues() {
+        assertEquals("u4pruydqqvj", Geohash.encode(57.64911, 10.40744, 11));
+        assertEquals("ezs42", Geohash.encode(42.6, -5.6, 5));
+    }
+
+    @Test
+    public void bounds_containPoint() {
+        double[] b = Geohash.bounds(Geohash.encode(12.9716, 77.5946, 8));
+        assertTrue(b[0] <= 12.9716 && 12.9716 < b[1]);
+        assertTrue(b[2] <= 77.5946 && 77.5946 < b[3]);
+    }
+
+    @Test
+    public void neighbourhood_coversNearbyPoint() {
+        int p = Geohash.precisionFor(150, 12.97);
+        String cell = Geohash.encode(12.9716, 77.5946, p);
+        List<String> around = Arrays.asList(Geohash.neighbourhood(cell));
+        assertEquals(9, around.size());
+        assertEquals(cell, around.get(0));
+        // ~140 m north-east of the query point
+        String other = Geohash.encode(12.9725, 77.5955, p);
+        assertTrue(around.contains(other));
+    }
+
+    @Test
+    public void neighbourhood_wrapsAtAntimeridian() {
+        String cell = Geohash.encode(0.01, 179.9999, 6);
+        List<String> around = Arrays.asList(Geohash.neighbourhood(cell));
+        assertTrue(around.contains(Geohash.encode(0.01, -179.9999, 6)));
+    }
+
+    @Test
+    public void precisionFor_cellsAtLeastRadius() {
+        int p = Geohash.precisionFor(100, 0);
+        double[] b = Geohash.bounds(Geohash.encode(0, 0, p));
+        assertTrue(Geohash.distanceM(b[0], 0, b[1], 0) >= 100);
+        assertTrue(Geohash.distanceM(0, b[2], 0, b[3]) >= 100);
+        // one more character would be too small
+        double[] finer = Geohash.bounds(Geohash.encode(0, 0, p + 1));
+        assertTrue(Geohash.distanceM(finer[0], 0, finer[1], 0) < 100
+                || Geohash.distanceM(0, finer[2], 0, finer[3]) < 100);
+    }
+
+    @Test
+    public void distance_oneDegreeLatitude() {
+        assertEquals(111_195, Geohash.distanceM(0, 0, 1, 0), 100);
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.smartfirstaid.location;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MovementFilterTest {
+
+    // ~1.11 m per 0.00001 degree of latitude
+    private static final double LAT = 12.97, LON = 77.59;
+    private static final double DEG_PER_M = 1.0 / 111_195;
+
+    @Test
+    public void stationaryFixes_deduplicated() {
+        MovementFilter f = new MovementFilter();
+        assertTrue(f.accept(LAT, LON, 10, 0));
+        int kept = 0;
+        for (int s = 10; s < 60 * 4; s += 10) {
+            // jitter within accuracy
+            if (f.accept(LAT + (s % 20 == 0 ? 5 : -5) * DEG_PER_M, LON, 10, s * 1000L)) kept++;
+        }
+        assertEquals(0, kept);
+    }
+
+    @Test
+    public void stationaryFixes_keepAliveAfterFiveMinutes() {
+        MovementFilter f = new MovementFilter();
+        f.accept(LAT, LON, 10, 0);
+        assertFalse(f.accept(LAT, LON, 10, MovementFilter.KEEPALIVE_MS - 1));
+        assertTrue(f.accept(LAT, LON, 10, MovementFilter.KEEPALIVE_MS));
+    }
+
+    @Test
+    public void movingFixes_kept() {
+        MovementFilter f = new MovementFilter();
+        for (int s = 0; s < 60; s += 5) {
+            // ~1.4 m/s walking, 5 s apart = 7 m per fix, so every third fix clears 15 m
+            f.accept(LAT + s * 1.4 * DEG_PER_M, LON, 5, s * 1000L);
+        }
+        assertEquals(MovementFilter.Mode.MOVING, f.mode());
+        assertTrue(f.accept(LAT + 200 * DEG_PER_M, LON, 5, 61_000));
+    }
+
+    @Test
+    public void settlesThenLeaves() {
+        MovementFilter f = new MovementFilter();
+        f.accept(LAT, LON, 10, 0);
+        f.accept(LAT + 10 * DEG_PER_M, LON, 10, 60_000);
+        assertEquals(MovementFilter.Mode.MOVING, f.mode());
+        f.accept(LAT - 10 * DEG_PER_M, LON, 10, MovementFilter.SETTLE_MS);
+        assertEquals(MovementFilter.Mode.STATIONARY, f.mode());
+
+        // one inaccurate fix far away is not movement
+        f.accept(LAT + 100 * DEG_PER_M, LON, 500, MovementFilter.SETTLE_MS + 10_000);
+        assertEquals(MovementFilter.Mode.STATIONARY, f.mode());
+
+        f.accept(LAT + 100 * DEG_PER_M, LON, 10, MovementFilter.SETTLE_MS + 20_000);
+        assertEquals(MovementFilter.Mode.MOVING, f.mode());
+    }
+}
@@ -0,0 +1,180 @@
+package com.example.smartfirstaid.net;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+
+import static org.junit.Assert.*;
+
+/** ResilientCall against a fault-injecting local server. */
+public class ResilientCallTest {
+
+    private MockWebServer server;
+    private OkHttpClient client;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        client = new OkHttpClient();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    /** The single outcome a ResilientCall hands to its callback. */
+    private static final class Outcome implements Callback {
+        final CountDownLatch done = new CountDownLatch(1);
+        int code;
+        String body;
+        IOException error;
+
+        @Override public void onFailure(Call call, IOException e) {
+            error = e;
+            done.countDown();
+        }
+
+        @Override public void onResponse(Call call, Response response) throws IOException {
+            code = response.code();
+            body = response.body().string();
+            response.close();
+            done.countDown();
+        }
+    }
+
+    // same shape as the Groq policy, with short backoff so tests stay fast
+    private static CallPolicy policy(int hedgePercentile) {
+        return new CallPolicy(new RetryPolicy(3, 10, 50, 2_000),
+                new CircuitBreaker(3, 30_000), new LatencyTracker(50), hedgePercentile);
+    }
+
+    private Outcome call(CallPolicy policy) throws InterruptedException {
+        Outcome out = new Outcome();
+        Request request = new Request.Builder().url(server.url("/diagnose")).build();
+        new ResilientCall(client, request, policy).enqueue(out);
+        assertTrue("no outcome", out.done.await(10, TimeUnit.SECONDS));
+        return out;
+    }
+
+    @Test
+    public void transientErrors_retriedUntilSuccess() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(new MockResponse().setResponseCode(429));
+        server.enqueue(new MockResponse().setBody("ok"));
+        CallPolicy p = policy(0);
+
+        Outcome out = call(p);
+
+        assertEquals(200, out.code);
+        assertEquals("ok", out.body);
+        assertEquals(3, server.getRequestCount());
+        assertEquals(CircuitBreaker.State.CLOSED, p.breaker.state());
+    }
+
+    @Test
+    public void clientErrors_notRetried() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(400).setBody("bad request"));
+
+        Outcome out = call(policy(0));
+
+        assertEquals(400, out.code);
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void retryAfter_honoured() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(429).setHeader("Retry-After", "1"));
+        server.enqueue(new MockResponse().setBody("ok"));
+
+        long start = System.nanoTime();
+        Outcome out = call(policy(0));
+        long tookMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals(200, out.code);
+        // backoff alone is capped at 50 ms; only Retry-After explains a one-second wait
+        assertTrue("retried after " + tookMs + " ms", tookMs >= 1_000);
+    }
+
+    @Test
+    public void retryAfter_longerThanCap_handsOverTheError() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(429).setHeader("Retry-After", "60"));
+
+        Outcome out = call(policy(0));
+
+        assertEquals(429, out.code);
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void slowAttempt_hedgedAndFastCopyWins() throws Exception {
+        CallPolicy p = policy(95);
+        for (int i = 0; i < 20; i++) p.latency.record(100); // p95 = 100 ms
+        server.enqueue(new MockResponse().setBody("slow").setHeadersDelay(3, TimeUnit.SECONDS));
+        server.enqueue(new MockResponse().setBody("fast"));
+
+        long start = System.nanoTime();
+        Outcome out = call(p);
+        long tookMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals("fast", out.body);
+        assertEquals(2, server.getRequestCount());
+        assertTrue("answered after " + tookMs + " ms", tookMs < 2_000);
+    }
+
+    @Test
+    public void noHedge_untilLatencyHistoryExists() throws Exception {
+        server.enqueue(new MockResponse().setBody("ok").setHeadersDelay(300, TimeUnit.MILLISECONDS));
+
+        Outcome out = call(policy(95));
+
+        assertEquals("ok", out.body);
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void breaker_countsLogicalCalls_thenFailsFast() throws Exception {
+        CallPolicy p = policy(0);
+        for (int i = 0; i < 9; i++) server.enqueue(new MockResponse().setResponseCode(503));
+
+        // three attempts, one logical failure: the circuit stays closed
+        Outcome first = call(p);
+        assertEquals(503, first.code);
+        assertEquals(3, server.getRequestCount());
+        assertEquals(CircuitBreaker.State.CLOSED, p.breaker.state());
+
+        call(p);
+        call(p);
+        assertEquals(CircuitBreaker.State.OPEN, p.breaker.state());
+        assertEquals(9, server.getRequestCount());
+
+        Outcome rejected = call(p);
+        assertTrue(rejected.error instanceof CircuitOpenException);
+        assertEquals("no request while open", 9, server.getRequestCount());
+    }
+
+    @Test
+    public void connectionFailures_retriedThenReported() throws Exception {
+        CallPolicy p = policy(0);
+        server.shutdown(); // nothing listening: every attempt fails to connect
+
+        Outcome out = call(p);
+
+        assertNotNull(out.error);
+        assertFalse(out.error instanceof CircuitOpenException);
+        assertEquals(CircuitBreaker.State.CLOSED, p.breaker.state());
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.smartfirstaid.share;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+
+import static org.junit.Assert.*;
+
+public class EmergencyPayloadTest {
+
+    // 2026-10-18 05:42 UTC
+    private static final long T = 1_792_302_120_000L;
+
+    private static EmergencyPayload sample(String name) {
+        return new EmergencyPayload(name, 34, "+919876543210", 12.971598, 77.594562, 12, T);
+    }
+
+    @Test
+    public void plusCode_knownValue() {
+        assertEquals("7FG49QCJ+2V", PlusCode.encode(20.3700625, 2.7821875, 10));
+    }
+
+    @Test
+    public void plusCode_roundTripWithinCell() {
+        double[][] points = {{12.971598, 77.594562}, {-33.8688, 151.2093}, {89.99999, -179.99999}, {0, 0}};
+        for (double[] p : points) {
+            double[] d = PlusCode.decode(PlusCode.encode(p[0], p[1], 11));
+            // 11 digits: 1/40000 degree of latitude, 1/32000 of longitude
+            assertEquals(p[0], d[0], 1.0 / 40000);
+            assertEquals(p[1], d[1], 1.0 / 32000);
+        }
+    }
+
+    @Test
+    public void roundTrip() throws ParseException {
+        EmergencyPayload in = sample("Ravi Kumar");
+        EmergencyPayload out = EmergencyPayload.parse(in.toSms());
+        assertEquals("Ravi Kumar", out.name);
+        assertEquals(34, out.age);
+        assertEquals("+919876543210", out.phone);
+        assertEquals(12, out.accuracyM);
+        assertEquals(T, out.timeMs);
+        assertEquals(in.plusCode(), out.plusCode());
+        assertEquals(in.lat, out.lat, 1.0 / 40000);
+        assertEquals(in.lon, out.lon, 1.0 / 32000);
+    }
+
+    @Test
+    public void roundTrip_optionalFieldsMissing() throws ParseException {
+        EmergencyPayload in = new EmergencyPayload("", 0, "", -1.2921, 36.8219, -1, T);
+        String sms = in.toSms();
+        assertTrue(sms, sms.startsWith("SOS needs help at "));
+        EmergencyPayload out = EmergencyPayload.parse(sms);
+        assertEquals("", out.name);
+        assertEquals(0, out.age);
+        assertEquals("", out.phone);
+        assertEquals(-1, out.accuracyM);
+    }
+
+    @Test
+    public void roundTrip_noNameWithAge() throws ParseException {
+        EmergencyPayload out = EmergencyPayload.parse(
+                new EmergencyPayload("", 7, "9876543210", 0, 0, 5, T).toSms());
+        assertEquals("", out.name);
+        assertEquals(7, out.age);
+        assertEquals("9876543210", out.phone);
+    }
+
+    @Test
+    public void name_transliteratedToGsm() throws ParseException {
+        String sms = sample("Jos\u00e9 M\u00fcller-\u0141opez {admin}").toSms();
+        assertTrue(sms, EmergencyPayload.isGsm7Basic(sms));
+        assertEquals("Jose Muller-opez admin", EmergencyPayload.parse(sms).name);
+    }
+
+    @Test
+    public void name_nonLatinDropped() throws ParseException {
+        String sms = sample("\u0930\u0935\u093f").toSms();
+        assertTrue(sms, EmergencyPayload.isGsm7Basic(sms));
+        assertEquals("+919876543210", EmergencyPayload.parse(sms).phone);
+    }
+
+    @Test
+    public void longName_fitsOneSms() throws ParseException {
+        StringBuilder name = new StringBuilder();
+        for (int i = 0; i < 20; i++) name.append("Venkataramanan ");
+        EmergencyPayload p = new EmergencyPayload(name.toString(), 104, "+919876543210",
+                -12.971598, -77.594562, 99_999, T);
+        String sms = p.toSms();
+        assertTrue(sms.length() + " chars", sms.length() <= EmergencyPayload.SMS_LIMIT);
+        assertTrue(sms, EmergencyPayload.isGsm7Basic(sms));
+        assertTrue(EmergencyPayload.parse(sms).name.startsWith("Venkataramanan"));
+    }
+
+    @Test
+    public void notAnSos_rejected() {
+        try {
+            EmergencyPayload.parse("hello, call me back");
+            fail("parsed a non-SOS text");
+        } catch (ParseException expected) {
+        }
+    }
+
+    /** Size next to the JSON an HTTP share would send; the SMS is the one that has to fit. */
+    @Test
+    public void size_comparedToJson() {
+        EmergencyPayload p = sample("Ravi Kumar");
+        String sms = p.toSms();
+        String json = "{\"name\":\"Ravi Kumar\",\"age\":34,\"phone\":\"+919876543210\","
+                + "\"lat\":12.971598,\"lon\":77.594562,\"accuracy\":12,\"time\":" + T + "}";
+        int smsBytes = sms.length() * 7 / 8 + 1; // GSM-7 packs 8 characters into 7 bytes
+        int jsonBytes = json.getBytes(StandardCharsets.UTF_8).length;
+        String sizes = sms.length() + " chars / " + smsBytes + " bytes vs json " + jsonBytes + " bytes: " + sms;
+        assertTrue(sizes, sms.length() <= EmergencyPayload.SMS_LIMIT);
+        assertTrue(sizes, smsBytes <= 140); // one SMS PDU
+        assertTrue(sizes, smsBytes < jsonBytes);
+    }
+}
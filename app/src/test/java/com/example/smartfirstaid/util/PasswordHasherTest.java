@@ -0,0 +1,29 @@
+package com.example.smartfirstaid.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PasswordHasherTest {
+
+    @Test
+    public void slowProbe_clampedToLegacyCost() {
+        // a desktop JVM before JIT warm-up: 20k iterations in 139-209 ms, i.e. 28k-43k for 300 ms
+        assertEquals(PasswordHasher.LEGACY_ITERATIONS, PasswordHasher.iterationsFor(209));
+        assertEquals(PasswordHasher.LEGACY_ITERATIONS, PasswordHasher.iterationsFor(139));
+        assertEquals(PasswordHasher.LEGACY_ITERATIONS, PasswordHasher.iterationsFor(40)); // exactly 150k
+    }
+
+    @Test
+    public void fastProbe_scaledToTargetAndRounded() {
+        // the same JVM once compiled: 29 ms -> 206,896, rounded down
+        assertEquals(200_000, PasswordHasher.iterationsFor(29));
+        assertEquals(300_000, PasswordHasher.iterationsFor(20));
+    }
+
+    @Test
+    public void veryFastProbe_cappedAtCeiling() {
+        assertEquals(1_000_000, PasswordHasher.iterationsFor(1));
+        assertEquals(1_000_000, PasswordHasher.iterationsFor(0));
+    }
+}
@@ -21,4 +21,5 @@ dependencyResolutionManagement {
 
 rootProject.name = "Smart First Aid"
 include(":app")
+include(":snapshot-export")
  
\ No newline at end of file
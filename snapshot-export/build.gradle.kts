@@ -0,0 +1,44 @@
+plugins {
+    java
+}
+
+// Plain JVM build step, no Android involved: the exporter compiles together with the app
+// sources it needs (Procedure model, snapshot writer and format), taken from the app module.
+sourceSets {
+    main {
+        java {
+            srcDir(rootProject.file("app/src/main/java"))
+            include(
+                "com/example/smartfirstaid/data/model/Procedure.java",
+                "com/example/smartfirstaid/data/snapshot/ProcedureSnapshotWriter.java",
+                "com/example/smartfirstaid/data/snapshot/SnapshotFormat.java",
+                "com/example/smartfirstaid/data/snapshot/ProcedureSnapshotExport.java"
+            )
+        }
+    }
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_1_8
+    targetCompatibility = JavaVersion.VERSION_1_8
+}
+
+dependencies {
+    implementation("org.mongodb:mongodb-driver-sync:4.3.1")
+}
+
+// Regenerates app/src/main/assets/procedures.snap from Mongo; run before a release build:
+// ./gradlew :snapshot-export:exportProcedureSnapshot -PsfaMongoUri=mongodb://localhost:27017
+tasks.register<JavaExec>("exportProcedureSnapshot") {
+    group = "build setup"
+    description = "Exports the procedures collection into the app's bundled binary snapshot."
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass.set("com.example.smartfirstaid.data.snapshot.ProcedureSnapshotExport")
+    val uri = (project.findProperty("sfaMongoUri") ?: System.getenv("SFA_EXPORT_MONGO_URI"))?.toString()
+    args(rootProject.file("app/src/main/assets/procedures.snap").absolutePath, uri ?: "")
+    doFirst {
+        if (uri.isNullOrEmpty()) {
+            throw GradleException("Pass -PsfaMongoUri=<connection string> or set SFA_EXPORT_MONGO_URI")
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.smartfirstaid.data.snapshot;
+
+import com.example.smartfirstaid.data.model.Procedure;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+
+import org.bson.Document;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Date;
+
+/**
+ * Build-time step that produces the app's bundled procedures.snap (ProcedureSnapshot.ASSET).
+ * Run through Gradle, which supplies the classpath:
+ * ./gradlew :snapshot-export:exportProcedureSnapshot -PsfaMongoUri=mongodb://localhost:27017
+ */
+public final class ProcedureSnapshotExport {
+
+    // same names as MongoHelper, which is Android code and not on this classpath
+    private static final String DATABASE = "Smart_First_Aid";
+    private static final String COLLECTION = "procedures";
+
+    private ProcedureSnapshotExport() {}
+
+    /** args: output file, Mongo connection string. */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("usage: ProcedureSnapshotExport <out.snap> <mongodb-uri>");
+            System.exit(2);
+        }
+        File out = new File(args[0]);
+
+        ProcedureSnapshotWriter w = new ProcedureSnapshotWriter();
+        int n = 0;
+        try (MongoClient client = MongoClients.create(args[1])) {
+            for (Document d : client.getDatabase(DATABASE).getCollection(COLLECTION)
+                    .find(new Document("deleted", new Document("$ne", true)))
+                    .projection(new Document("_id", 0))) {
+                if (d.getString("key") == null) continue;
+                Date ts = d.getDate("updatedAt");
+                w.add(Procedure.fromDocument(d), ts != null ? ts.getTime() : -1);
+                n++;
+            }
+        }
+        if (n == 0) {
+            // never replace a good asset with an empty one
+            System.err.println("No procedures found in " + DATABASE + "." + COLLECTION);
+            System.exit(1);
+        }
+
+        File parent = out.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Cannot create " + parent);
+        }
+        File tmp = new File(out.getPath() + ".tmp");
+        try (OutputStream os = new FileOutputStream(tmp)) {
+            w.writeTo(os, System.currentTimeMillis());
+        }
+        if (!tmp.renameTo(out) && !(out.delete() && tmp.renameTo(out))) {
+            throw new IOException("Cannot replace " + out);
+        }
+        System.out.println("Exported " + n + " procedures, " + out.length() + " bytes -> " + out);
+    }
+}